@@ -1,27 +1,160 @@
 package com.connexal.magicmathdisplay;
 
 import com.connexal.magicmathdisplay.command.DemoCommand;
+import com.connexal.magicmathdisplay.command.PickCommand;
+import com.connexal.magicmathdisplay.command.PlotCommand;
+import com.connexal.magicmathdisplay.command.StatsCommand;
+import com.connexal.magicmathdisplay.demo.CounterDemo;
+import com.connexal.magicmathdisplay.demo.DemoRegistry;
+import com.connexal.magicmathdisplay.demo.EpicycleDemo;
+import com.connexal.magicmathdisplay.demo.FlowDemo;
+import com.connexal.magicmathdisplay.demo.HorizontalDemo;
+import com.connexal.magicmathdisplay.demo.NBodyDemo;
+import com.connexal.magicmathdisplay.demo.RollingDemo;
+import com.connexal.magicmathdisplay.demo.SpinningDemo;
+import com.connexal.magicmathdisplay.demo.StaticDemo;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.math.VectorFields;
+import com.connexal.magicmathdisplay.metrics.MetricsRegistry;
+import com.connexal.magicmathdisplay.renderer.PlaybackManager;
+import com.connexal.magicmathdisplay.renderer.PlaybackWakeListener;
 import com.connexal.magicmathdisplay.renderer.Renderer;
+import com.connexal.magicmathdisplay.renderer.primitives.FractalBuilder;
+import com.connexal.magicmathdisplay.renderer.primitives.FunctionPlotBuilder;
+import com.connexal.magicmathdisplay.renderer.primitives.ImplicitSurfaceBuilder;
+import com.connexal.magicmathdisplay.renderer.primitives.Rotatable;
+import com.connexal.magicmathdisplay.renderer.primitives.RotatableBuilder;
+import com.connexal.magicmathdisplay.renderer.primitives.TextBuilder;
+import com.connexal.magicmathdisplay.renderer.primitives.WireframeBuilder;
+import com.connexal.magicmathdisplay.scheduler.TaskScheduler;
 import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public final class MagicMathDisplay extends JavaPlugin {
     private static MagicMathDisplay instance;
 
+    private Settings settings;
+    private MetricsRegistry metrics;
+    private TaskScheduler scheduler;
+    private PlaybackManager playbackManager;
+    private DemoRegistry demoRegistry;
+    private PlotCommand plotCommand;
+
     @Override
     public void onEnable() {
         instance = this;
 
+        this.saveDefaultConfig();
+        this.settings = Settings.load(this.getConfig());
+        this.metrics = new MetricsRegistry();
+        this.scheduler = TaskScheduler.create(this);
+        this.playbackManager = new PlaybackManager(this.settings, this.metrics, this.scheduler, this.getServer());
+        this.getServer().getPluginManager().registerEvents(new PlaybackWakeListener(this.playbackManager), this);
+
+        this.demoRegistry = new DemoRegistry(this.metrics);
+        this.registerDemos();
+        this.demoRegistry.warmUp(this.settings.getWarmUpThreads());
+
+        this.plotCommand = new PlotCommand(this.scheduler);
+        this.getServer().getPluginManager().registerEvents(this.plotCommand, this);
+
         this.getLifecycleManager().registerEventHandler(LifecycleEvents.COMMANDS, commands -> {
-            commands.registrar().register("mmddemo", new DemoCommand());
+            commands.registrar().register("mmddemo", new DemoCommand(this.demoRegistry));
+            commands.registrar().register("mmdstats", new StatsCommand());
+            commands.registrar().register("mmdplot", this.plotCommand);
+            commands.registrar().register("mmdpick", new PickCommand());
         });
     }
 
+    private void registerDemos() {
+        Rotatable exampleCircle = RotatableBuilder.circle(Vector3d.zero(), 5, 100, Vector3d.up());
+        Rotatable exampleRectangle = RotatableBuilder.rectangle(Vector3d.zero(), 5, 2, 100, Vector3d.up());
+        Rotatable exampleSphere = RotatableBuilder.sphere(Vector3d.zero(), 5, 300);
+        Rotatable exampleStar = RotatableBuilder.star(Vector3d.zero(), 10, 10, 20);
+
+        this.demoRegistry.register("circle", new StaticDemo(exampleCircle.copy()));
+        this.demoRegistry.register("rectangle", new StaticDemo(exampleRectangle.copy()));
+        this.demoRegistry.register("sphere", new StaticDemo(exampleSphere.copy()));
+        this.demoRegistry.register("star", new StaticDemo(exampleStar.copy()));
+        this.demoRegistry.register("spinning_circle", new SpinningDemo(exampleCircle.copy()));
+        this.demoRegistry.register("spinning_rectangle", new SpinningDemo(exampleRectangle.copy()));
+        this.demoRegistry.register("spinning_star", new SpinningDemo(exampleStar.copy()));
+        this.demoRegistry.register("spinning_sphere", new SpinningDemo(exampleSphere.copy()));
+        this.demoRegistry.register("rolling_sphere", new RollingDemo(exampleSphere.copy(), 5));
+        this.demoRegistry.register("horizontal_circle", new HorizontalDemo(exampleCircle.copy(), Vector3d.north().scale(5), Vector3d.south().scale(5)));
+
+        // Same shapes drawn with one trail per edge
+        this.demoRegistry.register("wireframe_circle", new StaticDemo(WireframeBuilder.polygon(Vector3d.zero(), 5, 24, Vector3d.up())));
+        this.demoRegistry.register("wireframe_rectangle", new StaticDemo(WireframeBuilder.rectangle(Vector3d.zero(), 5, 2, Vector3d.up())));
+        this.demoRegistry.register("wireframe_sphere", new StaticDemo(WireframeBuilder.sphere(Vector3d.zero(), 5, 7, 16)));
+        this.demoRegistry.register("wireframe_star", new StaticDemo(WireframeBuilder.star(Vector3d.zero(), 10, 10)));
+
+        // Implicit surfaces, extracted during the warm up
+        Vector3d torusMin = new Vector3d(-6, -2, -6);
+        Vector3d torusMax = new Vector3d(6, 2, 6);
+        Vector3d gyroidMin = new Vector3d(-Math.PI, -Math.PI, -Math.PI);
+        Vector3d gyroidMax = new Vector3d(Math.PI, Math.PI, Math.PI);
+        this.demoRegistry.register("torus", new StaticDemo(() -> ImplicitSurfaceBuilder.wireframe("(sqrt(x^2+z^2)-4)^2+y^2-2.25", torusMin, torusMax, 12)));
+        this.demoRegistry.register("gyroid", new StaticDemo(() -> ImplicitSurfaceBuilder.points("sin(x)cos(y)+sin(y)cos(z)+sin(z)cos(x)", gyroidMin, gyroidMax, 12)));
+        this.demoRegistry.register("spinning_gyroid", new SpinningDemo(() -> ImplicitSurfaceBuilder.points("sin(x)cos(y)+sin(y)cos(z)+sin(z)cos(x)", gyroidMin, gyroidMax, 12)));
+
+        // Flows
+        double[] lorenzSeeds = FlowDemo.randomSeeds(new Vector3d(-15, 5, -15), new Vector3d(15, 45, 15), 400, 1);
+        double[] pendulumSeeds = FlowDemo.randomSeeds(new Vector3d(-2 * Math.PI, -3, 0), new Vector3d(2 * Math.PI, 3, 0), 300, 2);
+        Vector3d[] masses = {new Vector3d(-4, 0, 0), new Vector3d(4, 0, 0)};
+        double[] gravitySeeds = FlowDemo.randomSeeds(new Vector3d(-10, -1, -10), new Vector3d(10, 1, 10), 300, 3);
+        this.demoRegistry.register("lorenz", new FlowDemo(VectorFields.lorenz(10, 28, 8.0 / 3), lorenzSeeds, 0.004, 5, new Vector3d(0, 25, 0), 0.25));
+        this.demoRegistry.register("pendulum", new FlowDemo(VectorFields.pendulum(1, 0.1), pendulumSeeds, 0.02, 5, Vector3d.zero(), 1));
+        this.demoRegistry.register("gravity", new FlowDemo(VectorFields.gravity(masses, new double[] {20, 20}, 0.5), gravitySeeds, 0.02, 5, Vector3d.zero(), 0.5));
+
+        // Gravity simulations
+        this.demoRegistry.register("nbody_sphere", new NBodyDemo(RotatableBuilder.sphere(Vector3d.zero(), 8, 2000), 50, 0.3, 0.02, 3));
+        this.demoRegistry.register("nbody_star", new NBodyDemo(RotatableBuilder.star(Vector3d.zero(), 10, 20, 50), 30, 0.2, 0.02, 3));
+
+        // Fourier epicycles
+        this.demoRegistry.register("epicycle_rectangle", new EpicycleDemo(RotatableBuilder.rectangle(Vector3d.zero(), 10, 6, 400, Vector3d.up()), 20));
+        this.demoRegistry.register("epicycle_flower", new EpicycleDemo(FunctionPlotBuilder.polar("4+2cos(5theta)", 0, 2 * Math.PI, 1000, Vector3d.north()), 30));
+
+        // Fractals, generated during the warm up
+        this.demoRegistry.register("sierpinski", new SpinningDemo(() -> FractalBuilder.sierpinskiTetrahedron(Vector3d.zero(), 8, 4000, 1)));
+        this.demoRegistry.register("fern", new StaticDemo(() -> FractalBuilder.barnsleyFern(Vector3d.zero(), 12, 3000, 2, Vector3d.south())));
+        this.demoRegistry.register("tree", new StaticDemo(() -> FractalBuilder.tree(Vector3d.zero(), 0.3, 5, 4000)));
+        this.demoRegistry.register("mandelbulb", new SpinningDemo(() -> FractalBuilder.mandelbulb(Vector3d.zero(), 8, 8, 8, 48, 3000)));
+
+        // Text
+        this.demoRegistry.register("label", new StaticDemo(TextBuilder.text("MagicMathDisplay", Vector3d.zero(), 2, 2, Vector3d.south())));
+        this.demoRegistry.register("spinning_label", new SpinningDemo(TextBuilder.text("e^(i*pi)+1=0", Vector3d.zero(), 3, 2, Vector3d.south())));
+        this.demoRegistry.register("counter", new CounterDemo());
+    }
+
     @Override
     public void onDisable() {
+        this.demoRegistry.shutdown();
+        this.plotCommand.shutdown();
+        this.playbackManager.shutdown();
         Renderer.cleanupRenderedEntities();
     }
 
+    public Settings getSettings() {
+        return this.settings;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return this.metrics;
+    }
+
+    public TaskScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    public DemoRegistry getDemoRegistry() {
+        return this.demoRegistry;
+    }
+
+    public PlaybackManager getPlaybackManager() {
+        return this.playbackManager;
+    }
+
     public static MagicMathDisplay getInstance() {
         return instance;
     }
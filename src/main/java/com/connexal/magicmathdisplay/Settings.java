@@ -0,0 +1,107 @@
+package com.connexal.magicmathdisplay;
+
+import com.connexal.magicmathdisplay.renderer.BudgetOverflow;
+import com.connexal.magicmathdisplay.renderer.PlaybackMode;
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * The settings of the plugin, read once from the configuration file.
+ */
+public class Settings {
+    private final PlaybackMode playbackMode;
+    private final double msptThreshold;
+    private final int idleCheckInterval;
+    private final int particlesPerTick;
+    private final int particlesPerPlayerPerTick;
+    private final BudgetOverflow budgetOverflow;
+    private final int warmUpThreads;
+
+    private Settings(FileConfiguration config) {
+        String mode = config.getString("playback.mode", PlaybackMode.TICK.name());
+        try {
+            this.playbackMode = PlaybackMode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown playback mode: " + mode);
+        }
+
+        this.msptThreshold = config.getDouble("playback.mspt-threshold", 40.0);
+        this.idleCheckInterval = config.getInt("playback.idle-check-interval", 20);
+
+        this.particlesPerTick = config.getInt("budget.particles-per-tick", 5000);
+        this.particlesPerPlayerPerTick = config.getInt("budget.particles-per-player-per-tick", 2000);
+        String overflow = config.getString("budget.overflow", BudgetOverflow.SPREAD.name());
+        try {
+            this.budgetOverflow = BudgetOverflow.valueOf(overflow.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown budget overflow: " + overflow);
+        }
+
+        this.warmUpThreads = config.getInt("demos.warm-up-threads", 0);
+    }
+
+    /**
+     * Reads the settings from the configuration file.
+     * @param config the configuration of the plugin
+     * @return the settings
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    public static Settings load(FileConfiguration config) {
+        return new Settings(config);
+    }
+
+    /**
+     * Gets how playbacks choose the frame to display.
+     * @return the playback mode
+     */
+    public PlaybackMode getPlaybackMode() {
+        return this.playbackMode;
+    }
+
+    /**
+     * Gets the average milliseconds per tick above which fewer points are sent.
+     * @return the threshold in milliseconds, 0 if the density is never lowered
+     */
+    public double getMsptThreshold() {
+        return this.msptThreshold;
+    }
+
+    /**
+     * Gets how often playbacks check whether anybody can see them, suspending themselves if nobody can.
+     * @return the interval in ticks, 0 if playbacks are never suspended
+     */
+    public int getIdleCheckInterval() {
+        return this.idleCheckInterval;
+    }
+
+    /**
+     * Gets the maximum number of particles sent by the plugin during a tick.
+     * @return the global budget, 0 for no limit
+     */
+    public int getParticlesPerTick() {
+        return this.particlesPerTick;
+    }
+
+    /**
+     * Gets the maximum number of particles each player receives from the plugin during a tick.
+     * @return the per player budget, 0 for no limit
+     */
+    public int getParticlesPerPlayerPerTick() {
+        return this.particlesPerPlayerPerTick;
+    }
+
+    /**
+     * Gets what happens to the points that do not fit in the global budget.
+     * @return the overflow behaviour
+     */
+    public BudgetOverflow getBudgetOverflow() {
+        return this.budgetOverflow;
+    }
+
+    /**
+     * Gets the maximum number of demo sequences generated at the same time when the plugin is enabled.
+     * @return the number of threads, 0 for one less than the number of cores
+     */
+    public int getWarmUpThreads() {
+        return this.warmUpThreads;
+    }
+}
@@ -0,0 +1,75 @@
+package com.connexal.magicmathdisplay.command;
+
+import com.connexal.magicmathdisplay.MagicMathDisplay;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.renderer.Playback;
+import io.papermc.paper.command.brigadier.BasicCommand;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PickCommand implements BasicCommand {
+    private static final double PICK_DISTANCE = 32;
+    /**
+     * How far from the line of sight a point can be and still be picked.
+     */
+    private static final double PICK_TOLERANCE = 0.5;
+
+    /**
+     * The last point picked by each player, to measure the distance to the next one.
+     */
+    private final Map<UUID, Vector3d> lastPicks = new ConcurrentHashMap<>();
+
+    @Override
+    public void execute(CommandSourceStack ctx, String[] strings) {
+        if (!(ctx.getExecutor() instanceof Player player)) {
+            ctx.getSender().sendMessage("This command can only be run by a player.");
+            return;
+        }
+        boolean nearest = strings.length == 1 && strings[0].equalsIgnoreCase("nearest");
+        if (strings.length > 1 || (strings.length == 1 && !nearest)) {
+            ctx.getSender().sendMessage("Usage /mmdpick [nearest]");
+            return;
+        }
+
+        // Pick the point looked at, or the point closest to the player, among every playback of their world
+        Location eye = player.getEyeLocation();
+        Vector3d origin = new Vector3d(eye.getX(), eye.getY(), eye.getZ());
+        Vector3d direction = new Vector3d(eye.getDirection().getX(), eye.getDirection().getY(), eye.getDirection().getZ());
+        Vector3d picked = null;
+        double pickedDistance = Double.MAX_VALUE;
+        for (Playback playback : MagicMathDisplay.getInstance().getPlaybackManager().getPlaybacks()) {
+            if (playback.isStopped() || !Objects.equals(playback.getLocation().getWorld(), eye.getWorld())) {
+                continue;
+            }
+
+            Vector3d point = nearest ? playback.nearest(origin, PICK_DISTANCE) : playback.raycast(origin, direction, PICK_DISTANCE, PICK_TOLERANCE);
+            if (point != null && Vector3d.difference(point, origin).magnitude() < pickedDistance) {
+                picked = point;
+                pickedDistance = Vector3d.difference(point, origin).magnitude();
+            }
+        }
+
+        if (picked == null) {
+            ctx.getSender().sendMessage(nearest ? "No point within " + (int) PICK_DISTANCE + " blocks." : "No point in sight.");
+            return;
+        }
+        ctx.getSender().sendMessage(String.format("Picked point at %.2f, %.2f, %.2f, %.2f blocks away.", picked.getX(), picked.getY(), picked.getZ(), pickedDistance));
+
+        Vector3d previous = this.lastPicks.put(player.getUniqueId(), picked);
+        if (previous != null) {
+            ctx.getSender().sendMessage(String.format("Distance from the previous point: %.2f blocks.", Vector3d.difference(picked, previous).magnitude()));
+        }
+    }
+
+    @Override
+    public Collection<String> suggest(CommandSourceStack ctx, String[] args) {
+        if (args.length == 1) {
+            return List.of("nearest");
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,352 @@
+package com.connexal.magicmathdisplay.command;
+
+import com.connexal.magicmathdisplay.MagicMathDisplay;
+import com.connexal.magicmathdisplay.math.LttbDownsampler;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.renderer.Frame;
+import com.connexal.magicmathdisplay.renderer.Playback;
+import com.connexal.magicmathdisplay.renderer.Sequence;
+import com.connexal.magicmathdisplay.renderer.primitives.FunctionPlotBuilder;
+import com.connexal.magicmathdisplay.renderer.primitives.Rotatable;
+import com.connexal.magicmathdisplay.renderer.primitives.SeriesPlotBuilder;
+import com.connexal.magicmathdisplay.renderer.primitives.Wireframe;
+import com.connexal.magicmathdisplay.scheduler.TaskHandle;
+import com.connexal.magicmathdisplay.scheduler.TaskScheduler;
+import io.papermc.paper.command.brigadier.BasicCommand;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PlotCommand implements BasicCommand, Listener {
+    private static final int TICKS_PER_FRAME = 20;
+    private static final int CURVE_SAMPLES = 400;
+    private static final int SURFACE_RESOLUTION = 40;
+    private static final int SERIES_POINTS = 200;
+    private static final double SERIES_WIDTH = 20;
+    private static final double SERIES_HEIGHT = 8;
+    /**
+     * The number of ticks of tick rate history shown, 10 minutes.
+     */
+    private static final int TICK_RATE_WINDOW = 10 * 60 * 20;
+
+    /**
+     * The plot currently displayed by each player, replaced when they plot something else.
+     */
+    private final Map<UUID, Playback> plots = new ConcurrentHashMap<>();
+    /**
+     * The plots of data series of each player, redrawn while their series grows.
+     */
+    private final Map<UUID, SeriesPlot> seriesPlots = new ConcurrentHashMap<>();
+    private final TaskScheduler scheduler;
+    /**
+     * The tick rate history, sampled from when the plugin is enabled so that it is already filled when first shown.
+     */
+    private final LttbDownsampler tickRate = new LttbDownsampler(SERIES_POINTS, TICK_RATE_WINDOW);
+    private final TaskHandle tickRateTask;
+    private long lastTickNanos = -1;
+    /**
+     * The task redrawing the series plots, or null while there are none.
+     */
+    private TaskHandle seriesTask = null;
+
+    public PlotCommand(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+        this.tickRateTask = scheduler.runGlobalTimer(this::sampleTickRate, 0L, 1L);
+    }
+
+    /**
+     * Stops sampling the tick rate and redrawing the series plots.
+     */
+    public synchronized void shutdown() {
+        this.tickRateTask.cancel();
+        if (this.seriesTask != null) {
+            this.seriesTask.cancel();
+            this.seriesTask = null;
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID owner = event.getPlayer().getUniqueId();
+        SeriesPlot seriesPlot = this.seriesPlots.remove(owner);
+        if (seriesPlot != null) {
+            seriesPlot.stop();
+        }
+        Playback playback = this.plots.remove(owner);
+        if (playback != null) {
+            playback.stop();
+        }
+    }
+
+    @Override
+    public void execute(CommandSourceStack ctx, String[] strings) {
+        if (!(ctx.getExecutor() instanceof Player player)) {
+            ctx.getSender().sendMessage("This command can only be run by a player.");
+            return;
+        }
+        if (strings.length == 0) {
+            this.sendUsage(ctx);
+            return;
+        }
+
+        if (strings[0].equalsIgnoreCase("stop")) {
+            SeriesPlot seriesPlot = this.seriesPlots.remove(player.getUniqueId());
+            if (seriesPlot != null) {
+                seriesPlot.stop();
+            }
+            Playback playback = this.plots.remove(player.getUniqueId());
+            if (playback == null || playback.isStopped()) {
+                ctx.getSender().sendMessage("No plot is displayed.");
+                return;
+            }
+            playback.stop();
+            ctx.getSender().sendMessage("Stopped plot.");
+            return;
+        }
+
+        if (strings[0].equalsIgnoreCase("tps") && strings.length == 1) {
+            this.showSeries(player, ctx.getLocation(), this.tickRate, false, 0, 20);
+            ctx.getSender().sendMessage("Plotting the tick rate of the last 10 minutes.");
+            return;
+        }
+        if (strings[0].equalsIgnoreCase("csv") && strings.length >= 2 && strings.length <= 4) {
+            this.plotFile(ctx, player, strings);
+            return;
+        }
+
+        // Expressions can't contain spaces, as each one is a single argument
+        Rotatable plot;
+        try {
+            if (strings[0].equalsIgnoreCase("parametric") && (strings.length == 4 || strings.length == 6)) {
+                double tMin = strings.length == 6 ? Double.parseDouble(strings[4]) : 0;
+                double tMax = strings.length == 6 ? Double.parseDouble(strings[5]) : 2 * Math.PI;
+                plot = FunctionPlotBuilder.parametric(strings[1], strings[2], strings[3], tMin, tMax, CURVE_SAMPLES);
+            } else if (strings[0].equalsIgnoreCase("surface") && (strings.length == 2 || strings.length == 3)) {
+                double extent = strings.length == 3 ? Double.parseDouble(strings[2]) : 5;
+                plot = FunctionPlotBuilder.surface(strings[1], -extent, extent, SURFACE_RESOLUTION);
+            } else if (strings[0].equalsIgnoreCase("polar") && strings.length == 2) {
+                plot = FunctionPlotBuilder.polar(strings[1], 0, 2 * Math.PI, CURVE_SAMPLES, Vector3d.up());
+            } else {
+                this.sendUsage(ctx);
+                return;
+            }
+        } catch (IllegalArgumentException e) { // Also covers invalid numbers and expressions
+            ctx.getSender().sendMessage("Invalid plot: " + e.getMessage());
+            return;
+        }
+
+        SeriesPlot seriesPlot = this.seriesPlots.remove(player.getUniqueId());
+        if (seriesPlot != null) {
+            seriesPlot.stop();
+        }
+        Sequence sequence = Sequence.builder().addFrame(Frame.builder(plot.getPointCount()).addPrimitive(plot).build()).build();
+        this.show(player.getUniqueId(), ctx.getLocation(), sequence);
+        ctx.getSender().sendMessage("Plotted " + sequence.getPointCount(0) + " points.");
+    }
+
+    /**
+     * Plays a plot for a player, stopping the one they had.
+     * @return the new playback
+     */
+    private Playback show(UUID owner, Location location, Sequence sequence) {
+        Playback playback = MagicMathDisplay.getInstance().getPlaybackManager().start("plot", location, TICKS_PER_FRAME, sequence, 0, owner);
+        Playback previous = this.plots.put(owner, playback);
+        if (previous != null) {
+            previous.stop();
+        }
+        return playback;
+    }
+
+    /**
+     * Streams a column of a CSV file from the plugin folder into a series, off the main thread.
+     * The plot is redrawn as the file is read, and the file is never held in memory.
+     */
+    private void plotFile(CommandSourceStack ctx, Player player, String[] strings) {
+        Path folder = MagicMathDisplay.getInstance().getDataFolder().toPath().toAbsolutePath().normalize();
+        Path file = folder.resolve(strings[1]).normalize();
+        if (!file.startsWith(folder) || !Files.isRegularFile(file)) {
+            ctx.getSender().sendMessage("File not found in the plugin folder: " + strings[1]);
+            return;
+        }
+
+        int column;
+        try {
+            column = strings.length >= 3 ? Integer.parseInt(strings[2]) : 0;
+        } catch (NumberFormatException e) {
+            ctx.getSender().sendMessage("Invalid column: " + strings[2]);
+            return;
+        }
+        boolean bars = strings.length == 4 && strings[3].equalsIgnoreCase("bars");
+
+        LttbDownsampler series = new LttbDownsampler(SERIES_POINTS);
+        this.showSeries(player, ctx.getLocation(), series, bars, Double.NaN, Double.NaN);
+        CommandSender sender = ctx.getSender();
+        this.scheduler.runAsync(() -> {
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    double value = PlotCommand.parseColumn(line, column);
+                    if (!Double.isNaN(value)) { // Headers and missing values are skipped
+                        series.add(value);
+                    }
+                }
+                this.sendMessage(sender, "Plotted " + series.getSampleCount() + " samples from " + strings[1] + ".");
+            } catch (IOException e) {
+                this.sendMessage(sender, "Unable to read " + strings[1] + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sends a message from another thread, on the thread owning the sender.
+     */
+    private void sendMessage(CommandSender sender, String message) {
+        if (sender instanceof Entity entity) {
+            this.scheduler.runEntity(entity, () -> sender.sendMessage(message));
+        } else {
+            this.scheduler.runGlobal(() -> sender.sendMessage(message));
+        }
+    }
+
+    /**
+     * Parses a column of a line of comma separated values, without splitting the whole line.
+     * @return the value, or NaN if the column is missing or not a number
+     */
+    private static double parseColumn(String line, int column) {
+        int start = 0;
+        for (int i = 0; i < column; i++) {
+            start = line.indexOf(',', start) + 1;
+            if (start == 0) {
+                return Double.NaN;
+            }
+        }
+
+        int end = line.indexOf(',', start);
+        try {
+            return Double.parseDouble(line.substring(start, end < 0 ? line.length() : end).trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Shows a series to a player, redrawing it whenever it gets new samples.
+     */
+    private synchronized void showSeries(Player player, Location location, LttbDownsampler series, boolean bars, double minValue, double maxValue) {
+        SeriesPlot previous = this.seriesPlots.put(player.getUniqueId(), new SeriesPlot(player.getUniqueId(), location, series, bars, minValue, maxValue));
+        if (previous != null) {
+            previous.stop();
+        }
+
+        if (this.seriesTask == null) {
+            this.seriesTask = this.scheduler.runGlobalTimer(this::refreshSeries, 0L, TICKS_PER_FRAME);
+        }
+    }
+
+    /**
+     * Samples the tick rate from the time between two ticks.
+     */
+    private void sampleTickRate() {
+        long now = System.nanoTime();
+        if (this.lastTickNanos >= 0) {
+            this.tickRate.add(Math.min(20, 1_000_000_000.0 / Math.max(1, now - this.lastTickNanos)));
+        }
+        this.lastTickNanos = now;
+    }
+
+    /**
+     * Redraws the series plots once per frame, stopping once there are none left.
+     */
+    private synchronized void refreshSeries() {
+        if (this.seriesPlots.isEmpty()) {
+            if (this.seriesTask != null) {
+                this.seriesTask.cancel();
+                this.seriesTask = null;
+            }
+            return;
+        }
+
+        for (SeriesPlot plot : this.seriesPlots.values()) {
+            plot.refresh();
+        }
+    }
+
+    /**
+     * A plot of a data series, whose playback is given a new sequence each time the series changes.
+     */
+    private class SeriesPlot {
+        private final UUID owner;
+        private final Location location;
+        private final LttbDownsampler series;
+        private final boolean bars;
+        private final double minValue;
+        private final double maxValue;
+        private long shownSamples = 0;
+        private boolean stopped = false;
+        private Playback playback = null;
+
+        SeriesPlot(UUID owner, Location location, LttbDownsampler series, boolean bars, double minValue, double maxValue) {
+            this.owner = owner;
+            this.location = location;
+            this.series = series;
+            this.bars = bars;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        /**
+         * Redraws the plot if the series got new samples. Only the downsampled points are drawn, so this is cheap whatever the size of the series.
+         */
+        synchronized void refresh() {
+            long samples = this.series.getSampleCount();
+            if (this.stopped || samples == this.shownSamples || samples < 2) {
+                return;
+            }
+            this.shownSamples = samples;
+
+            Wireframe plot = this.bars
+                    ? SeriesPlotBuilder.bars(this.series, SERIES_WIDTH, SERIES_HEIGHT, this.minValue, this.maxValue)
+                    : SeriesPlotBuilder.line(this.series, SERIES_WIDTH, SERIES_HEIGHT, this.minValue, this.maxValue);
+            Sequence sequence = Sequence.builder().addFrame(Frame.builder(plot.getEdgeCount()).addEdges(plot).build()).build();
+            if (this.playback == null || this.playback.isStopped()) {
+                this.playback = PlotCommand.this.show(this.owner, this.location, sequence);
+            } else {
+                this.playback.setSequence(sequence); // Updated in place, so the display doesn't restart
+            }
+        }
+
+        synchronized void stop() {
+            this.stopped = true;
+        }
+    }
+
+    private void sendUsage(CommandSourceStack ctx) {
+        ctx.getSender().sendMessage("Usage /mmdplot parametric <x(t)> <y(t)> <z(t)> [t_min t_max]");
+        ctx.getSender().sendMessage("      /mmdplot surface <f(x,y)> [extent]");
+        ctx.getSender().sendMessage("      /mmdplot polar <r(theta)>");
+        ctx.getSender().sendMessage("      /mmdplot tps");
+        ctx.getSender().sendMessage("      /mmdplot csv <file> [column] [line|bars]");
+        ctx.getSender().sendMessage("      /mmdplot stop");
+    }
+
+    @Override
+    public Collection<String> suggest(CommandSourceStack ctx, String[] args) {
+        if (args.length == 1) {
+            return List.of("parametric", "surface", "polar", "tps", "csv", "stop");
+        }
+        return Collections.emptyList();
+    }
+}
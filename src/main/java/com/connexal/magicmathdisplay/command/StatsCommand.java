@@ -0,0 +1,42 @@
+package com.connexal.magicmathdisplay.command;
+
+import com.connexal.magicmathdisplay.MagicMathDisplay;
+import io.papermc.paper.command.brigadier.BasicCommand;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class StatsCommand implements BasicCommand {
+    @Override
+    public void execute(CommandSourceStack ctx, String[] strings) {
+        if (strings.length > 1) {
+            ctx.getSender().sendMessage("Usage /mmdstats [prefix]");
+            return;
+        }
+
+        String prefix = strings.length == 1 ? strings[0] : "";
+        Map<String, Number> snapshot = MagicMathDisplay.getInstance().getMetrics().snapshot();
+
+        ctx.getSender().sendMessage("MagicMathDisplay statistics:");
+        for (Map.Entry<String, Number> entry : snapshot.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                continue;
+            }
+
+            Number value = entry.getValue();
+            String formatted = (value instanceof Double || value instanceof Float) ? String.format("%.3f", value.doubleValue()) : value.toString();
+            ctx.getSender().sendMessage(" " + entry.getKey() + ": " + formatted);
+        }
+    }
+
+    @Override
+    public Collection<String> suggest(CommandSourceStack ctx, String[] args) {
+        if (args.length == 1) {
+            return List.of("particles", "frame", "sequence", "playback", "demo");
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,42 @@
+package com.connexal.magicmathdisplay.demo;
+
+import com.connexal.magicmathdisplay.renderer.Frame;
+import com.connexal.magicmathdisplay.renderer.Sequence;
+import com.connexal.magicmathdisplay.renderer.primitives.TextBuilder;
+
+/**
+ * Shows a label counting the time since the loop started, redrawn every frame from the cached glyphs.
+ */
+public class CounterDemo extends Demo {
+    private static final int TICKS_PER_FRAME = 2; // Each frame lasts 2 ticks
+    private static final int TOTAL_FRAMES = 10 * (20 / TICKS_PER_FRAME);
+    private static final double TEXT_HEIGHT = 2;
+
+    @Override
+    protected int getTicksPerFrame() {
+        return TICKS_PER_FRAME;
+    }
+
+    @Override
+    protected double getMaxKeyframeError() {
+        return 0; // Each frame has its own text, nothing can be interpolated
+    }
+
+    @Override
+    protected Sequence generateSequence() {
+        Sequence.SequenceBuilder sequenceBuilder = Sequence.builder();
+        float[] buffer = new float[0];
+        for (int i = 0; i < TOTAL_FRAMES; i++) {
+            String label = String.format("t = %.1f s", (i * TICKS_PER_FRAME) / 20.0);
+
+            // Lay the text out in a buffer reused from frame to frame
+            int pointCount = TextBuilder.countPoints(label, 1);
+            if (buffer.length < 3 * pointCount) {
+                buffer = new float[3 * pointCount];
+            }
+            TextBuilder.layout(label, TEXT_HEIGHT, 1, buffer, 0, 3);
+            sequenceBuilder.addFrame(Frame.builder(pointCount).addPoints(buffer, 0, pointCount, 3).build());
+        }
+        return sequenceBuilder.build();
+    }
+}
@@ -1,23 +1,78 @@
 package com.connexal.magicmathdisplay.demo;
 
-import com.connexal.magicmathdisplay.renderer.Renderer;
+import com.connexal.magicmathdisplay.MagicMathDisplay;
+import com.connexal.magicmathdisplay.metrics.jfr.SequenceCacheEvent;
+import com.connexal.magicmathdisplay.metrics.jfr.SequenceGenerationEvent;
+import com.connexal.magicmathdisplay.renderer.Playback;
 import com.connexal.magicmathdisplay.renderer.Sequence;
+import com.connexal.magicmathdisplay.renderer.SequenceOptimiser;
 import org.bukkit.Location;
-import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class Demo {
-    private boolean isRunning = false;
-    private BukkitTask task;
+    /**
+     * Default maximum distance in blocks between a point of a dropped frame and its interpolated position.
+     */
+    private static final double DEFAULT_MAX_KEYFRAME_ERROR = 0.05;
+
+    private final List<Playback> playbacks = new CopyOnWriteArrayList<>();
+    private volatile String name = this.getClass().getSimpleName();
+    /**
+     * The sequence shared by all the playbacks of this demo, generated on first use.
+     */
+    private volatile Sequence sequence = null;
+    /**
+     * How long it took to generate the sequence, or -1 if it has not been generated yet.
+     */
+    private volatile long generationNanos = -1;
 
     protected abstract int getTicksPerFrame();
 
     protected abstract Sequence generateSequence();
 
-    public void startDemo(Location location) {
-        if (this.isRunning) {
-            throw new IllegalStateException("SpinningCircleDemo has already been started.");
+    /**
+     * Returns the maximum error allowed when dropping frames that can be interpolated from their neighbours.
+     * @return the maximum error in blocks, 0 to keep every frame
+     */
+    protected double getMaxKeyframeError() {
+        return DEFAULT_MAX_KEYFRAME_ERROR;
+    }
+
+    /**
+     * Gets the name the demo is registered under, used in metrics and recordings.
+     * @return the name, which is the name of the class if none was set
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the sequence of this demo, generating it if this has not been done yet.
+     * @return the sequence, which is shared and must not be modified
+     */
+    public synchronized Sequence getSequence() {
+        SequenceCacheEvent cacheEvent = new SequenceCacheEvent();
+        if (cacheEvent.isEnabled()) {
+            cacheEvent.demo = this.name;
+            cacheEvent.hit = this.sequence != null;
+            cacheEvent.commit();
+        }
+        if (this.sequence != null) {
+            return this.sequence;
         }
 
+        SequenceGenerationEvent generationEvent = new SequenceGenerationEvent();
+        generationEvent.begin();
+        long start = System.nanoTime();
         Sequence sequence;
         try {
             sequence = this.generateSequence();
@@ -29,18 +84,101 @@ public abstract class Demo {
             throw new IllegalStateException("Generated sequence is empty.");
         }
 
-        // Set the running flag and initialize the task
-        this.isRunning = true;
-        this.task = Renderer.loopSequence(location, this.getTicksPerFrame(), sequence);
+        sequence = SequenceOptimiser.reduceKeyframes(sequence, this.getMaxKeyframeError());
+        this.generationNanos = System.nanoTime() - start;
+        MagicMathDisplay.getInstance().getMetrics().getSequenceGeneration().record(this.generationNanos);
+        if (generationEvent.shouldCommit()) {
+            generationEvent.demo = this.name;
+            generationEvent.totalFrames = sequence.getTotalFrames();
+            generationEvent.storedFrames = sequence.getStoredFrames();
+            generationEvent.pointCount = sequence.getPointCount(0);
+            generationEvent.commit();
+        }
+        MagicMathDisplay.getInstance().getLogger().info(String.format("%s: kept %d of %d frames (compression ratio %.2f)",
+                this.name, sequence.getStoredFrames(), sequence.getTotalFrames(), sequence.getCompressionRatio()));
+
+        this.sequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Gets the memory retained by the sequence of this demo.
+     * @return the estimated number of bytes, 0 if the sequence has not been generated yet
+     */
+    public long getSequenceBytes() {
+        Sequence sequence = this.sequence;
+        return sequence == null ? 0 : sequence.getRetainedBytes();
     }
 
-    public void stopDemo() {
-        if (!this.isRunning) {
-            throw new IllegalStateException("SpinningCircleDemo is not running.");
+    /**
+     * Gets how long it took to generate the sequence of this demo.
+     * @return the duration in milliseconds, or -1 if the sequence has not been generated yet
+     */
+    public double getGenerationMillis() {
+        long generationNanos = this.generationNanos;
+        return generationNanos < 0 ? -1 : generationNanos / 1_000_000.0;
+    }
+
+    /**
+     * Starts a new instance of the demo. Several instances can run at the same time.
+     * @param location the location to play the demo at
+     * @param owner the player starting the demo, or null
+     * @param phaseOffset the index of the frame to start at
+     * @return the new playback
+     */
+    public Playback startDemo(Location location, UUID owner, int phaseOffset) {
+        Playback playback = MagicMathDisplay.getInstance().getPlaybackManager().start(this.name, location, this.getTicksPerFrame(), this.getSequence(), phaseOffset, owner);
+
+        this.playbacks.removeIf(Playback::isStopped);
+        this.playbacks.add(playback);
+        return playback;
+    }
+
+    /**
+     * Starts a new instance of the demo from its first frame.
+     * @param location the location to play the demo at
+     * @param owner the player starting the demo, or null
+     * @return the new playback
+     */
+    public Playback startDemo(Location location, UUID owner) {
+        return this.startDemo(location, owner, 0);
+    }
+
+    /**
+     * Stops all the instances of the demo started by the given player.
+     * @param owner the player that started the instances, or null for those not started by a player
+     * @throws IllegalStateException if the player has no running instance of the demo
+     */
+    public void stopDemo(UUID owner) {
+        this.playbacks.removeIf(Playback::isStopped);
+
+        List<Playback> owned = new ArrayList<>();
+        for (Playback playback : this.playbacks) {
+            if (Objects.equals(owner, playback.getOwner())) {
+                owned.add(playback);
+            }
+        }
+        if (owned.isEmpty()) {
+            throw new IllegalStateException("Demo is not running.");
+        }
+
+        for (Playback playback : owned) {
+            playback.stop();
         }
+        this.playbacks.removeAll(owned);
+    }
 
-        // Cancel the task and reset the running flag
-        this.task.cancel();
-        this.isRunning = false;
+    /**
+     * Gets the number of instances of the demo that are currently running.
+     * @return the number of running instances
+     */
+    public int getRunningCount() {
+        int count = 0;
+        for (Playback playback : this.playbacks) {
+            if (!playback.isStopped()) {
+                count++;
+            }
+        }
+        return count;
     }
 }
@@ -0,0 +1,176 @@
+package com.connexal.magicmathdisplay.demo;
+
+import com.connexal.magicmathdisplay.MagicMathDisplay;
+import com.connexal.magicmathdisplay.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Holds the demos that can be started, and generates their sequences ahead of time so that starting one is instant.
+ * Demos can be looked up from any thread while they are being generated.
+ */
+public class DemoRegistry {
+    /**
+     * How far the sequence of a demo is from being usable.
+     */
+    public enum Readiness {
+        /**
+         * The sequence will be generated, but the generation has not started yet.
+         */
+        WAITING,
+        /**
+         * The sequence is being generated.
+         */
+        WARMING_UP,
+        /**
+         * The sequence is generated, the demo starts instantly.
+         */
+        READY,
+        /**
+         * The sequence could not be generated.
+         */
+        FAILED
+    }
+
+    private final MetricsRegistry metrics;
+    private final Map<String, Demo> demos = new ConcurrentHashMap<>();
+    private final Map<String, Readiness> readiness = new ConcurrentHashMap<>();
+    private ExecutorService warmUpExecutor = null;
+
+    public DemoRegistry(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        this.metrics.registerGauge("demos.ready", this::getReadyCount);
+    }
+
+    /**
+     * Registers a demo. Its sequence is generated by the next warm up, or when it is first started.
+     * @param name the name of the demo, used in commands and metrics
+     * @param demo the demo
+     * @throws IllegalArgumentException if a demo is already registered under this name
+     */
+    public void register(String name, Demo demo) {
+        if (this.demos.putIfAbsent(name, demo) != null) {
+            throw new IllegalArgumentException("A demo is already registered as " + name + ".");
+        }
+        demo.setName(name);
+        this.readiness.put(name, Readiness.WAITING);
+
+        this.metrics.registerGauge("demo." + name + ".sequence-bytes", demo::getSequenceBytes);
+        this.metrics.registerGauge("demo." + name + ".generation-ms", demo::getGenerationMillis);
+        this.metrics.registerGauge("demo." + name + ".running", demo::getRunningCount);
+    }
+
+    /**
+     * Gets a registered demo.
+     * @param name the name of the demo
+     * @return the demo, or null if no demo is registered under this name
+     */
+    public Demo get(String name) {
+        return this.demos.get(name);
+    }
+
+    /**
+     * Gets the names of the registered demos.
+     * @return an unmodifiable view of the names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(this.demos.keySet());
+    }
+
+    /**
+     * Gets how far the sequence of a demo is from being usable.
+     * @param name the name of the demo
+     * @return the readiness of the demo, or null if no demo is registered under this name
+     */
+    public Readiness getReadiness(String name) {
+        return this.readiness.get(name);
+    }
+
+    /**
+     * Gets the number of demos whose sequence is generated.
+     * @return the number of ready demos
+     */
+    public int getReadyCount() {
+        int count = 0;
+        for (Readiness state : this.readiness.values()) {
+            if (state == Readiness.READY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generates the sequences of all the registered demos in parallel.
+     * @param parallelism the maximum number of sequences generated at the same time, 0 for one less than the number of cores
+     * @return a future completed once every demo is either ready or failed
+     * @throws IllegalStateException if a warm up is already running
+     */
+    public synchronized CompletableFuture<Void> warmUp(int parallelism) {
+        if (this.warmUpExecutor != null) {
+            throw new IllegalStateException("The demos are already warming up.");
+        }
+
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger threadCounter = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "MagicMathDisplay-WarmUp-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY); // Keep the server threads responsive while starting up
+            return thread;
+        });
+        this.warmUpExecutor = executor;
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> generations = new ArrayList<>();
+        for (Map.Entry<String, Demo> entry : this.demos.entrySet()) {
+            String name = entry.getKey();
+            Demo demo = entry.getValue();
+            if (this.readiness.get(name) == Readiness.READY) {
+                continue;
+            }
+
+            generations.add(CompletableFuture.runAsync(() -> {
+                this.readiness.put(name, Readiness.WARMING_UP);
+                try {
+                    demo.getSequence();
+                    this.readiness.put(name, Readiness.READY);
+                } catch (RuntimeException e) {
+                    this.readiness.put(name, Readiness.FAILED);
+                    MagicMathDisplay.getInstance().getLogger().log(Level.WARNING, "Unable to warm up demo " + name, e);
+                }
+            }, executor));
+        }
+
+        return CompletableFuture.allOf(generations.toArray(new CompletableFuture<?>[0])).whenComplete((result, error) -> {
+            synchronized (this) {
+                executor.shutdown();
+                if (this.warmUpExecutor == executor) {
+                    this.warmUpExecutor = null;
+                }
+            }
+            MagicMathDisplay.getInstance().getLogger().info(String.format("Warmed up %d of %d demos in %.0f ms using %d threads",
+                    this.getReadyCount(), this.demos.size(), (System.nanoTime() - start) / 1_000_000.0, threads));
+        });
+    }
+
+    /**
+     * Abandons the warm up if it is still running.
+     */
+    public synchronized void shutdown() {
+        if (this.warmUpExecutor != null) {
+            this.warmUpExecutor.shutdownNow();
+            this.warmUpExecutor = null;
+        }
+    }
+}
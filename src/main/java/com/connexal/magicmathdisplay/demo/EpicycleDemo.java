@@ -0,0 +1,209 @@
+package com.connexal.magicmathdisplay.demo;
+
+import com.connexal.magicmathdisplay.math.FastFourierTransform;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.renderer.Frame;
+import com.connexal.magicmathdisplay.renderer.Sequence;
+import com.connexal.magicmathdisplay.renderer.primitives.Rotatable;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Shows a closed path being traced by a chain of rotating circles, built from the Fourier series of the path.
+ * Each frame draws the arms of the chain, the largest circles and the path traced so far, all as edges.
+ */
+public class EpicycleDemo extends Demo {
+    private static final int TICKS_PER_FRAME = 2; // Each frame lasts 2 ticks
+    private static final int TOTAL_FRAMES = 15 * (20 / TICKS_PER_FRAME);
+    /**
+     * The minimum number of samples the path is resampled to, so that short point lists still give smooth curves.
+     */
+    private static final int MIN_SAMPLES = 256;
+    /**
+     * The maximum number of circles drawn, the smaller ones are only shown by their arm.
+     */
+    private static final int MAX_CIRCLES = 12;
+    private static final int CIRCLE_SEGMENTS = 16;
+    private static final double MIN_CIRCLE_RADIUS = 0.25;
+
+    private final Vector3d[] path;
+    private final Vector3d u;
+    private final Vector3d v;
+    private final int epicycleCount;
+
+    /**
+     * Creates an epicycle demo from a list of points.
+     * @param path the points of the closed path, in order
+     * @param normal the normal of the plane the path is drawn in, the points being projected onto it
+     * @param epicycleCount the number of rotating circles, more circles following the path more closely
+     * @throws IllegalArgumentException if the path has less than 3 points or epicycleCount is less than 1
+     */
+    public EpicycleDemo(List<Vector3d> path, Vector3d normal, int epicycleCount) {
+        if (path.size() < 3) {
+            throw new IllegalArgumentException("The path must have at least 3 points.");
+        }
+        if (epicycleCount < 1) {
+            throw new IllegalArgumentException("There must be at least 1 epicycle.");
+        }
+
+        this.path = new Vector3d[path.size()];
+        for (int i = 0; i < this.path.length; i++) {
+            this.path[i] = path.get(i).copy();
+        }
+
+        // Orthonormal basis of the plane
+        Vector3d n = Vector3d.normalized(normal);
+        Vector3d axis = Math.abs(Vector3d.dot(n, Vector3d.up())) > 0.9 ? Vector3d.east() : Vector3d.up();
+        this.u = Vector3d.cross(axis, n).normalize();
+        this.v = Vector3d.cross(n, this.u);
+        this.epicycleCount = epicycleCount;
+    }
+
+    /**
+     * Creates an epicycle demo tracing the points of a shape in order.
+     * @param shape the shape, whose points must go around it in order
+     * @param epicycleCount the number of rotating circles, more circles following the path more closely
+     */
+    public EpicycleDemo(Rotatable shape, int epicycleCount) {
+        this(List.copyOf(shape.getPoints()), shape.getNormal(), epicycleCount);
+    }
+
+    @Override
+    protected int getTicksPerFrame() {
+        return TICKS_PER_FRAME;
+    }
+
+    @Override
+    protected Sequence generateSequence() {
+        int sampleCount = FastFourierTransform.nextPowerOfTwo(Math.max(MIN_SAMPLES, this.path.length));
+        double[] real = new double[sampleCount];
+        double[] imaginary = new double[sampleCount];
+        this.resample(real, imaginary);
+        FastFourierTransform.forward(real, imaginary);
+
+        // Keep the largest coefficients, the constant one being the fixed centre of the chain
+        int count = Math.min(this.epicycleCount, sampleCount - 1);
+        int[] frequencies = IntStream.range(1, sampleCount)
+                .boxed()
+                .sorted(Comparator.comparingDouble(f -> -Math.hypot(real[f], imaginary[f])))
+                .limit(count)
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        // Each circle starts at its coefficient and is turned by a fixed complex rotation every frame
+        double[] armReal = new double[count];
+        double[] armImaginary = new double[count];
+        double[] rotationReal = new double[count];
+        double[] rotationImaginary = new double[count];
+        for (int i = 0; i < count; i++) {
+            int f = frequencies[i];
+            int signedFrequency = f <= sampleCount / 2 ? f : f - sampleCount;
+            armReal[i] = real[f] / sampleCount;
+            armImaginary[i] = imaginary[f] / sampleCount;
+            double angle = (2 * Math.PI * signedFrequency) / TOTAL_FRAMES;
+            rotationReal[i] = Math.cos(angle);
+            rotationImaginary[i] = Math.sin(angle);
+        }
+        double centreReal = real[0] / sampleCount;
+        double centreImaginary = imaginary[0] / sampleCount;
+
+        double[] traced = new double[2 * TOTAL_FRAMES];
+        Sequence.SequenceBuilder sequenceBuilder = Sequence.builder();
+        for (int frame = 0; frame < TOTAL_FRAMES; frame++) {
+            Frame.FrameBuilder frameBuilder = Frame.builder(count + (MAX_CIRCLES * CIRCLE_SEGMENTS) + frame);
+
+            double x = centreReal;
+            double y = centreImaginary;
+            int circles = 0;
+            for (int i = 0; i < count; i++) {
+                double radius = Math.hypot(armReal[i], armImaginary[i]);
+                if (circles < MAX_CIRCLES && radius >= MIN_CIRCLE_RADIUS) {
+                    this.addCircle(frameBuilder, x, y, radius);
+                    circles++;
+                }
+
+                double nextX = x + armReal[i];
+                double nextY = y + armImaginary[i];
+                this.addEdge(frameBuilder, x, y, nextX, nextY);
+                x = nextX;
+                y = nextY;
+
+                // Turn the arm for the next frame
+                double turnedReal = (armReal[i] * rotationReal[i]) - (armImaginary[i] * rotationImaginary[i]);
+                armImaginary[i] = (armReal[i] * rotationImaginary[i]) + (armImaginary[i] * rotationReal[i]);
+                armReal[i] = turnedReal;
+            }
+
+            // The tip of the chain traces the path
+            traced[2 * frame] = x;
+            traced[(2 * frame) + 1] = y;
+            for (int i = 1; i <= frame; i++) {
+                this.addEdge(frameBuilder, traced[2 * (i - 1)], traced[(2 * (i - 1)) + 1], traced[2 * i], traced[(2 * i) + 1]);
+            }
+
+            sequenceBuilder.addFrame(frameBuilder.build());
+        }
+
+        return sequenceBuilder.build();
+    }
+
+    /**
+     * Projects the path onto its plane and resamples it at evenly spaced distances along it, closing it back to its first point.
+     */
+    private void resample(double[] real, double[] imaginary) {
+        int pointCount = this.path.length;
+        double[] pathX = new double[pointCount + 1];
+        double[] pathY = new double[pointCount + 1];
+        double[] distances = new double[pointCount + 1];
+        for (int i = 0; i <= pointCount; i++) {
+            Vector3d point = this.path[i % pointCount];
+            pathX[i] = Vector3d.dot(point, this.u);
+            pathY[i] = Vector3d.dot(point, this.v);
+            if (i > 0) {
+                distances[i] = distances[i - 1] + Math.hypot(pathX[i] - pathX[i - 1], pathY[i] - pathY[i - 1]);
+            }
+        }
+
+        double length = distances[pointCount];
+        int segment = 0;
+        for (int k = 0; k < real.length; k++) {
+            double distance = (length * k) / real.length;
+            while (segment < pointCount - 1 && distances[segment + 1] <= distance) {
+                segment++;
+            }
+
+            double segmentLength = distances[segment + 1] - distances[segment];
+            double t = segmentLength > 0 ? (distance - distances[segment]) / segmentLength : 0;
+            real[k] = pathX[segment] + ((pathX[segment + 1] - pathX[segment]) * t);
+            imaginary[k] = pathY[segment] + ((pathY[segment + 1] - pathY[segment]) * t);
+        }
+    }
+
+    private void addCircle(Frame.FrameBuilder frameBuilder, double x, double y, double radius) {
+        double previousX = x + radius;
+        double previousY = y;
+        for (int i = 1; i <= CIRCLE_SEGMENTS; i++) {
+            double angle = (2 * Math.PI * i) / CIRCLE_SEGMENTS;
+            double nextX = x + (radius * Math.cos(angle));
+            double nextY = y + (radius * Math.sin(angle));
+            this.addEdge(frameBuilder, previousX, previousY, nextX, nextY);
+            previousX = nextX;
+            previousY = nextY;
+        }
+    }
+
+    /**
+     * Adds an edge between two points of the plane.
+     */
+    private void addEdge(Frame.FrameBuilder frameBuilder, double x1, double y1, double x2, double y2) {
+        frameBuilder.addEdge(
+                (this.u.getX() * x1) + (this.v.getX() * y1),
+                (this.u.getY() * x1) + (this.v.getY() * y1),
+                (this.u.getZ() * x1) + (this.v.getZ() * y1),
+                (this.u.getX() * x2) + (this.v.getX() * y2),
+                (this.u.getY() * x2) + (this.v.getY() * y2),
+                (this.u.getZ() * x2) + (this.v.getZ() * y2));
+    }
+}
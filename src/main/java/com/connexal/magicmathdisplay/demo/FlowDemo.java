@@ -0,0 +1,100 @@
+package com.connexal.magicmathdisplay.demo;
+
+import com.connexal.magicmathdisplay.math.FlowIntegrator;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.math.VectorField;
+import com.connexal.magicmathdisplay.renderer.Frame;
+import com.connexal.magicmathdisplay.renderer.Sequence;
+
+import java.util.Random;
+
+/**
+ * Shows tracers flowing along a vector field, each frame being drawn as the trails from the positions of the tracers to their next positions.
+ */
+public class FlowDemo extends Demo {
+    private static final int TICKS_PER_FRAME = 2; // Each frame lasts 2 ticks
+    private static final int TOTAL_FRAMES = 10 * (20 / TICKS_PER_FRAME);
+
+    private final VectorField field;
+    private final double[] seeds;
+    private final double dt;
+    private final int stepsPerFrame;
+    private final Vector3d centre;
+    private final double scale;
+
+    /**
+     * Creates a flow demo.
+     * @param field the field the tracers follow
+     * @param seeds the packed starting positions of the tracers, in the coordinates of the field
+     * @param dt the duration of an integration step
+     * @param stepsPerFrame the number of integration steps between two frames
+     * @param centre the point of the field shown where the demo is played
+     * @param scale the number of blocks per unit of the field
+     */
+    public FlowDemo(VectorField field, double[] seeds, double dt, int stepsPerFrame, Vector3d centre, double scale) {
+        if (seeds.length % 3 != 0) {
+            throw new IllegalArgumentException("Seeds must be packed as x, y and z.");
+        }
+
+        this.field = field;
+        this.seeds = seeds.clone();
+        this.dt = dt;
+        this.stepsPerFrame = stepsPerFrame;
+        this.centre = centre.copy();
+        this.scale = scale;
+    }
+
+    /**
+     * Creates seeds spread uniformly in a box.
+     * @param min the lowest corner of the box
+     * @param max the highest corner of the box
+     * @param count the number of seeds
+     * @param randomSeed the seed of the random generator, so that the same seeds are generated each time
+     * @return the packed positions of the seeds
+     */
+    public static double[] randomSeeds(Vector3d min, Vector3d max, int count, long randomSeed) {
+        Random random = new Random(randomSeed);
+        double[] seeds = new double[3 * count];
+        for (int i = 0; i < count; i++) {
+            seeds[3 * i] = min.getX() + (random.nextDouble() * (max.getX() - min.getX()));
+            seeds[(3 * i) + 1] = min.getY() + (random.nextDouble() * (max.getY() - min.getY()));
+            seeds[(3 * i) + 2] = min.getZ() + (random.nextDouble() * (max.getZ() - min.getZ()));
+        }
+        return seeds;
+    }
+
+    @Override
+    protected int getTicksPerFrame() {
+        return TICKS_PER_FRAME;
+    }
+
+    @Override
+    protected Sequence generateSequence() {
+        int tracerCount = this.seeds.length / 3;
+        FlowIntegrator integrator = new FlowIntegrator(this.field, tracerCount);
+        double[] current = this.seeds.clone();
+        double[] next = this.seeds.clone();
+
+        // The velocity of each tracer is exactly its next displacement, so the frames are built with it instead of inferring it
+        Sequence.SequenceBuilder sequenceBuilder = Sequence.builder();
+        for (int i = 0; i < TOTAL_FRAMES; i++) {
+            integrator.advance(next, this.dt, this.stepsPerFrame);
+
+            Frame.FrameBuilder frameBuilder = Frame.builder(tracerCount);
+            for (int p = 0; p < current.length; p += 3) {
+                frameBuilder.addPoint(
+                        (current[p] - this.centre.getX()) * this.scale,
+                        (current[p + 1] - this.centre.getY()) * this.scale,
+                        (current[p + 2] - this.centre.getZ()) * this.scale,
+                        (next[p] - current[p]) * this.scale,
+                        (next[p + 1] - current[p + 1]) * this.scale,
+                        (next[p + 2] - current[p + 2]) * this.scale);
+            }
+            sequenceBuilder.addFrame(frameBuilder.build());
+
+            System.arraycopy(next, 0, current, 0, next.length);
+        }
+
+        return sequenceBuilder.build();
+    }
+}
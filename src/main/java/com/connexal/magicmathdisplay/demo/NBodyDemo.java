@@ -0,0 +1,84 @@
+package com.connexal.magicmathdisplay.demo;
+
+import com.connexal.magicmathdisplay.math.NBodySimulation;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.renderer.Frame;
+import com.connexal.magicmathdisplay.renderer.Sequence;
+import com.connexal.magicmathdisplay.renderer.primitives.Primitive;
+
+/**
+ * Shows the points of a shape collapsing under their own gravity, each point being a body of the same mass.
+ */
+public class NBodyDemo extends Demo {
+    private static final int TICKS_PER_FRAME = 2; // Each frame lasts 2 ticks
+    private static final int TOTAL_FRAMES = 10 * (20 / TICKS_PER_FRAME);
+    private static final double SOFTENING = 0.5;
+
+    private final Primitive shape;
+    private final double totalMass;
+    private final double spin;
+    private final double dt;
+    private final int stepsPerFrame;
+
+    /**
+     * Creates an N-body demo.
+     * @param shape the shape whose points are the starting positions of the bodies
+     * @param totalMass the total mass of the bodies, multiplied by the gravitational constant
+     * @param spin the angular velocity the bodies start with around the vertical axis through the centre of the shape
+     * @param dt the duration of a simulation step
+     * @param stepsPerFrame the number of simulation steps between two frames
+     */
+    public NBodyDemo(Primitive shape, double totalMass, double spin, double dt, int stepsPerFrame) {
+        this.shape = shape;
+        this.totalMass = totalMass;
+        this.spin = spin;
+        this.dt = dt;
+        this.stepsPerFrame = stepsPerFrame;
+    }
+
+    @Override
+    protected int getTicksPerFrame() {
+        return TICKS_PER_FRAME;
+    }
+
+    @Override
+    protected Sequence generateSequence() {
+        int bodyCount = this.shape.getPointCount();
+        double[] positions = new double[3 * bodyCount];
+        double[] velocities = new double[3 * bodyCount];
+        double[] masses = new double[bodyCount];
+
+        // Start from the shape, spinning around its centre
+        Vector3d centre = this.shape.getCentre();
+        int i = 0;
+        for (Vector3d point : this.shape.getPoints()) {
+            positions[3 * i] = point.getX();
+            positions[(3 * i) + 1] = point.getY();
+            positions[(3 * i) + 2] = point.getZ();
+            velocities[3 * i] = -this.spin * (point.getZ() - centre.getZ());
+            velocities[(3 * i) + 2] = this.spin * (point.getX() - centre.getX());
+            masses[i] = this.totalMass / bodyCount;
+            i++;
+        }
+
+        NBodySimulation simulation = new NBodySimulation(positions, velocities, masses, SOFTENING);
+        double[] current = simulation.getPositions().clone();
+
+        // The velocity of each body is exactly its next displacement
+        Sequence.SequenceBuilder sequenceBuilder = Sequence.builder();
+        for (int frame = 0; frame < TOTAL_FRAMES; frame++) {
+            simulation.advance(this.dt, this.stepsPerFrame);
+            double[] next = simulation.getPositions();
+
+            Frame.FrameBuilder frameBuilder = Frame.builder(bodyCount);
+            for (int p = 0; p < current.length; p += 3) {
+                frameBuilder.addPoint(current[p], current[p + 1], current[p + 2], next[p] - current[p], next[p + 1] - current[p + 1], next[p + 2] - current[p + 2]);
+            }
+            sequenceBuilder.addFrame(frameBuilder.build());
+
+            System.arraycopy(next, 0, current, 0, next.length);
+        }
+
+        return sequenceBuilder.build();
+    }
+}
@@ -1,18 +1,31 @@
 package com.connexal.magicmathdisplay.demo;
 
+import com.connexal.magicmathdisplay.math.FloatTransforms;
+import com.connexal.magicmathdisplay.math.Quaternionf;
 import com.connexal.magicmathdisplay.math.Rotations;
 import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.math.Vector3f;
 import com.connexal.magicmathdisplay.renderer.Frame;
 import com.connexal.magicmathdisplay.renderer.Sequence;
 import com.connexal.magicmathdisplay.renderer.primitives.Rotatable;
 
+import java.util.function.Supplier;
+
 public class SpinningDemo extends Demo {
     private static final int TICKS_PER_FRAME = 2; // Each frame lasts 2 ticks
     private static final int TOTAL_FRAMES = 10 * (20 / TICKS_PER_FRAME);
 
-    private final Rotatable rotatable;
+    private final Supplier<Rotatable> rotatable;
 
     public SpinningDemo(Rotatable rotatable) {
+        this(() -> rotatable);
+    }
+
+    /**
+     * Creates a demo whose object is only built when its sequence is generated, during the warm up rather than at registration.
+     * @param rotatable builds the object to spin
+     */
+    public SpinningDemo(Supplier<Rotatable> rotatable) {
         this.rotatable = rotatable;
     }
 
@@ -29,13 +42,21 @@ public class SpinningDemo extends Demo {
 
         Vector3d axis = new Vector3d(1, 1, 0).normalize();
 
+        // Export the points once, then rotate them in bulk for each frame
+        Rotatable rotatable = this.rotatable.get();
+        int pointCount = rotatable.getPointCount();
+        float[] basePoints = new float[pointCount * 3];
+        rotatable.exportPoints(basePoints, 0, 3);
+        float[] rotatedPoints = new float[basePoints.length];
+        Vector3f centre = Vector3f.fromVector3d(rotatable.getCentre());
+
         Sequence.SequenceBuilder sequenceBuilder = Sequence.builder();
         for (int i = 0; i < TOTAL_FRAMES; i++) {
-            Rotatable tmp = this.rotatable.copy();
             Vector3d currentAxis = Rotations.rotateVector(Vector3d.up(), anglePerFrameAxis * i, axis);
-            tmp.rotate(anglePerFrameObject * i, currentAxis);
+            Quaternionf rotation = Quaternionf.fromAxisAngle(Vector3f.fromVector3d(currentAxis), anglePerFrameObject * i);
+            FloatTransforms.rotate(basePoints, 0, rotatedPoints, 0, pointCount, 3, rotation, centre);
 
-            Frame frame = Frame.builder().addPrimitive(tmp).build();
+            Frame frame = Frame.builder(pointCount).addPoints(rotatedPoints, 0, pointCount, 3).build();
             sequenceBuilder.addFrame(frame);
         }
 
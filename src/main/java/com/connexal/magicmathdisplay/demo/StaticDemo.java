@@ -3,13 +3,24 @@ package com.connexal.magicmathdisplay.demo;
 import com.connexal.magicmathdisplay.renderer.Frame;
 import com.connexal.magicmathdisplay.renderer.Sequence;
 import com.connexal.magicmathdisplay.renderer.primitives.Primitive;
+import com.connexal.magicmathdisplay.renderer.primitives.Wireframe;
+
+import java.util.function.Supplier;
 
 public class StaticDemo extends Demo {
     private static final int TICKS_PER_FRAME = 20; // Each frame lasts 20 ticks
 
-    private final Primitive primitive;
+    private final Supplier<? extends Primitive> primitive;
 
     public StaticDemo(Primitive primitive) {
+        this(() -> primitive);
+    }
+
+    /**
+     * Creates a demo whose primitive is only built when its sequence is generated, during the warm up rather than at registration.
+     * @param primitive builds the primitive to display
+     */
+    public StaticDemo(Supplier<? extends Primitive> primitive) {
         this.primitive = primitive;
     }
 
@@ -20,6 +31,13 @@ public class StaticDemo extends Demo {
 
     @Override
     protected Sequence generateSequence() {
-        return Sequence.builder().addFrame(Frame.builder().addPrimitive(this.primitive).build()).build();
+        Primitive primitive = this.primitive.get();
+        Frame.FrameBuilder frameBuilder = Frame.builder();
+        if (primitive instanceof Wireframe wireframe) {
+            frameBuilder.addEdges(wireframe); // Draw each edge as a single trail
+        } else {
+            frameBuilder.addPrimitive(primitive);
+        }
+        return Sequence.builder().addFrame(frameBuilder.build()).build();
     }
 }
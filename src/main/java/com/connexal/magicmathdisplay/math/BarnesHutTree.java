@@ -0,0 +1,258 @@
+package com.connexal.magicmathdisplay.math;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Octree approximating the gravity of many bodies with the Barnes-Hut method, in O(n log n) instead of O(n²).
+ * <p>
+ * Nodes are stored in parallel arrays indexed by node, which are kept and only grown between builds, so rebuilding the tree
+ * every step doesn't allocate once it has reached its working size. Bodies are read from packed x, y, z arrays.
+ * The tree can be traversed by several threads at once, but must not be rebuilt while it is.
+ */
+public class BarnesHutTree {
+    /**
+     * The depth at which bodies stop being separated, so that bodies at the same position don't split forever.
+     */
+    private static final int MAX_DEPTH = 32;
+    /**
+     * The number of bodies whose acceleration is computed by a single task.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    private static final int EMPTY = -1;
+    private static final int INTERNAL = -2;
+    private static final int AGGREGATE = -3; // Leaf holding several bodies too close to be separated
+
+    private int nodeCount = 0;
+    /**
+     * For each node, the index of the first of its eight children, or -1 for a leaf.
+     */
+    private int[] firstChild = new int[0];
+    /**
+     * For each node, the index of its single body, or one of EMPTY, INTERNAL or AGGREGATE.
+     */
+    private int[] body = new int[0];
+    private double[] mass = new double[0];
+    // Mass weighted sums of the positions while building, then centres of mass
+    private double[] centreOfMass = new double[0];
+    // Centre and half size of the cube of each node
+    private double[] cube = new double[0];
+
+    /**
+     * Rebuilds the tree around bodies.
+     * @param positions the packed positions of the bodies
+     * @param masses the mass of each body
+     */
+    public void build(double[] positions, double[] masses) {
+        int bodyCount = masses.length;
+        this.nodeCount = 0;
+        this.ensureCapacity(Math.max(1, 2 * bodyCount));
+
+        // The root is the smallest cube containing every body
+        double[] bounds = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < positions.length; i += 3) {
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[axis] = Math.min(bounds[axis], positions[i + axis]);
+                bounds[axis + 3] = Math.max(bounds[axis + 3], positions[i + axis]);
+            }
+        }
+        double halfSize = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            halfSize = Math.max(halfSize, (bounds[axis + 3] - bounds[axis]) / 2);
+        }
+        this.addNode((bounds[0] + bounds[3]) / 2, (bounds[1] + bounds[4]) / 2, (bounds[2] + bounds[5]) / 2, Math.max(halfSize, 1e-9) * 1.0001);
+
+        for (int i = 0; i < bodyCount; i++) {
+            this.insert(i, positions, masses);
+        }
+
+        for (int node = 0; node < this.nodeCount; node++) {
+            if (this.mass[node] > 0) {
+                for (int axis = 0; axis < 3; axis++) {
+                    this.centreOfMass[(3 * node) + axis] /= this.mass[node];
+                }
+            }
+        }
+    }
+
+    private void insert(int index, double[] positions, double[] masses) {
+        double bodyMass = masses[index];
+        double x = positions[3 * index];
+        double y = positions[(3 * index) + 1];
+        double z = positions[(3 * index) + 2];
+
+        int node = 0;
+        for (int depth = 0; ; depth++) {
+            this.accumulate(node, bodyMass, x, y, z);
+            if (this.firstChild[node] < 0) {
+                int occupant = this.body[node];
+                if (occupant == EMPTY) {
+                    this.body[node] = index;
+                    return;
+                }
+                if (occupant == AGGREGATE || depth >= MAX_DEPTH) {
+                    this.body[node] = AGGREGATE;
+                    return;
+                }
+
+                // Split the leaf, moving its body into the child containing it
+                this.split(node);
+                int occupantChild = this.childFor(node, positions[3 * occupant], positions[(3 * occupant) + 1], positions[(3 * occupant) + 2]);
+                this.accumulate(occupantChild, masses[occupant], positions[3 * occupant], positions[(3 * occupant) + 1], positions[(3 * occupant) + 2]);
+                this.body[occupantChild] = occupant;
+            }
+
+            node = this.childFor(node, x, y, z);
+        }
+    }
+
+    private void accumulate(int node, double bodyMass, double x, double y, double z) {
+        this.mass[node] += bodyMass;
+        this.centreOfMass[3 * node] += bodyMass * x;
+        this.centreOfMass[(3 * node) + 1] += bodyMass * y;
+        this.centreOfMass[(3 * node) + 2] += bodyMass * z;
+    }
+
+    private void split(int node) {
+        this.ensureCapacity(this.nodeCount + 8);
+        double quarter = this.cube[(4 * node) + 3] / 2;
+        this.firstChild[node] = this.nodeCount;
+        this.body[node] = INTERNAL;
+        for (int octant = 0; octant < 8; octant++) {
+            this.addNode(
+                    this.cube[4 * node] + ((octant & 1) != 0 ? quarter : -quarter),
+                    this.cube[(4 * node) + 1] + ((octant & 2) != 0 ? quarter : -quarter),
+                    this.cube[(4 * node) + 2] + ((octant & 4) != 0 ? quarter : -quarter),
+                    quarter);
+        }
+    }
+
+    private int childFor(int node, double x, double y, double z) {
+        int octant = (x >= this.cube[4 * node] ? 1 : 0) | (y >= this.cube[(4 * node) + 1] ? 2 : 0) | (z >= this.cube[(4 * node) + 2] ? 4 : 0);
+        return this.firstChild[node] + octant;
+    }
+
+    private void addNode(double x, double y, double z, double halfSize) {
+        this.ensureCapacity(this.nodeCount + 1);
+        int node = this.nodeCount++;
+        this.firstChild[node] = -1;
+        this.body[node] = EMPTY;
+        this.mass[node] = 0;
+        this.centreOfMass[3 * node] = 0;
+        this.centreOfMass[(3 * node) + 1] = 0;
+        this.centreOfMass[(3 * node) + 2] = 0;
+        this.cube[4 * node] = x;
+        this.cube[(4 * node) + 1] = y;
+        this.cube[(4 * node) + 2] = z;
+        this.cube[(4 * node) + 3] = halfSize;
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= this.firstChild.length) {
+            return;
+        }
+
+        int capacity = Math.max(nodes, this.firstChild.length * 2);
+        this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+        this.body = Arrays.copyOf(this.body, capacity);
+        this.mass = Arrays.copyOf(this.mass, capacity);
+        this.centreOfMass = Arrays.copyOf(this.centreOfMass, 3 * capacity);
+        this.cube = Arrays.copyOf(this.cube, 4 * capacity);
+    }
+
+    /**
+     * Computes the gravitational acceleration of every body, in parallel on the common fork-join pool.
+     * @param positions the packed positions of the bodies, which must be those the tree was built with
+     * @param accelerations the array the packed accelerations are written to
+     * @param theta the opening angle, under which the ratio between the size of a node and its distance lets it be approximated by its centre of mass
+     * @param softening the distance under which the attraction stops growing, which keeps close encounters finite
+     */
+    public void computeAccelerations(double[] positions, double[] accelerations, double theta, double softening) {
+        int bodyCount = positions.length / 3;
+        ForkJoinPool.commonPool().invoke(new TraversalTask(positions, accelerations, theta * theta, softening * softening, 0, bodyCount));
+    }
+
+    /**
+     * Computes the acceleration of a single body by walking the tree from the root.
+     */
+    private void accelerate(int index, double[] positions, double[] accelerations, double thetaSquared, double softeningSquared, int[] stack) {
+        double x = positions[3 * index];
+        double y = positions[(3 * index) + 1];
+        double z = positions[(3 * index) + 2];
+        double ax = 0, ay = 0, az = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (this.mass[node] == 0 || this.body[node] == index) {
+                continue;
+            }
+
+            double dx = this.centreOfMass[3 * node] - x;
+            double dy = this.centreOfMass[(3 * node) + 1] - y;
+            double dz = this.centreOfMass[(3 * node) + 2] - z;
+            double distanceSquared = (dx * dx) + (dy * dy) + (dz * dz);
+
+            double size = 2 * this.cube[(4 * node) + 3];
+            if (this.firstChild[node] >= 0 && (size * size) >= thetaSquared * distanceSquared) {
+                // Too close to be approximated, open the node
+                int first = this.firstChild[node];
+                for (int child = 0; child < 8; child++) {
+                    stack[top++] = first + child;
+                }
+                continue;
+            }
+
+            distanceSquared += softeningSquared;
+            double factor = this.mass[node] / (distanceSquared * Math.sqrt(distanceSquared));
+            ax += dx * factor;
+            ay += dy * factor;
+            az += dz * factor;
+        }
+
+        accelerations[3 * index] = ax;
+        accelerations[(3 * index) + 1] = ay;
+        accelerations[(3 * index) + 2] = az;
+    }
+
+    /**
+     * Computes the accelerations of a range of bodies, splitting the range until it is a single batch.
+     */
+    @SuppressWarnings("serial")
+    private class TraversalTask extends RecursiveAction {
+        private final double[] positions;
+        private final double[] accelerations;
+        private final double thetaSquared;
+        private final double softeningSquared;
+        private final int start;
+        private final int end;
+
+        TraversalTask(double[] positions, double[] accelerations, double thetaSquared, double softeningSquared, int start, int end) {
+            this.positions = positions;
+            this.accelerations = accelerations;
+            this.thetaSquared = thetaSquared;
+            this.softeningSquared = softeningSquared;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start > BATCH_SIZE) {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(
+                        new TraversalTask(this.positions, this.accelerations, this.thetaSquared, this.softeningSquared, this.start, middle),
+                        new TraversalTask(this.positions, this.accelerations, this.thetaSquared, this.softeningSquared, middle, this.end));
+                return;
+            }
+
+            int[] stack = new int[(7 * (MAX_DEPTH + 1)) + 1]; // Each level leaves at most 7 siblings waiting
+            for (int i = this.start; i < this.end; i++) {
+                BarnesHutTree.this.accelerate(i, this.positions, this.accelerations, this.thetaSquared, this.softeningSquared, stack);
+            }
+        }
+    }
+}
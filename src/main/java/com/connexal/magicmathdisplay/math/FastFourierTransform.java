@@ -0,0 +1,101 @@
+package com.connexal.magicmathdisplay.math;
+
+/**
+ * In-place iterative radix-2 fast Fourier transform, in O(n log n).
+ * Complex values are given as separate arrays of real and imaginary parts, whose length must be a power of two.
+ */
+public class FastFourierTransform {
+    /**
+     * Computes the discrete Fourier transform, without normalisation.
+     * @param real the real parts, replaced by those of the transform
+     * @param imaginary the imaginary parts, replaced by those of the transform
+     * @throws IllegalArgumentException if the arrays don't have the same length or it is not a power of two
+     */
+    public static void forward(double[] real, double[] imaginary) {
+        FastFourierTransform.transform(real, imaginary, -1);
+    }
+
+    /**
+     * Computes the inverse discrete Fourier transform, divided by the number of values so that it undoes {@link #forward}.
+     * @param real the real parts, replaced by those of the inverse transform
+     * @param imaginary the imaginary parts, replaced by those of the inverse transform
+     * @throws IllegalArgumentException if the arrays don't have the same length or it is not a power of two
+     */
+    public static void inverse(double[] real, double[] imaginary) {
+        FastFourierTransform.transform(real, imaginary, 1);
+        for (int i = 0; i < real.length; i++) {
+            real[i] /= real.length;
+            imaginary[i] /= real.length;
+        }
+    }
+
+    /**
+     * Gets the smallest power of two greater or equal to a value.
+     * @param value the value, at least 1
+     * @return the power of two
+     */
+    public static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static void transform(double[] real, double[] imaginary, int sign) {
+        int n = real.length;
+        if (imaginary.length != n) {
+            throw new IllegalArgumentException("The real and imaginary parts must have the same length.");
+        }
+        if (Integer.bitCount(n) > 1) {
+            throw new IllegalArgumentException("The length must be a power of two, got " + n + ".");
+        }
+        if (n <= 1) {
+            return;
+        }
+
+        // Reorder the values by bit reversed index
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+
+            if (i < j) {
+                double swap = real[i];
+                real[i] = real[j];
+                real[j] = swap;
+                swap = imaginary[i];
+                imaginary[i] = imaginary[j];
+                imaginary[j] = swap;
+            }
+        }
+
+        // Twiddle factors are read from a single table, which is more accurate than chaining rotations
+        double[] cos = new double[n / 2];
+        double[] sin = new double[n / 2];
+        for (int i = 0; i < n / 2; i++) {
+            double angle = (2 * Math.PI * i) / n;
+            cos[i] = Math.cos(angle);
+            sin[i] = sign * Math.sin(angle);
+        }
+
+        // Butterflies, merging transforms of doubling lengths
+        for (int length = 2; length <= n; length <<= 1) {
+            int half = length >> 1;
+            int tableStep = n / length;
+            for (int start = 0; start < n; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * tableStep];
+                    double wi = sin[k * tableStep];
+                    int even = start + k;
+                    int odd = even + half;
+
+                    double oddReal = (real[odd] * wr) - (imaginary[odd] * wi);
+                    double oddImaginary = (real[odd] * wi) + (imaginary[odd] * wr);
+                    real[odd] = real[even] - oddReal;
+                    imaginary[odd] = imaginary[even] - oddImaginary;
+                    real[even] += oddReal;
+                    imaginary[even] += oddImaginary;
+                }
+            }
+        }
+    }
+}
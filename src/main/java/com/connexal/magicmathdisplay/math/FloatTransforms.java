@@ -0,0 +1,74 @@
+package com.connexal.magicmathdisplay.math;
+
+/**
+ * Transforms many points at once, stored one after the other in a packed float buffer.
+ * Each point starts with its x, y and z coordinates, and the start of two consecutive points are stride values apart.
+ * Arithmetic is done in double precision, so only the stored values are rounded to floats.
+ */
+public class FloatTransforms {
+    /**
+     * Rotates points around a centre.
+     * The source and destination can be the same buffer, in which case the points are rotated in place.
+     * @param src the buffer to read the points from
+     * @param srcOffset the index in the source of the x coordinate of the first point
+     * @param dst the buffer to write the rotated points to
+     * @param dstOffset the index in the destination of the x coordinate of the first point
+     * @param count the number of points
+     * @param stride the number of values between the start of two consecutive points, in both buffers
+     * @param rotation the rotation, which must be a unit quaternion
+     * @param centre the point to rotate around
+     */
+    public static void rotate(float[] src, int srcOffset, float[] dst, int dstOffset, int count, int stride, Quaternionf rotation, Vector3f centre) {
+        float[] m = rotation.toRotationMatrix();
+        double cx = centre.getX(), cy = centre.getY(), cz = centre.getZ();
+
+        for (int i = 0; i < count; i++) {
+            int s = srcOffset + (i * stride);
+            int d = dstOffset + (i * stride);
+            double x = src[s] - cx;
+            double y = src[s + 1] - cy;
+            double z = src[s + 2] - cz;
+
+            dst[d] = (float) (cx + (m[0] * x) + (m[1] * y) + (m[2] * z));
+            dst[d + 1] = (float) (cy + (m[3] * x) + (m[4] * y) + (m[5] * z));
+            dst[d + 2] = (float) (cz + (m[6] * x) + (m[7] * y) + (m[8] * z));
+        }
+    }
+
+    /**
+     * Moves points in place.
+     * @param data the buffer holding the points
+     * @param offset the index of the x coordinate of the first point
+     * @param count the number of points
+     * @param stride the number of values between the start of two consecutive points
+     * @param offsetVector the vector to move the points by
+     */
+    public static void translate(float[] data, int offset, int count, int stride, Vector3f offsetVector) {
+        float dx = offsetVector.getX(), dy = offsetVector.getY(), dz = offsetVector.getZ();
+        int end = offset + (count * stride);
+        for (int i = offset; i < end; i += stride) {
+            data[i] += dx;
+            data[i + 1] += dy;
+            data[i + 2] += dz;
+        }
+    }
+
+    /**
+     * Scales points in place, away from or towards a centre.
+     * @param data the buffer holding the points
+     * @param offset the index of the x coordinate of the first point
+     * @param count the number of points
+     * @param stride the number of values between the start of two consecutive points
+     * @param factor the scaling factor
+     * @param centre the point that stays in place
+     */
+    public static void scale(float[] data, int offset, int count, int stride, double factor, Vector3f centre) {
+        double cx = centre.getX(), cy = centre.getY(), cz = centre.getZ();
+        int end = offset + (count * stride);
+        for (int i = offset; i < end; i += stride) {
+            data[i] = (float) (cx + ((data[i] - cx) * factor));
+            data[i + 1] = (float) (cy + ((data[i + 1] - cy) * factor));
+            data[i + 2] = (float) (cz + ((data[i + 2] - cz) * factor));
+        }
+    }
+}
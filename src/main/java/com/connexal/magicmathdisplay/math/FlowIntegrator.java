@@ -0,0 +1,128 @@
+package com.connexal.magicmathdisplay.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves tracers along a vector field with the classic fourth order Runge-Kutta method.
+ * <p>
+ * Tracers are packed as x, y then z in a single array and advanced in place. The stages are kept in arrays allocated once
+ * for all the tracers, so a step doesn't allocate anything per tracer. Large numbers of tracers are split into batches
+ * advanced in parallel on the common fork-join pool. An integrator must not be used by several threads at once.
+ */
+public class FlowIntegrator {
+    /**
+     * The number of tracers advanced by a single task.
+     */
+    private static final int BATCH_SIZE = 512;
+
+    private final VectorField field;
+    private final int tracerCount;
+    // Runge-Kutta stages and the intermediate positions they are evaluated at, packed like the tracers
+    private final double[] k1;
+    private final double[] k2;
+    private final double[] k3;
+    private final double[] k4;
+    private final double[] stage;
+
+    /**
+     * Creates an integrator for a fixed number of tracers.
+     * @param field the field the tracers follow
+     * @param tracerCount the number of tracers
+     */
+    public FlowIntegrator(VectorField field, int tracerCount) {
+        this.field = field;
+        this.tracerCount = tracerCount;
+        this.k1 = new double[3 * tracerCount];
+        this.k2 = new double[3 * tracerCount];
+        this.k3 = new double[3 * tracerCount];
+        this.k4 = new double[3 * tracerCount];
+        this.stage = new double[3 * tracerCount];
+    }
+
+    /**
+     * Advances the tracers by several steps.
+     * @param positions the packed positions of the tracers, updated in place
+     * @param dt the duration of a step
+     * @param steps the number of steps
+     * @throws IllegalArgumentException if the positions don't hold exactly the number of tracers of the integrator
+     */
+    public void advance(double[] positions, double dt, int steps) {
+        if (positions.length != 3 * this.tracerCount) {
+            throw new IllegalArgumentException("Expected " + this.tracerCount + " tracers, got " + (positions.length / 3) + ".");
+        }
+
+        for (int i = 0; i < steps; i++) {
+            if (this.tracerCount <= BATCH_SIZE) {
+                this.step(positions, dt, 0, this.tracerCount); // Not worth the tasks
+            } else {
+                ForkJoinPool.commonPool().invoke(new BatchTask(positions, dt, 0, this.tracerCount));
+            }
+        }
+    }
+
+    /**
+     * Advances a range of tracers by a single step.
+     */
+    private void step(double[] positions, double dt, int start, int end) {
+        int from = 3 * start;
+        int to = 3 * end;
+        double halfDt = dt / 2;
+
+        this.evaluate(positions, this.k1, from, to);
+        this.offset(positions, this.k1, halfDt, from, to);
+        this.evaluate(this.stage, this.k2, from, to);
+        this.offset(positions, this.k2, halfDt, from, to);
+        this.evaluate(this.stage, this.k3, from, to);
+        this.offset(positions, this.k3, dt, from, to);
+        this.evaluate(this.stage, this.k4, from, to);
+
+        double sixthDt = dt / 6;
+        for (int i = from; i < to; i++) {
+            positions[i] += sixthDt * (this.k1[i] + (2 * this.k2[i]) + (2 * this.k3[i]) + this.k4[i]);
+        }
+    }
+
+    private void evaluate(double[] points, double[] out, int from, int to) {
+        for (int i = from; i < to; i += 3) {
+            this.field.evaluate(points[i], points[i + 1], points[i + 2], out, i);
+        }
+    }
+
+    /**
+     * Computes the intermediate positions of a stage, the positions moved along a derivative.
+     */
+    private void offset(double[] positions, double[] derivative, double dt, int from, int to) {
+        for (int i = from; i < to; i++) {
+            this.stage[i] = positions[i] + (dt * derivative[i]);
+        }
+    }
+
+    /**
+     * Advances a range of tracers, splitting the range until it is a single batch.
+     */
+    @SuppressWarnings("serial")
+    private class BatchTask extends RecursiveAction {
+        private final double[] positions;
+        private final double dt;
+        private final int start;
+        private final int end;
+
+        BatchTask(double[] positions, double dt, int start, int end) {
+            this.positions = positions;
+            this.dt = dt;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start > BATCH_SIZE) {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new BatchTask(this.positions, this.dt, this.start, middle), new BatchTask(this.positions, this.dt, middle, this.end));
+                return;
+            }
+            FlowIntegrator.this.step(this.positions, this.dt, this.start, this.end);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.connexal.magicmathdisplay.math;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Generates the points of common shapes, already moved and rotated into place.
+ * Each shape is written into a packed buffer, which frames take as it is with {@code Frame.FrameBuilder.addPoints}, or returned as
+ * vectors for the primitives built from it.
+ * <p>
+ * Angles are advanced with the angle-addition formulas rather than trigonometric calls, each point being the previous one
+ * rotated by a fixed step. The rotation is re-anchored on exact values every {@link #RESEED_INTERVAL} points, which keeps
+ * it normalised and stops rounding errors from building up. The unit points of small shapes are memoised as packed x, y and z
+ * values, so building the same shape again only has to place them.
+ */
+public class GeometryKernels {
+    /**
+     * The number of points advanced with the angle-addition formulas between two exact evaluations of the angle.
+     */
+    public static final int RESEED_INTERVAL = 256;
+    /**
+     * The largest number of points of a memoised shape. Larger shapes are cheap enough to generate every time.
+     */
+    private static final int CACHED_POINTS = 4096;
+    /**
+     * The largest number of memoised shapes of each kind, the cache being emptied once it is full.
+     */
+    private static final int CACHED_SHAPES = 64;
+
+    private static final double GOLDEN_ANGLE = Math.PI * (Math.sqrt(5.) - 1.);
+
+    /**
+     * The points of a unit circle, keyed by point count.
+     */
+    private static final Map<Integer, double[]> UNIT_CIRCLES = new ConcurrentHashMap<>();
+    /**
+     * The points of a unit Fibonacci sphere, keyed by point count.
+     */
+    private static final Map<Integer, double[]> UNIT_SPHERES = new ConcurrentHashMap<>();
+
+    /**
+     * Finds where the axes end up when a shape drawn in the XY plane, facing south, is rotated to face a normal.
+     * This is the shortest rotation between both normals, the one {@code setNormal} applies to primitives, and a half turn
+     * around the x axis when the normal faces north.
+     * @param normal the normal to face
+     * @return the x axis, the y axis and the normalised normal, one after the other
+     * @throws IllegalArgumentException if the normal is zero
+     */
+    public static double[] planeBasis(Vector3d normal) {
+        double length = normal.magnitude();
+        if (length == 0) {
+            throw new IllegalArgumentException("Normals cannot be zero");
+        }
+        double nx = normal.getX() / length, ny = normal.getY() / length, nz = normal.getZ() / length;
+
+        // Rodrigues' formula around south x normal, whose length is the sine of the angle and nz its cosine
+        double onePlusCos = 1 + nz;
+        if (onePlusCos == 0) {
+            return new double[] {1, 0, 0, 0, -1, 0, nx, ny, nz};
+        }
+        double k = 1 / onePlusCos;
+        return new double[] {
+                nz + (ny * ny * k), -nx * ny * k, -nx,
+                -nx * ny * k, nz + (nx * nx * k), -ny,
+                nx, ny, nz
+        };
+    }
+
+    /**
+     * Generates a circle, starting on the x axis of its plane and going anticlockwise around its normal.
+     * @param centre the centre of the circle
+     * @param radius the radius of the circle
+     * @param normal the normal vector of the circle's plane
+     * @param pointCount the number of points, evenly spaced around the circle
+     * @param buffer the buffer to write the points to, ready for {@code Frame.FrameBuilder.addPoints}
+     * @param offset the index in the buffer of the x coordinate of the first point
+     * @param stride the number of values between the start of two consecutive points, at least 3
+     */
+    public static void circle(Vector3d centre, double radius, Vector3d normal, int pointCount, float[] buffer, int offset, int stride) {
+        GeometryKernels.circle(centre, radius, normal, pointCount, GeometryKernels.packed(buffer, offset, stride));
+    }
+
+    /**
+     * Generates a circle as vectors, for primitives that keep their points as vectors.
+     * @see #circle(Vector3d, double, Vector3d, int, float[], int, int)
+     * @return the points of the circle
+     */
+    public static Vector3d[] circle(Vector3d centre, double radius, Vector3d normal, int pointCount) {
+        Vector3d[] points = new Vector3d[pointCount];
+        GeometryKernels.circle(centre, radius, normal, pointCount, GeometryKernels.vectors(points));
+        return points;
+    }
+
+    private static void circle(Vector3d centre, double radius, Vector3d normal, int pointCount, PointSink sink) {
+        double[] basis = GeometryKernels.planeBasis(normal);
+        double[] unit = GeometryKernels.unitShape(UNIT_CIRCLES, GeometryKernels::unitCircle, pointCount);
+        double ux = radius * basis[0], uy = radius * basis[1], uz = radius * basis[2];
+        double vx = radius * basis[3], vy = radius * basis[4], vz = radius * basis[5];
+        double cx = centre.getX(), cy = centre.getY(), cz = centre.getZ();
+
+        // Each unit point holds the cosine and sine of its angle, place it on the circle
+        for (int i = 0; i < pointCount; i++) {
+            double cos = unit[3 * i];
+            double sin = unit[(3 * i) + 1];
+            sink.accept(i, cx + (cos * ux) + (sin * vx), cy + (cos * uy) + (sin * vy), cz + (cos * uz) + (sin * vz));
+        }
+    }
+
+    /**
+     * Generates the outline of a rectangle, starting from its bottom left corner and going anticlockwise around its normal.
+     * @param centre the centre of the rectangle
+     * @param width the width of the rectangle, along the x axis of its plane
+     * @param height the height of the rectangle, along the y axis of its plane
+     * @param normal the normal vector of the rectangle's plane
+     * @param pointCount the number of points, evenly spaced along the perimeter
+     * @param buffer the buffer to write the points to, ready for {@code Frame.FrameBuilder.addPoints}
+     * @param offset the index in the buffer of the x coordinate of the first point
+     * @param stride the number of values between the start of two consecutive points, at least 3
+     */
+    public static void rectangle(Vector3d centre, double width, double height, Vector3d normal, int pointCount, float[] buffer, int offset, int stride) {
+        GeometryKernels.rectangle(centre, width, height, normal, pointCount, GeometryKernels.packed(buffer, offset, stride));
+    }
+
+    /**
+     * Generates the outline of a rectangle as vectors, for primitives that keep their points as vectors.
+     * @see #rectangle(Vector3d, double, double, Vector3d, int, float[], int, int)
+     * @return the points of the rectangle
+     */
+    public static Vector3d[] rectangle(Vector3d centre, double width, double height, Vector3d normal, int pointCount) {
+        Vector3d[] points = new Vector3d[pointCount];
+        GeometryKernels.rectangle(centre, width, height, normal, pointCount, GeometryKernels.vectors(points));
+        return points;
+    }
+
+    private static void rectangle(Vector3d centre, double width, double height, Vector3d normal, int pointCount, PointSink sink) {
+        double[] basis = GeometryKernels.planeBasis(normal);
+        double cx = centre.getX(), cy = centre.getY(), cz = centre.getZ();
+        double perimeter = 2 * (width + height);
+
+        for (int i = 0; i < pointCount; i++) {
+            double distanceAlongPerimeter = ((double) i / pointCount) * perimeter;
+            double x, y;
+            if (distanceAlongPerimeter < width) {
+                x = -width / 2.0 + distanceAlongPerimeter;
+                y = -height / 2.0;
+            } else if (distanceAlongPerimeter < width + height) {
+                x = width / 2.0;
+                y = -height / 2.0 + (distanceAlongPerimeter - width);
+            } else if (distanceAlongPerimeter < 2 * width + height) {
+                x = width / 2.0 - (distanceAlongPerimeter - (width + height));
+                y = height / 2.0;
+            } else {
+                x = -width / 2.0;
+                y = height / 2.0 - (distanceAlongPerimeter - (2 * width + height));
+            }
+
+            sink.accept(i, cx + (x * basis[0]) + (y * basis[3]), cy + (x * basis[1]) + (y * basis[4]), cz + (x * basis[2]) + (y * basis[5]));
+        }
+    }
+
+    /**
+     * Generates a sphere with the Fibonacci sphere algorithm, going from its top to its bottom.
+     * @param centre the centre of the sphere
+     * @param radius the radius of the sphere
+     * @param pointCount the number of points, at least 2
+     * @param buffer the buffer to write the points to, ready for {@code Frame.FrameBuilder.addPoints}
+     * @param offset the index in the buffer of the x coordinate of the first point
+     * @param stride the number of values between the start of two consecutive points, at least 3
+     */
+    public static void fibonacciSphere(Vector3d centre, double radius, int pointCount, float[] buffer, int offset, int stride) {
+        GeometryKernels.fibonacciSphere(centre, radius, pointCount, GeometryKernels.packed(buffer, offset, stride));
+    }
+
+    /**
+     * Generates a sphere as vectors, for primitives that keep their points as vectors.
+     * @see #fibonacciSphere(Vector3d, double, int, float[], int, int)
+     * @return the points of the sphere
+     */
+    public static Vector3d[] fibonacciSphere(Vector3d centre, double radius, int pointCount) {
+        Vector3d[] points = new Vector3d[pointCount];
+        GeometryKernels.fibonacciSphere(centre, radius, pointCount, GeometryKernels.vectors(points));
+        return points;
+    }
+
+    private static void fibonacciSphere(Vector3d centre, double radius, int pointCount, PointSink sink) {
+        double[] unit = GeometryKernels.unitShape(UNIT_SPHERES, GeometryKernels::unitSphere, pointCount);
+        double cx = centre.getX(), cy = centre.getY(), cz = centre.getZ();
+
+        for (int i = 0; i < pointCount; i++) {
+            sink.accept(i, cx + (unit[3 * i] * radius), cy + (unit[(3 * i) + 1] * radius), cz + (unit[(3 * i) + 2] * radius));
+        }
+    }
+
+    /**
+     * Generates a star, with branches of evenly spaced points going from its centre to the points of a Fibonacci sphere.
+     * The points of each branch are written one after the other, from the centre outwards, and none is on the centre itself.
+     * @param centre the centre of the star
+     * @param radius the length of the branches
+     * @param branchCount the number of branches, at least 2
+     * @param pointsPerBranch the number of points of each branch
+     * @param buffer the buffer to write the points to, ready for {@code Frame.FrameBuilder.addPoints}
+     * @param offset the index in the buffer of the x coordinate of the first point
+     * @param stride the number of values between the start of two consecutive points, at least 3
+     */
+    public static void star(Vector3d centre, double radius, int branchCount, int pointsPerBranch, float[] buffer, int offset, int stride) {
+        GeometryKernels.star(centre, radius, branchCount, pointsPerBranch, GeometryKernels.packed(buffer, offset, stride));
+    }
+
+    /**
+     * Generates a star as vectors, for primitives that keep their points as vectors.
+     * @see #star(Vector3d, double, int, int, float[], int, int)
+     * @return the points of the star
+     */
+    public static Vector3d[] star(Vector3d centre, double radius, int branchCount, int pointsPerBranch) {
+        Vector3d[] points = new Vector3d[branchCount * pointsPerBranch];
+        GeometryKernels.star(centre, radius, branchCount, pointsPerBranch, GeometryKernels.vectors(points));
+        return points;
+    }
+
+    private static void star(Vector3d centre, double radius, int branchCount, int pointsPerBranch, PointSink sink) {
+        double[] unit = GeometryKernels.unitShape(UNIT_SPHERES, GeometryKernels::unitSphere, branchCount);
+        double cx = centre.getX(), cy = centre.getY(), cz = centre.getZ();
+        double spacing = radius / pointsPerBranch;
+
+        int point = 0;
+        for (int i = 0; i < 3 * branchCount; i += 3) {
+            double dx = unit[i] * spacing, dy = unit[i + 1] * spacing, dz = unit[i + 2] * spacing;
+            for (int j = 1; j <= pointsPerBranch; j++) {
+                sink.accept(point++, cx + (dx * j), cy + (dy * j), cz + (dz * j));
+            }
+        }
+    }
+
+    /**
+     * Writes the placed points into a packed buffer, in single precision like frames.
+     */
+    private static PointSink packed(float[] buffer, int offset, int stride) {
+        return (index, x, y, z) -> {
+            int position = offset + (index * stride);
+            buffer[position] = (float) x;
+            buffer[position + 1] = (float) y;
+            buffer[position + 2] = (float) z;
+        };
+    }
+
+    /**
+     * Writes the placed points into an array of vectors.
+     */
+    private static PointSink vectors(Vector3d[] points) {
+        return (index, x, y, z) -> points[index] = new Vector3d(x, y, z);
+    }
+
+    /**
+     * Gets the unit points of a shape, as x, y and z one after the other. Small shapes are memoised, large ones generated every time.
+     */
+    private static double[] unitShape(Map<Integer, double[]> cache, UnitShape shape, int pointCount) {
+        Function<Integer, double[]> generator = count -> {
+            double[] unit = new double[3 * count];
+            shape.generate(count, unit);
+            return unit;
+        };
+        if (pointCount > CACHED_POINTS) {
+            return generator.apply(pointCount);
+        }
+        if (cache.size() >= CACHED_SHAPES && !cache.containsKey(pointCount)) {
+            cache.clear(); // Shapes are cheap to generate again, don't let the cache grow without bounds
+        }
+        return cache.computeIfAbsent(pointCount, generator);
+    }
+
+    /**
+     * Writes the points of a circle of radius 1 in the XY plane, starting on the x axis.
+     */
+    private static void unitCircle(int pointCount, double[] buffer) {
+        GeometryKernels.rotations((2 * Math.PI) / pointCount, pointCount, buffer);
+    }
+
+    /**
+     * Writes the points of a Fibonacci sphere of radius 1, from its top to its bottom.
+     */
+    private static void unitSphere(int pointCount, double[] buffer) {
+        // Start from the cosine and sine of the golden angle increments, then lift them to the height of each point
+        GeometryKernels.rotations(GOLDEN_ANGLE, pointCount, buffer);
+        double yStep = 2 / (double) (pointCount - 1);
+        for (int i = 0; i < pointCount; i++) {
+            double y = 1 - (i * yStep); // y goes from 1 to -1
+            double radiusAtY = Math.sqrt(1 - y * y);
+            double sin = buffer[(3 * i) + 1];
+            buffer[3 * i] *= radiusAtY;
+            buffer[(3 * i) + 1] = y;
+            buffer[(3 * i) + 2] = sin * radiusAtY;
+        }
+    }
+
+    /**
+     * Writes the cosine then the sine of each multiple of an angle, from 0, using the angle-addition formulas.
+     * The third value of each point is left as it is.
+     */
+    private static void rotations(double step, int count, double[] buffer) {
+        double stepCos = Math.cos(step);
+        double stepSin = Math.sin(step);
+        double cos = 1;
+        double sin = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (i % RESEED_INTERVAL == 0) {
+                cos = Math.cos(step * i);
+                sin = Math.sin(step * i);
+            }
+            buffer[3 * i] = cos;
+            buffer[(3 * i) + 1] = sin;
+
+            double next = (cos * stepCos) - (sin * stepSin);
+            sin = (sin * stepCos) + (cos * stepSin);
+            cos = next;
+        }
+    }
+
+    /**
+     * Writes the points of a shape of radius 1 centred on the origin into a new table, as x, y and z one after the other.
+     */
+    @FunctionalInterface
+    private interface UnitShape {
+        void generate(int pointCount, double[] buffer);
+    }
+
+    /**
+     * Receives each point of a shape once it is in place.
+     */
+    @FunctionalInterface
+    private interface PointSink {
+        void accept(int index, double x, double y, double z);
+    }
+}
@@ -0,0 +1,390 @@
+package com.connexal.magicmathdisplay.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * k-d tree over a set of points, answering nearest neighbour, radius and ray queries in logarithmic time.
+ * <p>
+ * The tree is implicit: points are reordered so that every node is a range of them, split at its median along the axis where the
+ * node is the widest, and small ranges are leaves that are scanned. Nodes are numbered like a binary heap and only store their
+ * bounding box. Arrays are kept and only grown between builds, so rebuilding the tree for every frame of a sequence doesn't allocate
+ * once it has reached its working size. Points are read from packed buffers, such as {@link com.connexal.magicmathdisplay.renderer.Frame} data.
+ * <p>
+ * The tree can be queried by several threads at once, but must not be rebuilt while it is.
+ */
+public class KdTree {
+    /**
+     * Ranges with at most this many points are not split.
+     */
+    private static final int LEAF_SIZE = 8;
+    /**
+     * Ranges with more points than this are split by their own task.
+     */
+    private static final int PARALLEL_SIZE = 1 << 14;
+
+    private int pointCount = 0;
+    /**
+     * For each position in the tree, the index of the point in the buffer it was built from.
+     */
+    private int[] order = new int[0];
+    /**
+     * The coordinates of the points in tree order, x, y then z.
+     */
+    private float[] coordinates = new float[0];
+    /**
+     * For each node, the lowest then the highest corner of the box around its points.
+     */
+    private float[] bounds = new float[0];
+
+    /**
+     * Rebuilds the tree around points.
+     * @param points the buffer holding the points, each starting with its x, y and z coordinates
+     * @param offset the index in the buffer of the x coordinate of the first point
+     * @param count the number of points
+     * @param stride the number of values between the start of two consecutive points, at least 3
+     */
+    public void build(float[] points, int offset, int count, int stride) {
+        this.pointCount = count;
+        if (this.order.length < count) {
+            this.order = new int[count];
+            this.coordinates = new float[3 * count];
+        }
+        int leaves = 1;
+        for (int range = count; range > LEAF_SIZE; range = (range + 1) / 2) {
+            leaves *= 2;
+        }
+        int nodes = 2 * leaves; // Heap numbering starts at 1
+        if (this.bounds.length < 6 * nodes) {
+            this.bounds = new float[6 * nodes];
+        }
+
+        for (int i = 0; i < count; i++) {
+            this.order[i] = i;
+            System.arraycopy(points, offset + (i * stride), this.coordinates, 3 * i, 3);
+        }
+        if (count > 0) {
+            ForkJoinPool.commonPool().invoke(new BuildTask(1, 0, count));
+        }
+    }
+
+    /**
+     * Gets the number of points in the tree.
+     * @return the number of points
+     */
+    public int size() {
+        return this.pointCount;
+    }
+
+    /**
+     * Sorts a range of points into a node and its children.
+     */
+    private void buildNode(int node, int start, int end, BuildTask task) {
+        // The box around the points of the node
+        int box = 6 * node;
+        for (int axis = 0; axis < 3; axis++) {
+            this.bounds[box + axis] = Float.POSITIVE_INFINITY;
+            this.bounds[box + axis + 3] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = start; i < end; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                float value = this.coordinates[(3 * i) + axis];
+                this.bounds[box + axis] = Math.min(this.bounds[box + axis], value);
+                this.bounds[box + axis + 3] = Math.max(this.bounds[box + axis + 3], value);
+            }
+        }
+        if (end - start <= LEAF_SIZE) {
+            return;
+        }
+
+        int axis = 0;
+        for (int a = 1; a < 3; a++) {
+            if (this.bounds[box + a + 3] - this.bounds[box + a] > this.bounds[box + axis + 3] - this.bounds[box + axis]) {
+                axis = a;
+            }
+        }
+        int middle = (start + end) >>> 1;
+        this.select(start, end, middle, axis);
+
+        if (task != null && end - start > PARALLEL_SIZE) {
+            RecursiveAction.invokeAll(new BuildTask(2 * node, start, middle), new BuildTask((2 * node) + 1, middle, end));
+        } else {
+            this.buildNode(2 * node, start, middle, null);
+            this.buildNode((2 * node) + 1, middle, end, null);
+        }
+    }
+
+    /**
+     * Reorders a range of points so that the point at a position is where it would be if the range was sorted along an axis,
+     * with no point after it being lower and no point before it being higher.
+     */
+    private void select(int start, int end, int target, int axis) {
+        int low = start;
+        int high = end - 1;
+        while (high > low) {
+            // Median of three as the pivot, which keeps sorted input linear
+            int middle = (low + high) >>> 1;
+            float a = this.coordinate(low, axis), b = this.coordinate(middle, axis), c = this.coordinate(high, axis);
+            float pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (this.coordinate(i, axis) < pivot) i++;
+                while (this.coordinate(j, axis) > pivot) j--;
+                if (i <= j) {
+                    this.swap(i++, j--);
+                }
+            }
+
+            if (target <= j) {
+                high = j;
+            } else if (target >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private float coordinate(int position, int axis) {
+        return this.coordinates[(3 * position) + axis];
+    }
+
+    private void swap(int a, int b) {
+        int index = this.order[a];
+        this.order[a] = this.order[b];
+        this.order[b] = index;
+        for (int axis = 0; axis < 3; axis++) {
+            float value = this.coordinates[(3 * a) + axis];
+            this.coordinates[(3 * a) + axis] = this.coordinates[(3 * b) + axis];
+            this.coordinates[(3 * b) + axis] = value;
+        }
+    }
+
+    /**
+     * Finds the point closest to a position.
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     * @param z the z coordinate of the position
+     * @return the index of the point in the buffer the tree was built from, or -1 if the tree is empty
+     */
+    public int nearest(double x, double y, double z) {
+        return this.nearest(x, y, z, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the point closest to a position, within a maximum distance.
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     * @param z the z coordinate of the position
+     * @param maxDistance the largest distance a point can be at
+     * @return the index of the point in the buffer the tree was built from, or -1 if no point is close enough
+     */
+    public int nearest(double x, double y, double z, double maxDistance) {
+        if (this.pointCount == 0) {
+            return -1;
+        }
+        double[] best = {maxDistance * maxDistance, -1};
+        this.nearest(1, 0, this.pointCount, x, y, z, best);
+        return (int) best[1];
+    }
+
+    /**
+     * Visits a node for a nearest neighbour query.
+     * @param best the squared distance to the closest point found so far, then its position in the tree
+     */
+    private void nearest(int node, int start, int end, double x, double y, double z, double[] best) {
+        if (end - start <= LEAF_SIZE) {
+            for (int i = start; i < end; i++) {
+                double dx = this.coordinates[3 * i] - x;
+                double dy = this.coordinates[(3 * i) + 1] - y;
+                double dz = this.coordinates[(3 * i) + 2] - z;
+                double distance = (dx * dx) + (dy * dy) + (dz * dz);
+                if (distance <= best[0]) {
+                    best[0] = distance;
+                    best[1] = this.order[i];
+                }
+            }
+            return;
+        }
+
+        // Visit the closest child first, so that the other one is more likely to be skipped
+        int middle = (start + end) >>> 1;
+        int left = 2 * node;
+        int right = left + 1;
+        double leftDistance = this.boxDistance(left, x, y, z);
+        double rightDistance = this.boxDistance(right, x, y, z);
+        if (leftDistance <= rightDistance) {
+            if (leftDistance <= best[0]) this.nearest(left, start, middle, x, y, z, best);
+            if (rightDistance <= best[0]) this.nearest(right, middle, end, x, y, z, best);
+        } else {
+            if (rightDistance <= best[0]) this.nearest(right, middle, end, x, y, z, best);
+            if (leftDistance <= best[0]) this.nearest(left, start, middle, x, y, z, best);
+        }
+    }
+
+    /**
+     * Computes the squared distance between a position and the box of a node, 0 if the position is inside it.
+     */
+    private double boxDistance(int node, double x, double y, double z) {
+        int box = 6 * node;
+        double dx = Math.max(0, Math.max(this.bounds[box] - x, x - this.bounds[box + 3]));
+        double dy = Math.max(0, Math.max(this.bounds[box + 1] - y, y - this.bounds[box + 4]));
+        double dz = Math.max(0, Math.max(this.bounds[box + 2] - z, z - this.bounds[box + 5]));
+        return (dx * dx) + (dy * dy) + (dz * dz);
+    }
+
+    /**
+     * Finds every point within a distance of a position, in no particular order.
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     * @param z the z coordinate of the position
+     * @param radius the largest distance a point can be at
+     * @param action called with the index of each point in the buffer the tree was built from
+     */
+    public void forEachWithin(double x, double y, double z, double radius, IntConsumer action) {
+        if (this.pointCount > 0) {
+            this.within(1, 0, this.pointCount, x, y, z, radius * radius, action);
+        }
+    }
+
+    private void within(int node, int start, int end, double x, double y, double z, double radiusSquared, IntConsumer action) {
+        if (this.boxDistance(node, x, y, z) > radiusSquared) {
+            return;
+        }
+        if (end - start <= LEAF_SIZE) {
+            for (int i = start; i < end; i++) {
+                double dx = this.coordinates[3 * i] - x;
+                double dy = this.coordinates[(3 * i) + 1] - y;
+                double dz = this.coordinates[(3 * i) + 2] - z;
+                if ((dx * dx) + (dy * dy) + (dz * dz) <= radiusSquared) {
+                    action.accept(this.order[i]);
+                }
+            }
+            return;
+        }
+
+        int middle = (start + end) >>> 1;
+        this.within(2 * node, start, middle, x, y, z, radiusSquared, action);
+        this.within((2 * node) + 1, middle, end, x, y, z, radiusSquared, action);
+    }
+
+    /**
+     * Finds the first point a ray passes close to, as seen when clicking on points.
+     * @param originX the x coordinate of the start of the ray
+     * @param originY the y coordinate of the start of the ray
+     * @param originZ the z coordinate of the start of the ray
+     * @param directionX the x component of the direction of the ray
+     * @param directionY the y component of the direction of the ray
+     * @param directionZ the z component of the direction of the ray
+     * @param maxDistance the length of the ray
+     * @param tolerance the largest distance between the ray and a point it hits
+     * @return the index in the buffer the tree was built from of the hit point closest to the start of the ray, or -1 if none is hit
+     * @throws IllegalArgumentException if the direction is zero
+     */
+    public int raycast(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, double maxDistance, double tolerance) {
+        double length = Math.sqrt((directionX * directionX) + (directionY * directionY) + (directionZ * directionZ));
+        if (length == 0) {
+            throw new IllegalArgumentException("The direction of a ray can't be zero.");
+        }
+        if (this.pointCount == 0) {
+            return -1;
+        }
+
+        double[] ray = {originX, originY, originZ, directionX / length, directionY / length, directionZ / length, tolerance};
+        double[] best = {maxDistance, -1};
+        this.raycast(1, 0, this.pointCount, ray, best);
+        return (int) best[1];
+    }
+
+    /**
+     * Visits a node for a ray query.
+     * @param ray the origin, unit direction and tolerance of the ray
+     * @param best the distance along the ray of the closest hit so far, then its position in the tree
+     */
+    private void raycast(int node, int start, int end, double[] ray, double[] best) {
+        if (end - start <= LEAF_SIZE) {
+            double toleranceSquared = ray[6] * ray[6];
+            for (int i = start; i < end; i++) {
+                double dx = this.coordinates[3 * i] - ray[0];
+                double dy = this.coordinates[(3 * i) + 1] - ray[1];
+                double dz = this.coordinates[(3 * i) + 2] - ray[2];
+                double along = (dx * ray[3]) + (dy * ray[4]) + (dz * ray[5]);
+                if (along < 0 || along >= best[0]) {
+                    continue;
+                }
+                double across = (dx * dx) + (dy * dy) + (dz * dz) - (along * along);
+                if (across <= toleranceSquared) {
+                    best[0] = along;
+                    best[1] = this.order[i];
+                }
+            }
+            return;
+        }
+
+        // Visit the child the ray enters first, the other one is skipped if the hit is before it
+        int middle = (start + end) >>> 1;
+        int left = 2 * node;
+        int right = left + 1;
+        double leftEntry = this.boxEntry(left, ray);
+        double rightEntry = this.boxEntry(right, ray);
+        if (leftEntry <= rightEntry) {
+            if (leftEntry < best[0]) this.raycast(left, start, middle, ray, best);
+            if (rightEntry < best[0]) this.raycast(right, middle, end, ray, best);
+        } else {
+            if (rightEntry < best[0]) this.raycast(right, middle, end, ray, best);
+            if (leftEntry < best[0]) this.raycast(left, start, middle, ray, best);
+        }
+    }
+
+    /**
+     * Computes the distance along a ray at which it enters the box of a node grown by the tolerance, using slabs.
+     * @return the distance, 0 if the ray starts inside the box, or infinity if the ray misses it
+     */
+    private double boxEntry(int node, double[] ray) {
+        int box = 6 * node;
+        double entry = 0;
+        double exit = Double.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            double low = this.bounds[box + axis] - ray[6];
+            double high = this.bounds[box + axis + 3] + ray[6];
+            double origin = ray[axis];
+            double direction = ray[axis + 3];
+            if (direction == 0) {
+                if (origin < low || origin > high) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                continue;
+            }
+
+            double t1 = (low - origin) / direction;
+            double t2 = (high - origin) / direction;
+            entry = Math.max(entry, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return entry <= exit ? entry : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Builds a node and its children, splitting large ones across threads.
+     */
+    @SuppressWarnings("serial")
+    private class BuildTask extends RecursiveAction {
+        private final int node;
+        private final int start;
+        private final int end;
+
+        BuildTask(int node, int start, int end) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            KdTree.this.buildNode(this.node, this.start, this.end, this);
+        }
+    }
+}
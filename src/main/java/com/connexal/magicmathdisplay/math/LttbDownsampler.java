@@ -0,0 +1,325 @@
+package com.connexal.magicmathdisplay.math;
+
+/**
+ * Downsamples a stream of samples to a fixed number of points with Largest-Triangle-Three-Buckets, in bounded memory.
+ * <p>
+ * Samples are not kept: they are grouped into buckets of consecutive samples, and only the first, lowest, highest and last sample of
+ * each bucket are retained. When the buckets run out, neighbours are merged two by two and new buckets hold twice as many samples, so the memory
+ * and the cost of an update only depend on the number of points, never on the number of samples. The points are then picked among
+ * the retained samples with LTTB, which keeps the peaks and the overall shape of the series, as well as its first and latest sample.
+ * <p>
+ * A window can be given to only show the latest samples, in which case the oldest buckets are dropped instead of merged.
+ * All methods are synchronized, so samples can be added from one thread while the points are read from another.
+ */
+public class LttbDownsampler {
+    private final int budget;
+    private final long window;
+
+    // The buckets, in a ring starting at head, each with its first, lowest, highest and last sample
+    private final double[] firstX;
+    private final double[] firstY;
+    private final double[] lowX;
+    private final double[] lowY;
+    private final double[] highX;
+    private final double[] highY;
+    private final double[] lastX;
+    private final double[] lastY;
+    private final long[] firstSample;
+    private int head = 0;
+    private int size = 0;
+    private long bucketSize;
+    private long sampleCount = 0;
+
+    // The points picked the last time they were asked for, valid until a sample is added
+    private final double[] candidatesX;
+    private final double[] candidatesY;
+    private final double[] pointsX;
+    private final double[] pointsY;
+    private int pointCount = 0;
+    private boolean dirty = false;
+
+    /**
+     * Creates a downsampler for a series that keeps growing.
+     * @param budget the number of points the series is downsampled to, at least 3
+     * @throws IllegalArgumentException if budget is less than 3
+     */
+    public LttbDownsampler(int budget) {
+        this(budget, 0);
+    }
+
+    /**
+     * Creates a downsampler for the latest samples of a series, like a ring buffer.
+     * @param budget the number of points the series is downsampled to, at least 3
+     * @param window the number of latest samples shown, 0 to show all of them
+     * @throws IllegalArgumentException if budget is less than 3 or window is negative
+     */
+    public LttbDownsampler(int budget, long window) {
+        if (budget < 3) {
+            throw new IllegalArgumentException("The budget must be at least 3 points.");
+        }
+        if (window < 0) {
+            throw new IllegalArgumentException("The window can't be negative.");
+        }
+
+        this.budget = budget;
+        this.window = window;
+
+        // Two buckets per point leaves LTTB up to eight candidates per point, plus room for partial buckets at both ends of a window
+        int capacity = (2 * budget) + 2;
+        this.bucketSize = window == 0 ? 1 : Math.max(1, (window + (2L * budget) - 1) / (2L * budget));
+        this.firstX = new double[capacity];
+        this.firstY = new double[capacity];
+        this.lowX = new double[capacity];
+        this.lowY = new double[capacity];
+        this.highX = new double[capacity];
+        this.highY = new double[capacity];
+        this.lastX = new double[capacity];
+        this.lastY = new double[capacity];
+        this.firstSample = new long[capacity];
+        this.candidatesX = new double[4 * capacity];
+        this.candidatesY = new double[4 * capacity];
+        this.pointsX = new double[budget];
+        this.pointsY = new double[budget];
+    }
+
+    /**
+     * Adds a sample, placed after the previous one.
+     * @param y the value of the sample
+     */
+    public synchronized void add(double y) {
+        this.add(this.sampleCount, y);
+    }
+
+    /**
+     * Adds a sample at a given position, which should not be before the previous one.
+     * Samples with a value that is not finite are counted but not shown.
+     * @param x the position of the sample
+     * @param y the value of the sample
+     */
+    public synchronized void add(double x, double y) {
+        long sample = this.sampleCount++;
+        if (this.window > 0) {
+            // Drop the buckets that are entirely out of the window
+            while (this.size > 0 && this.firstSample[this.head] + this.bucketSize <= this.sampleCount - this.window) {
+                this.head = (this.head + 1) % this.lowX.length;
+                this.size--;
+                this.dirty = true;
+            }
+        }
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            return;
+        }
+
+        int last = (this.head + this.size - 1) % this.lowX.length;
+        if (this.size == this.lowX.length && sample >= this.firstSample[last] + this.bucketSize) {
+            // No room for a new bucket
+            if (this.window > 0) {
+                this.head = (this.head + 1) % this.lowX.length;
+                this.size--;
+            } else {
+                this.merge();
+                last = this.size - 1;
+            }
+        }
+
+        if (this.size > 0 && sample < this.firstSample[last] + this.bucketSize) {
+            // Still in the latest bucket
+            if (y < this.lowY[last]) {
+                this.lowX[last] = x;
+                this.lowY[last] = y;
+            }
+            if (y > this.highY[last]) {
+                this.highX[last] = x;
+                this.highY[last] = y;
+            }
+            this.lastX[last] = x;
+            this.lastY[last] = y;
+        } else {
+            int bucket = (this.head + this.size) % this.lowX.length;
+            this.firstX[bucket] = x;
+            this.firstY[bucket] = y;
+            this.lowX[bucket] = x;
+            this.lowY[bucket] = y;
+            this.highX[bucket] = x;
+            this.highY[bucket] = y;
+            this.lastX[bucket] = x;
+            this.lastY[bucket] = y;
+            this.firstSample[bucket] = sample - Math.floorMod(sample, this.bucketSize); // Aligned, so that buckets merge evenly
+            this.size++;
+        }
+        this.dirty = true;
+    }
+
+    /**
+     * Merges the buckets two by two, doubling the number of samples in a bucket.
+     * Only used without a window, where the ring always starts at 0.
+     */
+    private void merge() {
+        this.bucketSize *= 2;
+        int merged = 0;
+        for (int i = 0; i < this.size; i++) {
+            long first = this.firstSample[i] - Math.floorMod(this.firstSample[i], this.bucketSize);
+            if (merged > 0 && this.firstSample[merged - 1] == first) {
+                int target = merged - 1;
+                if (this.lowY[i] < this.lowY[target]) {
+                    this.lowX[target] = this.lowX[i];
+                    this.lowY[target] = this.lowY[i];
+                }
+                if (this.highY[i] > this.highY[target]) {
+                    this.highX[target] = this.highX[i];
+                    this.highY[target] = this.highY[i];
+                }
+                this.lastX[target] = this.lastX[i];
+                this.lastY[target] = this.lastY[i];
+            } else {
+                this.firstX[merged] = this.firstX[i];
+                this.firstY[merged] = this.firstY[i];
+                this.lowX[merged] = this.lowX[i];
+                this.lowY[merged] = this.lowY[i];
+                this.highX[merged] = this.highX[i];
+                this.highY[merged] = this.highY[i];
+                this.lastX[merged] = this.lastX[i];
+                this.lastY[merged] = this.lastY[i];
+                this.firstSample[merged] = first;
+                merged++;
+            }
+        }
+        this.size = merged;
+    }
+
+    /**
+     * Gets the points of the series, picked among the retained samples with LTTB.
+     * They are only picked again if samples were added since the last call.
+     * @param xs the array receiving the position of the points, at least as long as the budget
+     * @param ys the array receiving the value of the points, at least as long as the budget
+     * @return the number of points, up to the budget
+     */
+    public synchronized int downsample(double[] xs, double[] ys) {
+        if (this.dirty) {
+            // The retained samples in order, so that LTTB always keeps the very first and the latest one
+            int count = 0;
+            for (int i = 0; i < this.size; i++) {
+                int bucket = (this.head + i) % this.lowX.length;
+                boolean lowFirst = this.lowX[bucket] <= this.highX[bucket];
+                count = this.addCandidate(count, this.firstX[bucket], this.firstY[bucket]);
+                count = this.addCandidate(count, lowFirst ? this.lowX[bucket] : this.highX[bucket], lowFirst ? this.lowY[bucket] : this.highY[bucket]);
+                count = this.addCandidate(count, lowFirst ? this.highX[bucket] : this.lowX[bucket], lowFirst ? this.highY[bucket] : this.lowY[bucket]);
+                count = this.addCandidate(count, this.lastX[bucket], this.lastY[bucket]);
+            }
+
+            this.pointCount = LttbDownsampler.lttb(this.candidatesX, this.candidatesY, count, this.budget, this.pointsX, this.pointsY);
+            this.dirty = false;
+        }
+
+        System.arraycopy(this.pointsX, 0, xs, 0, this.pointCount);
+        System.arraycopy(this.pointsY, 0, ys, 0, this.pointCount);
+        return this.pointCount;
+    }
+
+    /**
+     * Adds a retained sample to the candidates, unless it is the same sample as the previous candidate.
+     * @param count the number of candidates
+     * @param x the position of the sample
+     * @param y the value of the sample
+     * @return the new number of candidates
+     */
+    private int addCandidate(int count, double x, double y) {
+        if (count > 0 && this.candidatesX[count - 1] == x && this.candidatesY[count - 1] == y) {
+            return count;
+        }
+        this.candidatesX[count] = x;
+        this.candidatesY[count] = y;
+        return count + 1;
+    }
+
+    /**
+     * Downsamples a series with Largest-Triangle-Three-Buckets. The first and last points are always kept, and the others are split
+     * into equal buckets, from each of which the point forming the largest triangle with the previously kept point and the average
+     * of the next bucket is kept.
+     * @param xs the positions of the samples, in increasing order
+     * @param ys the values of the samples
+     * @param count the number of samples
+     * @param budget the maximum number of points kept, at least 3
+     * @param outX the array receiving the positions of the kept points
+     * @param outY the array receiving the values of the kept points
+     * @return the number of kept points, the smallest of count and budget
+     * @throws IllegalArgumentException if budget is less than 3
+     */
+    public static int lttb(double[] xs, double[] ys, int count, int budget, double[] outX, double[] outY) {
+        if (budget < 3) {
+            throw new IllegalArgumentException("The budget must be at least 3 points.");
+        }
+        if (count <= budget) {
+            System.arraycopy(xs, 0, outX, 0, count);
+            System.arraycopy(ys, 0, outY, 0, count);
+            return count;
+        }
+
+        outX[0] = xs[0];
+        outY[0] = ys[0];
+        int previous = 0;
+        double bucketWidth = (double) (count - 2) / (budget - 2);
+        for (int i = 0; i < budget - 2; i++) {
+            // The average of the next bucket, or the last point for the last bucket
+            int nextStart = (int) ((i + 1) * bucketWidth) + 1;
+            int nextEnd = Math.min((int) ((i + 2) * bucketWidth) + 1, count);
+            double averageX = 0, averageY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                averageX += xs[j];
+                averageY += ys[j];
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            int start = (int) (i * bucketWidth) + 1;
+            int end = nextStart;
+            double ax = xs[previous], ay = ys[previous];
+            double largest = -1;
+            int picked = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs(((ax - averageX) * (ys[j] - ay)) - ((ax - xs[j]) * (averageY - ay)));
+                if (area > largest) {
+                    largest = area;
+                    picked = j;
+                }
+            }
+
+            outX[i + 1] = xs[picked];
+            outY[i + 1] = ys[picked];
+            previous = picked;
+        }
+        outX[budget - 1] = xs[count - 1];
+        outY[budget - 1] = ys[count - 1];
+        return budget;
+    }
+
+    /**
+     * Gets the number of points the series is downsampled to.
+     * @return the budget
+     */
+    public int getBudget() {
+        return this.budget;
+    }
+
+    /**
+     * Gets the number of samples added since the downsampler was created, including those that are no longer shown.
+     * @return the number of samples
+     */
+    public synchronized long getSampleCount() {
+        return this.sampleCount;
+    }
+
+    /**
+     * Forgets every sample.
+     */
+    public synchronized void clear() {
+        this.head = 0;
+        this.size = 0;
+        this.sampleCount = 0;
+        this.pointCount = 0;
+        this.dirty = false;
+        if (this.window == 0) {
+            this.bucketSize = 1;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.connexal.magicmathdisplay.math;
+
+/**
+ * Simulates bodies attracting each other, with the forces approximated by a {@link BarnesHutTree}.
+ * Bodies are moved with the leapfrog (kick-drift-kick) scheme, which keeps orbits stable over long simulations.
+ * The gravitational constant is folded into the masses.
+ */
+public class NBodySimulation {
+    /**
+     * Default opening angle, the usual compromise between accuracy and speed.
+     */
+    private static final double DEFAULT_THETA = 0.5;
+
+    private final double[] positions;
+    private final double[] velocities;
+    private final double[] masses;
+    private final double[] accelerations;
+    private final BarnesHutTree tree = new BarnesHutTree();
+    private final double softening;
+    private final double theta;
+
+    /**
+     * Creates a simulation. The arrays are copied.
+     * @param positions the packed starting positions of the bodies
+     * @param velocities the packed starting velocities of the bodies
+     * @param masses the mass of each body
+     * @param softening the distance under which the attraction stops growing
+     * @throws IllegalArgumentException if the arrays don't describe the same number of bodies
+     */
+    public NBodySimulation(double[] positions, double[] velocities, double[] masses, double softening) {
+        this(positions, velocities, masses, softening, DEFAULT_THETA);
+    }
+
+    /**
+     * Creates a simulation. The arrays are copied.
+     * @param positions the packed starting positions of the bodies
+     * @param velocities the packed starting velocities of the bodies
+     * @param masses the mass of each body
+     * @param softening the distance under which the attraction stops growing
+     * @param theta the opening angle of the tree, 0 for exact forces
+     * @throws IllegalArgumentException if the arrays don't describe the same number of bodies
+     */
+    public NBodySimulation(double[] positions, double[] velocities, double[] masses, double softening, double theta) {
+        if (positions.length != 3 * masses.length || velocities.length != positions.length) {
+            throw new IllegalArgumentException("Positions, velocities and masses must describe the same number of bodies.");
+        }
+
+        this.positions = positions.clone();
+        this.velocities = velocities.clone();
+        this.masses = masses.clone();
+        this.accelerations = new double[positions.length];
+        this.softening = softening;
+        this.theta = theta;
+
+        this.updateAccelerations();
+    }
+
+    /**
+     * Advances the simulation by several steps.
+     * @param dt the duration of a step
+     * @param steps the number of steps
+     */
+    public void advance(double dt, int steps) {
+        double halfDt = dt / 2;
+        for (int step = 0; step < steps; step++) {
+            for (int i = 0; i < this.positions.length; i++) {
+                this.velocities[i] += this.accelerations[i] * halfDt;
+                this.positions[i] += this.velocities[i] * dt;
+            }
+            this.updateAccelerations();
+            for (int i = 0; i < this.positions.length; i++) {
+                this.velocities[i] += this.accelerations[i] * halfDt;
+            }
+        }
+    }
+
+    private void updateAccelerations() {
+        this.tree.build(this.positions, this.masses);
+        this.tree.computeAccelerations(this.positions, this.accelerations, this.theta, this.softening);
+    }
+
+    /**
+     * Gets the positions of the bodies.
+     * @return the packed positions, which are updated by the simulation and must not be modified
+     */
+    public double[] getPositions() {
+        return this.positions;
+    }
+
+    public int getBodyCount() {
+        return this.masses.length;
+    }
+}
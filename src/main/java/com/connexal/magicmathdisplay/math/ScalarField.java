@@ -0,0 +1,17 @@
+package com.connexal.magicmathdisplay.math;
+
+/**
+ * A function giving a value to every point of space, such as the distance to a shape.
+ * Implementations must be safe to call from several threads at once.
+ */
+@FunctionalInterface
+public interface ScalarField {
+    /**
+     * Evaluates the field at a point.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @return the value of the field
+     */
+    double evaluate(double x, double y, double z);
+}
@@ -0,0 +1,254 @@
+package com.connexal.magicmathdisplay.math;
+
+/**
+ * Class representing a 3-dimensional vector with single precision components.
+ * Particle positions only need block-scale precision, so this halves the memory of large point sets compared to {@link Vector3d}.
+ * Use {@link Vector3d} when values are accumulated over many operations.
+ */
+public class Vector3f {
+    private float x;
+    private float y;
+    private float z;
+
+    /**
+     * Constructor to initialize a 3D vector with given components.
+     * @param x x component
+     * @param y y component
+     * @param z z component
+     */
+    public Vector3f(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Get the x component of the vector.
+     * @return the x component
+     */
+    public float getX() {
+        return this.x;
+    }
+
+    /**
+     * Get the y component of the vector.
+     * @return the y component
+     */
+    public float getY() {
+        return this.y;
+    }
+
+    /**
+     * Get the z component of the vector.
+     * @return the z component
+     */
+    public float getZ() {
+        return this.z;
+    }
+
+    public void set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public void set(Vector3f v) {
+        this.set(v.x, v.y, v.z);
+    }
+
+    /**
+     * Add the given components to this vector. The operation is performed in place, updating this vector.
+     * @param x the x component to add
+     * @param y the y component to add
+     * @param z the z component to add
+     * @return same instance of the vector
+     */
+    public Vector3f add(float x, float y, float z) {
+        this.x += x;
+        this.y += y;
+        this.z += z;
+        return this;
+    }
+
+    /**
+     * Add the given vector to this vector. The operation is performed in place, updating this vector.
+     * @param v the vector to add
+     * @return same instance of the vector
+     */
+    public Vector3f add(Vector3f v) {
+        return this.add(v.x, v.y, v.z);
+    }
+
+    /**
+     * Add two vectors and return a new vector representing the sum.
+     * @param v1 the first vector
+     * @param v2 the second vector
+     * @return a new vector representing the sum
+     */
+    public static Vector3f add(Vector3f v1, Vector3f v2) {
+        return v1.copy().add(v2);
+    }
+
+    /**
+     * Scale this vector by the given scalar. The operation is performed in place, updating this vector.
+     * @param scalar the scaling factor
+     * @return same instance of the vector
+     */
+    public Vector3f scale(float scalar) {
+        this.x *= scalar;
+        this.y *= scalar;
+        this.z *= scalar;
+        return this;
+    }
+
+    /**
+     * Scale the given vector by the specified scalar. The original vector remains unchanged.
+     * @param v the vector to scale
+     * @param scalar the scaling factor
+     * @return a new scaled vector
+     */
+    public static Vector3f scale(Vector3f v, float scalar) {
+        return v.copy().scale(scalar);
+    }
+
+    /**
+     * Calculate the magnitude of the vector. The sum of squares is computed in double precision.
+     * @return the magnitude
+     */
+    public float magnitude() {
+        return (float) Math.sqrt(((double) x * x) + ((double) y * y) + ((double) z * z));
+    }
+
+    /**
+     * Normalize the vector to have a magnitude of 1. The operation is performed in place, updating this vector.
+     * If the vector is zero, it remains unchanged.
+     * @return same instance of the vector
+     */
+    public Vector3f normalize() {
+        float magnitude = this.magnitude();
+        if (magnitude == 0) {
+            return this;
+        }
+
+        return this.scale(1 / magnitude);
+    }
+
+    /**
+     * Normalize the given vector to have a magnitude of 1. The original vector remains unchanged.
+     * @param v the vector to normalize
+     * @return a new normalized vector
+     */
+    public static Vector3f normalized(Vector3f v) {
+        return v.copy().normalize();
+    }
+
+    /**
+     * Calculate the dot product of two vectors.
+     * @param v1 the first vector
+     * @param v2 the second vector
+     * @return the dot product
+     */
+    public static float dot(Vector3f v1, Vector3f v2) {
+        return v1.x * v2.x + v1.y * v2.y + v1.z * v2.z;
+    }
+
+    /**
+     * Calculate the cross product of two vectors.
+     * @param v1 the first vector
+     * @param v2 the second vector
+     * @return a new vector representing the cross product
+     */
+    public static Vector3f cross(Vector3f v1, Vector3f v2) {
+        float cx = v1.y * v2.z - v1.z * v2.y;
+        float cy = v1.z * v2.x - v1.x * v2.z;
+        float cz = v1.x * v2.y - v1.y * v2.x;
+        return new Vector3f(cx, cy, cz);
+    }
+
+    /**
+     * Calculates the vector between the points at the end of both vector.
+     * The direction of the output vector will be from B to A.
+     * @param a the destination vector
+     * @param b the start vector
+     * @return a vector going from B to A
+     */
+    public static Vector3f difference(Vector3f a, Vector3f b) {
+        return new Vector3f(a.x - b.x, a.y - b.y, a.z - b.z);
+    }
+
+    /**
+     * Linearly interpolates between two vectors based on the parameter t.
+     * @param a the starting vector
+     * @param b the ending vector
+     * @param t the interpolation factor (0.0 to 1.0)
+     * @return a new vector representing the interpolated result
+     */
+    public static Vector3f interpolate(Vector3f a, Vector3f b, float t) {
+        float x = a.x + ((b.x - a.x) * t);
+        float y = a.y + ((b.y - a.y) * t);
+        float z = a.z + ((b.z - a.z) * t);
+        return new Vector3f(x, y, z);
+    }
+
+    /**
+     * Creates a single precision copy of a vector.
+     * @param v the vector to convert
+     * @return a new Vector3f
+     */
+    public static Vector3f fromVector3d(Vector3d v) {
+        return new Vector3f((float) v.getX(), (float) v.getY(), (float) v.getZ());
+    }
+
+    /**
+     * Creates a double precision copy of this vector.
+     * @return a new Vector3d
+     */
+    public Vector3d toVector3d() {
+        return new Vector3d(this.x, this.y, this.z);
+    }
+
+    /**
+     * Creates a copy of this vector.
+     * @return a new Vector3f that is a copy of this vector
+     */
+    public Vector3f copy() {
+        return new Vector3f(this.x, this.y, this.z);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || this.getClass() != obj.getClass()) return false;
+
+        Vector3f that = (Vector3f) obj;
+        return Float.compare(that.x, this.x) == 0 &&
+                Float.compare(that.y, this.y) == 0 &&
+                Float.compare(that.z, this.z) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * ((31 * Float.hashCode(this.x)) + Float.hashCode(this.y))) + Float.hashCode(this.z);
+    }
+
+    @Override
+    public String toString() {
+        return "Vector3f(" + x + ", " + y + ", " + z + ")";
+    }
+
+    /**
+     * Creates a zero vector (0, 0, 0).
+     * @return a new Vector3f
+     */
+    public static Vector3f zero() {
+        return new Vector3f(0, 0, 0);
+    }
+
+    /**
+     * Creates a Minecraft up vector (0, 1, 0).
+     * @return a new Vector3f
+     */
+    public static Vector3f up() {
+        return new Vector3f(0, 1, 0);
+    }
+}
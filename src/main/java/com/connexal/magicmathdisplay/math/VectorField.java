@@ -0,0 +1,18 @@
+package com.connexal.magicmathdisplay.math;
+
+/**
+ * A field giving a vector to every point of space, such as the velocity of a flow or the derivative of a dynamical system.
+ * Implementations must be safe to call from several threads at once, and should not allocate as they are called for every step of every tracer.
+ */
+@FunctionalInterface
+public interface VectorField {
+    /**
+     * Evaluates the field at a point.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @param out the array to write the x, y then z components of the vector to
+     * @param offset the index in the array of the x component
+     */
+    void evaluate(double x, double y, double z, double[] out, int offset);
+}
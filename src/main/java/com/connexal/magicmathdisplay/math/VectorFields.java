@@ -0,0 +1,98 @@
+package com.connexal.magicmathdisplay.math;
+
+import com.connexal.magicmathdisplay.math.expression.Expression;
+
+/**
+ * Utility class for creating common vector fields.
+ * The vertical axis is y, as in the world.
+ */
+public class VectorFields {
+    /**
+     * Creates the Lorenz system, with its usual z axis as the vertical axis.
+     * @param sigma the Prandtl number, 10 for the classic attractor
+     * @param rho the Rayleigh number, 28 for the classic attractor
+     * @param beta the geometric factor, 8/3 for the classic attractor
+     * @return the field
+     */
+    public static VectorField lorenz(double sigma, double rho, double beta) {
+        return (x, y, z, out, offset) -> {
+            out[offset] = sigma * (z - x);
+            out[offset + 1] = (x * z) - (beta * y);
+            out[offset + 2] = (x * (rho - y)) - z;
+        };
+    }
+
+    /**
+     * Creates the phase space of a damped pendulum, with the angle along x and the angular velocity along y.
+     * @param gravityOverLength the ratio between the gravity and the length of the pendulum
+     * @param damping the friction coefficient, 0 for an ideal pendulum
+     * @return the field, which is zero along z
+     */
+    public static VectorField pendulum(double gravityOverLength, double damping) {
+        return (x, y, z, out, offset) -> {
+            out[offset] = y;
+            out[offset + 1] = (-gravityOverLength * Math.sin(x)) - (damping * y);
+            out[offset + 2] = 0;
+        };
+    }
+
+    /**
+     * Creates the gravity field of point masses, softened so that it stays finite near the masses.
+     * @param positions the positions of the masses
+     * @param masses the masses multiplied by the gravitational constant
+     * @param softening the distance under which the attraction stops growing
+     * @return the field
+     * @throws IllegalArgumentException if there are not as many masses as positions
+     */
+    public static VectorField gravity(Vector3d[] positions, double[] masses, double softening) {
+        if (positions.length != masses.length) {
+            throw new IllegalArgumentException("Each mass must have a position.");
+        }
+
+        // Packed copies, so that the field doesn't depend on mutable vectors
+        double[] packed = new double[3 * positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            packed[3 * i] = positions[i].getX();
+            packed[(3 * i) + 1] = positions[i].getY();
+            packed[(3 * i) + 2] = positions[i].getZ();
+        }
+        double[] massesCopy = masses.clone();
+        double softeningSquared = softening * softening;
+
+        return (x, y, z, out, offset) -> {
+            double ax = 0, ay = 0, az = 0;
+            for (int i = 0; i < massesCopy.length; i++) {
+                double dx = packed[3 * i] - x;
+                double dy = packed[(3 * i) + 1] - y;
+                double dz = packed[(3 * i) + 2] - z;
+                double distanceSquared = (dx * dx) + (dy * dy) + (dz * dz) + softeningSquared;
+                double factor = massesCopy[i] / (distanceSquared * Math.sqrt(distanceSquared));
+                ax += dx * factor;
+                ay += dy * factor;
+                az += dz * factor;
+            }
+            out[offset] = ax;
+            out[offset + 1] = ay;
+            out[offset + 2] = az;
+        };
+    }
+
+    /**
+     * Creates a field from expressions of {@code x}, {@code y} and {@code z}.
+     * @param dx the expression of the x component
+     * @param dy the expression of the y component
+     * @param dz the expression of the z component
+     * @return the field
+     * @throws com.connexal.magicmathdisplay.math.expression.ExpressionParseException if an expression is not valid
+     */
+    public static VectorField of(String dx, String dy, String dz) {
+        Expression xExpression = Expression.compile(dx, "x", "y", "z");
+        Expression yExpression = Expression.compile(dy, "x", "y", "z");
+        Expression zExpression = Expression.compile(dz, "x", "y", "z");
+        return (x, y, z, out, offset) -> {
+            out[offset] = xExpression.evaluate(x, y, z);
+            out[offset + 1] = yExpression.evaluate(x, y, z);
+            out[offset + 2] = zExpression.evaluate(x, y, z);
+        };
+    }
+}
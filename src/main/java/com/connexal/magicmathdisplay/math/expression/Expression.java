@@ -0,0 +1,136 @@
+package com.connexal.magicmathdisplay.math.expression;
+
+import java.util.List;
+
+/**
+ * A mathematical expression, parsed once and compiled into a tree of closures that is evaluated without re-reading the source.
+ * Parts of the expression that don't depend on any variable are computed while compiling.
+ * <p>
+ * Expressions support the usual operators ({@code + - * / % ^}, where {@code %} is a floored modulo), implicit multiplication, the constants
+ * {@code pi}, {@code tau} and {@code e}, and common functions such as {@code sin}, {@code sqrt}, {@code atan2} or {@code max}.
+ * Compiled expressions are immutable and can be evaluated from several threads at once.
+ */
+public final class Expression {
+    /**
+     * The values of the variables given to the fixed arity overloads of {@link #evaluate}, one array per thread so that they don't allocate.
+     * Evaluating a node never evaluates another expression, so the array is never in use twice on the same thread.
+     */
+    private static final ThreadLocal<double[]> ARGUMENTS = ThreadLocal.withInitial(() -> new double[3]);
+
+    private final String source;
+    private final List<String> variables;
+    private final Node root;
+
+    private Expression(String source, List<String> variables, Node root) {
+        this.source = source;
+        this.variables = variables;
+        this.root = root;
+    }
+
+    /**
+     * Parses and compiles an expression.
+     * @param source the expression, for example {@code 2cos(t) + sin(3t)}
+     * @param variables the names of the variables the expression can use, in the order their values are given when evaluating
+     * @return the compiled expression
+     * @throws ExpressionParseException if the expression is not valid or uses an unknown variable
+     */
+    public static Expression compile(String source, String... variables) {
+        List<String> variableList = List.of(variables);
+        return new Expression(source, variableList, new ExpressionParser(source, variableList).parse());
+    }
+
+    /**
+     * Evaluates the expression.
+     * @param values the values of the variables, in the order they were given when compiling
+     * @return the value of the expression, which may be NaN or infinite
+     */
+    public double evaluate(double... values) {
+        return this.root.evaluate(values);
+    }
+
+    /**
+     * Evaluates an expression of one variable, without allocating.
+     * @param value the value of the variable
+     * @return the value of the expression, which may be NaN or infinite
+     * @throws IllegalArgumentException if the expression has more variables
+     */
+    public double evaluate(double value) {
+        this.checkArity(1);
+        double[] arguments = ARGUMENTS.get();
+        arguments[0] = value;
+        return this.root.evaluate(arguments);
+    }
+
+    /**
+     * Evaluates an expression of two variables, without allocating.
+     * @param first the value of the first variable
+     * @param second the value of the second variable
+     * @return the value of the expression, which may be NaN or infinite
+     * @throws IllegalArgumentException if the expression has more variables
+     */
+    public double evaluate(double first, double second) {
+        this.checkArity(2);
+        double[] arguments = ARGUMENTS.get();
+        arguments[0] = first;
+        arguments[1] = second;
+        return this.root.evaluate(arguments);
+    }
+
+    /**
+     * Evaluates an expression of three variables, without allocating.
+     * @param first the value of the first variable
+     * @param second the value of the second variable
+     * @param third the value of the third variable
+     * @return the value of the expression, which may be NaN or infinite
+     * @throws IllegalArgumentException if the expression has more variables
+     */
+    public double evaluate(double first, double second, double third) {
+        this.checkArity(3);
+        double[] arguments = ARGUMENTS.get();
+        arguments[0] = first;
+        arguments[1] = second;
+        arguments[2] = third;
+        return this.root.evaluate(arguments);
+    }
+
+    /**
+     * Checks that the fixed arity overloads are given a value for every variable, as their argument array holds stale values past those given.
+     */
+    private void checkArity(int count) {
+        if (this.variables.size() > count) {
+            throw new IllegalArgumentException("Expected values for " + this.variables.size() + " variables, got " + count + ".");
+        }
+    }
+
+    /**
+     * Evaluates an expression of a single variable at evenly spaced values.
+     * @param min the first value of the variable
+     * @param max the last value of the variable
+     * @param output the array the results are written to, its length is the number of samples
+     */
+    public void sample(double min, double max, double[] output) {
+        double[] values = new double[Math.max(1, this.variables.size())];
+        double step = output.length > 1 ? (max - min) / (output.length - 1) : 0;
+        for (int i = 0; i < output.length; i++) {
+            values[0] = min + (step * i);
+            output[i] = this.root.evaluate(values);
+        }
+    }
+
+    /**
+     * Checks whether the expression always has the same value, whatever its variables.
+     * @return true if the expression was folded into a constant
+     */
+    public boolean isConstant() {
+        return this.root.isConstant();
+    }
+
+    public List<String> getVariables() {
+        return this.variables;
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+}
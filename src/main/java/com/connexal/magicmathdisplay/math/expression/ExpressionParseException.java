@@ -0,0 +1,23 @@
+package com.connexal.magicmathdisplay.math.expression;
+
+/**
+ * Thrown when the source of an expression is not valid.
+ */
+public class ExpressionParseException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int position;
+
+    ExpressionParseException(String message, int position) {
+        super(message + " at position " + (position + 1));
+        this.position = position;
+    }
+
+    /**
+     * Gets where the error is in the source.
+     * @return the index of the character the error was detected at
+     */
+    public int getPosition() {
+        return this.position;
+    }
+}
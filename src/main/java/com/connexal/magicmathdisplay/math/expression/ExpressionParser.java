@@ -0,0 +1,242 @@
+package com.connexal.magicmathdisplay.math.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Recursive descent parser turning the source of an expression into a tree of compiled nodes.
+ * <p>
+ * Precedence, from lowest to highest: addition and subtraction, multiplication, division and modulo
+ * (including implicit multiplication such as {@code 2t} or {@code 3(x + 1)}), unary signs, then right associative powers.
+ */
+class ExpressionParser {
+    private static final Map<String, Double> CONSTANTS = Map.of(
+            "pi", Math.PI,
+            "tau", 2 * Math.PI,
+            "e", Math.E);
+
+    private static final Map<String, DoubleUnaryOperator> UNARY_FUNCTIONS = Map.ofEntries(
+            Map.entry("sin", Math::sin),
+            Map.entry("cos", Math::cos),
+            Map.entry("tan", Math::tan),
+            Map.entry("asin", Math::asin),
+            Map.entry("acos", Math::acos),
+            Map.entry("atan", Math::atan),
+            Map.entry("sinh", Math::sinh),
+            Map.entry("cosh", Math::cosh),
+            Map.entry("tanh", Math::tanh),
+            Map.entry("sqrt", Math::sqrt),
+            Map.entry("cbrt", Math::cbrt),
+            Map.entry("abs", Math::abs),
+            Map.entry("exp", Math::exp),
+            Map.entry("ln", Math::log),
+            Map.entry("log", Math::log10),
+            Map.entry("floor", Math::floor),
+            Map.entry("ceil", Math::ceil),
+            Map.entry("round", Math::rint),
+            Map.entry("sign", Math::signum));
+
+    private static final Map<String, DoubleBinaryOperator> BINARY_FUNCTIONS = Map.of(
+            "atan2", Math::atan2,
+            "min", Math::min,
+            "max", Math::max,
+            "pow", Math::pow,
+            "hypot", Math::hypot,
+            "mod", (a, b) -> a - (b * Math.floor(a / b)));
+
+    private final String source;
+    private final List<String> variables;
+    private int position = 0;
+
+    ExpressionParser(String source, List<String> variables) {
+        this.source = source;
+        this.variables = variables;
+    }
+
+    /**
+     * Parses the whole source.
+     * @return the root of the compiled tree
+     * @throws ExpressionParseException if the source is not a valid expression
+     */
+    Node parse() {
+        Node node = this.parseSum();
+        this.skipWhitespace();
+        if (this.position < this.source.length()) {
+            throw this.error("Unexpected '" + this.source.charAt(this.position) + "'");
+        }
+        return node;
+    }
+
+    private Node parseSum() {
+        Node node = this.parseProduct();
+        while (true) {
+            if (this.accept('+')) {
+                node = Node.add(node, this.parseProduct());
+            } else if (this.accept('-')) {
+                node = Node.subtract(node, this.parseProduct());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node parseProduct() {
+        Node node = this.parseUnary();
+        while (true) {
+            if (this.accept('*')) {
+                node = Node.multiply(node, this.parseUnary());
+            } else if (this.accept('/')) {
+                node = Node.divide(node, this.parseUnary());
+            } else if (this.accept('%')) {
+                node = Node.binary(BINARY_FUNCTIONS.get("mod"), node, this.parseUnary());
+            } else if (this.startsOperand()) {
+                node = Node.multiply(node, this.parsePower()); // Implicit multiplication, which binds like an explicit one
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node parseUnary() {
+        if (this.accept('-')) {
+            return Node.negate(this.parseUnary());
+        } else if (this.accept('+')) {
+            return this.parseUnary();
+        }
+        return this.parsePower();
+    }
+
+    private Node parsePower() {
+        Node base = this.parseOperand();
+        if (this.accept('^')) {
+            return Node.power(base, this.parseUnary()); // Right associative, and -x^2 is -(x^2)
+        }
+        return base;
+    }
+
+    private Node parseOperand() {
+        this.skipWhitespace();
+        if (this.position >= this.source.length()) {
+            throw this.error("Unexpected end of expression");
+        }
+
+        char c = this.source.charAt(this.position);
+        if (this.accept('(')) {
+            Node node = this.parseSum();
+            this.expect(')');
+            return node;
+        } else if (Character.isDigit(c) || c == '.') {
+            return Node.constant(this.parseNumber());
+        } else if (Character.isLetter(c)) {
+            int start = this.position;
+            String name = this.parseIdentifier();
+            this.skipWhitespace();
+            if (this.position < this.source.length() && this.source.charAt(this.position) == '(') {
+                return this.parseCall(name, start);
+            }
+            return this.resolve(name, start);
+        }
+        throw this.error("Unexpected '" + c + "'");
+    }
+
+    private Node parseCall(String name, int start) {
+        this.expect('(');
+        List<Node> arguments = new ArrayList<>();
+        arguments.add(this.parseSum());
+        while (this.accept(',')) {
+            arguments.add(this.parseSum());
+        }
+        this.expect(')');
+
+        DoubleUnaryOperator unary = UNARY_FUNCTIONS.get(name);
+        if (unary != null && arguments.size() == 1) {
+            return Node.unary(unary, arguments.getFirst());
+        }
+        DoubleBinaryOperator binary = BINARY_FUNCTIONS.get(name);
+        if (binary != null && arguments.size() == 2) {
+            if (name.equals("pow")) {
+                return Node.power(arguments.get(0), arguments.get(1));
+            }
+            return Node.binary(binary, arguments.get(0), arguments.get(1));
+        }
+
+        if (unary != null || binary != null) {
+            throw new ExpressionParseException("Wrong number of arguments for " + name, start);
+        }
+        throw new ExpressionParseException("Unknown function " + name, start);
+    }
+
+    private Node resolve(String name, int start) {
+        int index = this.variables.indexOf(name);
+        if (index >= 0) {
+            return Node.variable(index);
+        }
+
+        Double constant = CONSTANTS.get(name);
+        if (constant != null) {
+            return Node.constant(constant);
+        }
+        throw new ExpressionParseException("Unknown variable " + name, start);
+    }
+
+    private double parseNumber() {
+        int start = this.position;
+        while (this.position < this.source.length() && (Character.isDigit(this.source.charAt(this.position)) || this.source.charAt(this.position) == '.')) {
+            this.position++;
+        }
+
+        try {
+            return Double.parseDouble(this.source.substring(start, this.position));
+        } catch (NumberFormatException e) {
+            throw new ExpressionParseException("Invalid number", start);
+        }
+    }
+
+    private String parseIdentifier() {
+        int start = this.position;
+        while (this.position < this.source.length() && (Character.isLetterOrDigit(this.source.charAt(this.position)) || this.source.charAt(this.position) == '_')) {
+            this.position++;
+        }
+        return this.source.substring(start, this.position);
+    }
+
+    /**
+     * Checks whether the next character starts an operand, in which case it is implicitly multiplied.
+     */
+    private boolean startsOperand() {
+        this.skipWhitespace();
+        if (this.position >= this.source.length()) {
+            return false;
+        }
+        char c = this.source.charAt(this.position);
+        return c == '(' || c == '.' || Character.isLetterOrDigit(c);
+    }
+
+    private boolean accept(char expected) {
+        this.skipWhitespace();
+        if (this.position < this.source.length() && this.source.charAt(this.position) == expected) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char expected) {
+        if (!this.accept(expected)) {
+            throw this.error("Expected '" + expected + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.source.length() && Character.isWhitespace(this.source.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    private ExpressionParseException error(String message) {
+        return new ExpressionParseException(message, this.position);
+    }
+}
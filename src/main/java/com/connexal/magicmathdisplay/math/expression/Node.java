@@ -0,0 +1,164 @@
+package com.connexal.magicmathdisplay.math.expression;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A compiled node of an expression tree, evaluated by calling straight into its children.
+ * Nodes whose value doesn't depend on any variable are folded into constants while compiling.
+ */
+@FunctionalInterface
+interface Node {
+    /**
+     * Evaluates the node.
+     * @param variables the values of the variables, indexed in the order they were declared
+     * @return the value of the node
+     */
+    double evaluate(double[] variables);
+
+    /**
+     * Checks whether the node always has the same value.
+     * @return true if the node is a constant
+     */
+    default boolean isConstant() {
+        return false;
+    }
+
+    static Node constant(double value) {
+        return new Constant(value);
+    }
+
+    static Node variable(int index) {
+        return variables -> variables[index];
+    }
+
+    /**
+     * Creates the node applying a function to a single argument, folded if the argument is constant.
+     */
+    static Node unary(DoubleUnaryOperator function, Node argument) {
+        if (argument.isConstant()) {
+            return Node.constant(function.applyAsDouble(argument.evaluate(null)));
+        }
+        return variables -> function.applyAsDouble(argument.evaluate(variables));
+    }
+
+    /**
+     * Creates the node applying a function to two arguments, folded if both arguments are constant.
+     */
+    static Node binary(DoubleBinaryOperator function, Node left, Node right) {
+        if (left.isConstant() && right.isConstant()) {
+            return Node.constant(function.applyAsDouble(left.evaluate(null), right.evaluate(null)));
+        }
+        return variables -> function.applyAsDouble(left.evaluate(variables), right.evaluate(variables));
+    }
+
+    static Node add(Node left, Node right) {
+        if (left.isConstant() && right.isConstant()) {
+            return Node.constant(left.evaluate(null) + right.evaluate(null));
+        }
+        if (right.isConstant()) {
+            double value = right.evaluate(null);
+            return value == 0 ? left : variables -> left.evaluate(variables) + value;
+        }
+        if (left.isConstant()) {
+            double value = left.evaluate(null);
+            return value == 0 ? right : variables -> value + right.evaluate(variables);
+        }
+        return variables -> left.evaluate(variables) + right.evaluate(variables);
+    }
+
+    static Node subtract(Node left, Node right) {
+        if (left.isConstant() && right.isConstant()) {
+            return Node.constant(left.evaluate(null) - right.evaluate(null));
+        }
+        if (right.isConstant()) {
+            double value = right.evaluate(null);
+            return value == 0 ? left : variables -> left.evaluate(variables) - value;
+        }
+        return variables -> left.evaluate(variables) - right.evaluate(variables);
+    }
+
+    static Node multiply(Node left, Node right) {
+        if (left.isConstant() && right.isConstant()) {
+            return Node.constant(left.evaluate(null) * right.evaluate(null));
+        }
+        if (left.isConstant()) {
+            Node swapped = left;
+            left = right;
+            right = swapped; // Keep the constant on the right
+        }
+        if (right.isConstant()) {
+            double value = right.evaluate(null);
+            Node factor = left;
+            return value == 1 ? factor : variables -> factor.evaluate(variables) * value;
+        }
+
+        Node leftFactor = left;
+        Node rightFactor = right;
+        return variables -> leftFactor.evaluate(variables) * rightFactor.evaluate(variables);
+    }
+
+    static Node divide(Node left, Node right) {
+        if (left.isConstant() && right.isConstant()) {
+            return Node.constant(left.evaluate(null) / right.evaluate(null));
+        }
+        if (right.isConstant()) {
+            double inverse = 1 / right.evaluate(null); // Multiplying is cheaper than dividing
+            return variables -> left.evaluate(variables) * inverse;
+        }
+        return variables -> left.evaluate(variables) / right.evaluate(variables);
+    }
+
+    static Node negate(Node argument) {
+        if (argument.isConstant()) {
+            return Node.constant(-argument.evaluate(null));
+        }
+        return variables -> -argument.evaluate(variables);
+    }
+
+    /**
+     * Creates the node raising a base to a power. Small integer powers are expanded into multiplications.
+     */
+    static Node power(Node base, Node exponent) {
+        if (!exponent.isConstant() || base.isConstant()) {
+            return Node.binary(Math::pow, base, exponent);
+        }
+
+        double value = exponent.evaluate(null);
+        if (value == 0) {
+            return Node.constant(1);
+        } else if (value == 1) {
+            return base;
+        } else if (value == 2) {
+            return variables -> {
+                double x = base.evaluate(variables);
+                return x * x;
+            };
+        } else if (value == 3) {
+            return variables -> {
+                double x = base.evaluate(variables);
+                return x * x * x;
+            };
+        } else if (value == 0.5) {
+            return variables -> Math.sqrt(base.evaluate(variables));
+        } else if (value == -1) {
+            return variables -> 1 / base.evaluate(variables);
+        }
+        return variables -> Math.pow(base.evaluate(variables), value);
+    }
+
+    /**
+     * A node with a value known while compiling.
+     */
+    record Constant(double value) implements Node {
+        @Override
+        public double evaluate(double[] variables) {
+            return this.value;
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+    }
+}
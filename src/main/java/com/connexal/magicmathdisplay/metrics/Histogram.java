@@ -0,0 +1,90 @@
+package com.connexal.magicmathdisplay.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the distribution of durations in fixed buckets. Values can be recorded from several threads at once.
+ */
+public class Histogram {
+    /**
+     * The upper bound of each bucket in nanoseconds. A last bucket holds everything above.
+     */
+    private static final long[] BUCKET_BOUNDS = {
+            10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Records a duration.
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && nanos > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        this.counts.incrementAndGet(bucket);
+        this.count.increment();
+        this.sum.add(nanos);
+        this.max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     * @return the number of durations
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Gets the mean of the recorded durations.
+     * @return the mean in milliseconds, 0 if nothing was recorded
+     */
+    public double getMeanMillis() {
+        long count = this.getCount();
+        if (count == 0) {
+            return 0;
+        }
+        return (this.sum.sum() / (double) count) / 1_000_000.0;
+    }
+
+    /**
+     * Gets the longest recorded duration.
+     * @return the maximum in milliseconds
+     */
+    public double getMaxMillis() {
+        return this.max.get() / 1_000_000.0;
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations, as the upper bound of the bucket it falls in.
+     * @param percentile the percentile, between 0 and 1
+     * @return the estimated duration in milliseconds, 0 if nothing was recorded
+     */
+    public double getPercentileMillis(double percentile) {
+        long count = this.getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += this.counts.get(i);
+            if (seen >= target) {
+                return BUCKET_BOUNDS[i] / 1_000_000.0;
+            }
+        }
+        return this.getMaxMillis();
+    }
+}
@@ -0,0 +1,105 @@
+package com.connexal.magicmathdisplay.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collects what the plugin costs: particles emitted, time spent rendering and generating, memory retained.
+ * Everything can be recorded from any thread, and read as a flat snapshot.
+ */
+public class MetricsRegistry {
+    private final RateMeter particlesEmitted = new RateMeter();
+    private final RateMeter particlesSent = new RateMeter();
+    private final Histogram framePreparation = new Histogram();
+    private final Histogram frameDispatch = new Histogram();
+    private final Histogram sequenceGeneration = new Histogram();
+    private final Map<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the meter of the particles emitted, each one counted once whatever the number of players receiving it.
+     * @return the meter
+     */
+    public RateMeter getParticlesEmitted() {
+        return this.particlesEmitted;
+    }
+
+    /**
+     * Gets the meter of the particles sent, each one counted once per player receiving it.
+     * @return the meter
+     */
+    public RateMeter getParticlesSent() {
+        return this.particlesSent;
+    }
+
+    /**
+     * Gets the histogram of the time spent by worker threads preparing the particles of a frame.
+     * @return the histogram
+     */
+    public Histogram getFramePreparation() {
+        return this.framePreparation;
+    }
+
+    /**
+     * Gets the histogram of the time spent by the main thread sending the particles of a frame.
+     * @return the histogram
+     */
+    public Histogram getFrameDispatch() {
+        return this.frameDispatch;
+    }
+
+    /**
+     * Gets the histogram of the time spent generating the sequence of a demo.
+     * @return the histogram
+     */
+    public Histogram getSequenceGeneration() {
+        return this.sequenceGeneration;
+    }
+
+    /**
+     * Registers a value that is read each time a snapshot is taken.
+     * @param name the name of the value, replacing any gauge with the same name
+     * @param gauge the function returning the value
+     */
+    public void registerGauge(String name, Supplier<Number> gauge) {
+        this.gauges.put(name, gauge);
+    }
+
+    /**
+     * Removes a value registered with {@link #registerGauge(String, Supplier)}.
+     * @param name the name of the value
+     */
+    public void unregisterGauge(String name) {
+        this.gauges.remove(name);
+    }
+
+    /**
+     * Reads all the metrics.
+     * @return the value of each metric, sorted by name
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+
+        snapshot.put("particles.emitted-per-second", this.particlesEmitted.getRate());
+        snapshot.put("particles.emitted-total", this.particlesEmitted.getTotal());
+        snapshot.put("particles.sent-per-second", this.particlesSent.getRate());
+        snapshot.put("particles.sent-total", this.particlesSent.getTotal());
+        MetricsRegistry.putHistogram(snapshot, "frame.preparation", this.framePreparation);
+        MetricsRegistry.putHistogram(snapshot, "frame.dispatch", this.frameDispatch);
+        MetricsRegistry.putHistogram(snapshot, "sequence.generation", this.sequenceGeneration);
+
+        for (Map.Entry<String, Supplier<Number>> gauge : this.gauges.entrySet()) {
+            snapshot.put(gauge.getKey(), gauge.getValue().get());
+        }
+        return snapshot;
+    }
+
+    private static void putHistogram(Map<String, Number> snapshot, String name, Histogram histogram) {
+        snapshot.put(name + ".count", histogram.getCount());
+        snapshot.put(name + ".mean-ms", histogram.getMeanMillis());
+        snapshot.put(name + ".p50-ms", histogram.getPercentileMillis(0.5));
+        snapshot.put(name + ".p99-ms", histogram.getPercentileMillis(0.99));
+        snapshot.put(name + ".max-ms", histogram.getMaxMillis());
+    }
+}
@@ -0,0 +1,68 @@
+package com.connexal.magicmathdisplay.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how often something happens per second, over the last few seconds.
+ * Events can be marked from several threads at once.
+ */
+public class RateMeter {
+    private static final int WINDOW_SECONDS = 5;
+
+    /**
+     * The number of events in each of the last seconds, indexed by the second modulo the size of the window.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SECONDS + 1);
+    /**
+     * The second each slot of the counts currently holds.
+     */
+    private final AtomicLongArray seconds = new AtomicLongArray(WINDOW_SECONDS + 1);
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Marks that events happened.
+     * @param events the number of events
+     */
+    public void mark(long events) {
+        long second = RateMeter.currentSecond();
+        int slot = Math.floorMod(second, this.counts.length());
+
+        long slotSecond = this.seconds.get(slot);
+        if (slotSecond != second && this.seconds.compareAndSet(slot, slotSecond, second)) {
+            this.counts.set(slot, 0); // The slot held an old second, reuse it
+        }
+
+        this.counts.addAndGet(slot, events);
+        this.total.add(events);
+    }
+
+    /**
+     * Gets the average number of events per second over the last complete seconds.
+     * @return the rate in events per second
+     */
+    public double getRate() {
+        long second = RateMeter.currentSecond();
+
+        long events = 0;
+        for (int i = 1; i <= WINDOW_SECONDS; i++) {
+            int slot = Math.floorMod(second - i, this.counts.length());
+            if (this.seconds.get(slot) == second - i) {
+                events += this.counts.get(slot);
+            }
+        }
+        return events / (double) WINDOW_SECONDS;
+    }
+
+    /**
+     * Gets the number of events since the meter was created.
+     * @return the total number of events
+     */
+    public long getTotal() {
+        return this.total.sum();
+    }
+
+    private static long currentSecond() {
+        return System.nanoTime() / 1_000_000_000L;
+    }
+}
@@ -0,0 +1,36 @@
+package com.connexal.magicmathdisplay.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded each time the particles of a frame are sent by the main thread.
+ */
+@Name("com.connexal.magicmathdisplay.FrameEmission")
+@Label("Frame Emission")
+@Category({"MagicMathDisplay", "Rendering"})
+@Description("Particles of a frame of a playback sent to the players")
+public class FrameEmissionEvent extends Event {
+    @Label("Demo")
+    public String demo;
+
+    @Label("Playback Id")
+    public int playbackId;
+
+    @Label("Frame Index")
+    public int frameIndex;
+
+    @Label("Point Count")
+    @Description("Number of points in the frame")
+    public int pointCount;
+
+    @Label("Particle Count")
+    @Description("Number of particles sent, after the budget and the load shedding")
+    public int particleCount;
+
+    @Label("Receiver Count")
+    public int receiverCount;
+}
@@ -0,0 +1,36 @@
+package com.connexal.magicmathdisplay.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded each time a worker thread prepares the particles of a frame.
+ */
+@Name("com.connexal.magicmathdisplay.FramePreparation")
+@Label("Frame Preparation")
+@Category({"MagicMathDisplay", "Rendering"})
+@Description("Particles of a frame of a playback prepared off the main thread")
+public class FramePreparationEvent extends Event {
+    @Label("Demo")
+    public String demo;
+
+    @Label("Playback Id")
+    public int playbackId;
+
+    @Label("Frame Index")
+    public int frameIndex;
+
+    @Label("Point Count")
+    @Description("Number of points in the frame")
+    public int pointCount;
+
+    @Label("Particle Count")
+    @Description("Number of particles prepared")
+    public int particleCount;
+
+    @Label("Receiver Count")
+    public int receiverCount;
+}
@@ -0,0 +1,33 @@
+package com.connexal.magicmathdisplay.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded each time a playback starts or stops.
+ */
+@Name("com.connexal.magicmathdisplay.Playback")
+@Label("Playback")
+@Category({"MagicMathDisplay", "Rendering"})
+@Description("A playback of a demo starting or stopping")
+public class PlaybackEvent extends Event {
+    @Label("Demo")
+    public String demo;
+
+    @Label("Playback Id")
+    public int playbackId;
+
+    @Label("Started")
+    @Description("True when the playback starts, false when it stops")
+    public boolean started;
+
+    @Label("Owner")
+    public String owner;
+
+    @Label("Point Count")
+    @Description("Number of points in the first frame")
+    public int pointCount;
+}
@@ -0,0 +1,23 @@
+package com.connexal.magicmathdisplay.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded each time the sequence of a demo is requested.
+ */
+@Name("com.connexal.magicmathdisplay.SequenceCache")
+@Label("Sequence Cache")
+@Category({"MagicMathDisplay", "Generation"})
+@Description("Lookup of the shared sequence of a demo")
+public class SequenceCacheEvent extends Event {
+    @Label("Demo")
+    public String demo;
+
+    @Label("Hit")
+    @Description("Whether the sequence had already been generated")
+    public boolean hit;
+}
@@ -0,0 +1,29 @@
+package com.connexal.magicmathdisplay.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded each time the sequence of a demo is generated.
+ */
+@Name("com.connexal.magicmathdisplay.SequenceGeneration")
+@Label("Sequence Generation")
+@Category({"MagicMathDisplay", "Generation"})
+@Description("Generation and optimisation of the sequence of a demo")
+public class SequenceGenerationEvent extends Event {
+    @Label("Demo")
+    public String demo;
+
+    @Label("Total Frames")
+    public int totalFrames;
+
+    @Label("Stored Frames")
+    public int storedFrames;
+
+    @Label("Point Count")
+    @Description("Number of points in the first frame")
+    public int pointCount;
+}
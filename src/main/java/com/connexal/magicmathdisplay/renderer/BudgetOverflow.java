@@ -0,0 +1,15 @@
+package com.connexal.magicmathdisplay.renderer;
+
+/**
+ * What happens to the points of a frame that do not fit in the particle budget of a tick.
+ */
+public enum BudgetOverflow {
+    /**
+     * Only a subset of the points, evenly spread over the frame, is sent. The others are dropped.
+     */
+    DECIMATE,
+    /**
+     * The points that do not fit are sent during the following ticks, with their trails shortened to stay in sync.
+     */
+    SPREAD
+}
@@ -0,0 +1,63 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import com.destroystokyo.paper.ParticleBuilder;
+
+import java.util.List;
+
+/**
+ * The particles of a single frame of a playback, fully prepared so that the main thread only has to send them.
+ */
+class EmissionBatch {
+    private final EmissionRequest request;
+    private final List<ParticleBuilder> particles;
+    private final int receiverCount;
+    /**
+     * The number of particles sent, counting each particle once per player receiving it.
+     */
+    private final long particlesSent;
+
+    EmissionBatch(EmissionRequest request, List<ParticleBuilder> particles, int receiverCount, long particlesSent) {
+        this.request = request;
+        this.particles = particles;
+        this.receiverCount = receiverCount;
+        this.particlesSent = particlesSent;
+    }
+
+    /**
+     * Sends the particles to their receivers. Must be called from the main thread.
+     * Nothing is sent if the playback was stopped after the batch was prepared.
+     */
+    void dispatch() {
+        if (this.request.getPlayback().isStopped()) {
+            return;
+        }
+
+        for (ParticleBuilder particle : this.particles) {
+            particle.spawn();
+        }
+    }
+
+    EmissionRequest getRequest() {
+        return this.request;
+    }
+
+    Playback getPlayback() {
+        return this.request.getPlayback();
+    }
+
+    int size() {
+        return this.particles.size();
+    }
+
+    /**
+     * Gets the number of players receiving at least part of the batch.
+     * @return the number of receivers
+     */
+    int getReceiverCount() {
+        return this.receiverCount;
+    }
+
+    long getParticlesSent() {
+        return this.particlesSent;
+    }
+}
@@ -0,0 +1,129 @@
+package com.connexal.magicmathdisplay.renderer;
+
+/**
+ * Describes which points of a frame of a playback have to be emitted during a tick.
+ * The points considered are every stride-th point of the frame, called the available points below.
+ */
+class EmissionRequest {
+    private final Playback playback;
+    /**
+     * The sequence the frame belongs to, kept so that the request stays valid if the playback changes sequence.
+     */
+    private final Sequence sequence;
+    private final int frameIndex;
+    private final int stride;
+    /**
+     * The index of the first available point to emit.
+     */
+    private final int offset;
+    /**
+     * The number of available points to emit.
+     */
+    private final int count;
+    /**
+     * Whether the points to emit are spread over the remaining available points, or taken one after the other.
+     */
+    private final boolean decimated;
+    /**
+     * The number of ticks since the frame should have been emitted.
+     */
+    private final int delayTicks;
+
+    private EmissionRequest(Playback playback, Sequence sequence, int frameIndex, int stride, int offset, int count, boolean decimated, int delayTicks) {
+        this.playback = playback;
+        this.sequence = sequence;
+        this.frameIndex = frameIndex;
+        this.stride = stride;
+        this.offset = offset;
+        this.count = count;
+        this.decimated = decimated;
+        this.delayTicks = delayTicks;
+    }
+
+    /**
+     * Creates a request to emit a whole frame.
+     * @param playback the playback the frame belongs to
+     * @param frameIndex the index of the frame in the sequence
+     * @param stride only every stride-th point of the frame is emitted
+     * @return the request
+     */
+    static EmissionRequest of(Playback playback, int frameIndex, int stride) {
+        Sequence sequence = playback.getSequence();
+        int pointCount = sequence.getPointCount(frameIndex);
+        return new EmissionRequest(playback, sequence, frameIndex, stride, 0, (pointCount + stride - 1) / stride, false, 0);
+    }
+
+    /**
+     * Limits the number of points emitted by this request.
+     * @param allowance the number of points that can be emitted
+     * @param overflow how to choose the points to emit
+     * @return the limited request
+     */
+    EmissionRequest limit(int allowance, BudgetOverflow overflow) {
+        if (allowance >= this.count) {
+            return this;
+        }
+        return new EmissionRequest(this.playback, this.sequence, this.frameIndex, this.stride, this.offset, allowance, overflow == BudgetOverflow.DECIMATE, this.delayTicks);
+    }
+
+    /**
+     * Creates the request for the points that were left out by limiting this request, to be emitted during the next tick.
+     * @param emitted the number of points that are emitted during this tick
+     * @return the request for the remaining points, or null if there are none or their trails would already be over
+     */
+    EmissionRequest remainder(int emitted) {
+        int delayTicks = this.delayTicks + 1;
+        if (emitted >= this.count || delayTicks >= this.getDurationTicks()) {
+            return null;
+        }
+        return new EmissionRequest(this.playback, this.sequence, this.frameIndex, this.stride, this.offset + emitted, this.count - emitted, false, delayTicks);
+    }
+
+    /**
+     * Gets the index in the frame of the n-th point to emit.
+     * @param n the number of the point, between 0 and the count
+     * @return the index of the point in the frame
+     */
+    int getPointIndex(int n) {
+        int available = (this.sequence.getPointCount(this.frameIndex) + this.stride - 1) / this.stride - this.offset;
+        int position = this.decimated ? (int) (((long) n * available) / this.count) : n;
+        return (this.offset + position) * this.stride;
+    }
+
+    /**
+     * Gets the number of frames the trails have to cover, starting from when the frame should have been emitted.
+     * @return the number of frames until the end of the span of the keyframe
+     */
+    int getSpan() {
+        int keyframeIndex = this.sequence.getKeyframeIndex(this.frameIndex);
+        return keyframeIndex + this.sequence.getKeyframeSpan(keyframeIndex) - this.frameIndex;
+    }
+
+    /**
+     * Gets how long the trails of the frame last, starting from when the frame should have been emitted.
+     * @return the duration in ticks
+     */
+    int getDurationTicks() {
+        return this.playback.getFrameDurationTicks() * this.getSpan();
+    }
+
+    Playback getPlayback() {
+        return this.playback;
+    }
+
+    Sequence getSequence() {
+        return this.sequence;
+    }
+
+    int getFrameIndex() {
+        return this.frameIndex;
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    int getDelayTicks() {
+        return this.delayTicks;
+    }
+}
@@ -2,46 +2,92 @@ package com.connexal.magicmathdisplay.renderer;
 
 import com.connexal.magicmathdisplay.math.Vector3d;
 import com.connexal.magicmathdisplay.renderer.primitives.Primitive;
+import com.connexal.magicmathdisplay.renderer.primitives.Wireframe;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Represents a single frame in a 3D rendering context, containing a set of points.
+ * Points are packed one after the other in a single array, each as its position then its velocity.
+ * Values are stored in single precision, which is far below the size of a particle and halves the memory of a frame.
  */
 public class Frame {
-    private final double[][] pointsArray;
+    /**
+     * The number of values stored for each point: x, y, z then the velocity along x, y and z.
+     */
+    public static final int STRIDE = 6;
 
-    private Frame(double[][] pointsArray) {
-        this.pointsArray = pointsArray;
+    private final float[] data;
+    private final boolean edges;
+
+    private Frame(float[] data, boolean edges) {
+        this.data = data;
+        this.edges = edges;
     }
 
     /**
-     * Returns the set of points in this frame.
-     * @return array of points represented as arrays of doubles
+     * Returns the points in this frame.
+     * @return the packed points, {@link #STRIDE} values per point
      */
-    public double[][] getPoints() {
-        return this.pointsArray;
+    public float[] getData() {
+        return this.data;
     }
 
+    public int getPointCount() {
+        return this.data.length / STRIDE;
+    }
+
+    /**
+     * Checks whether the frame contains edges, whose velocity leads to the other end of the edge rather than to the next frame.
+     * @return true if edges were added to the frame
+     */
+    public boolean hasEdges() {
+        return this.edges;
+    }
 
     /**
      * Creates a new FrameBuilder instance.
      * @return a new FrameBuilder
      */
     public static FrameBuilder builder() {
-        return new FrameBuilder();
+        return new FrameBuilder(0);
+    }
+
+    /**
+     * Creates a new FrameBuilder instance with room for the given number of points, so that it never has to grow.
+     * @param expectedPoints the number of points the frame will contain
+     * @return a new FrameBuilder
+     */
+    public static FrameBuilder builder(int expectedPoints) {
+        return new FrameBuilder(expectedPoints);
     }
 
     /**
      * Builder class for constructing Frame instances.
      */
     public static class FrameBuilder {
-        private final List<double[]> points;
+        private float[] data;
+        private int pointCount = 0;
+        private boolean edges = false;
 
-        private FrameBuilder() {
-            this.points = new ArrayList<>();
+        private FrameBuilder(int expectedPoints) {
+            this.data = new float[Math.max(0, expectedPoints) * STRIDE];
+        }
+
+        /**
+         * Makes room for more points.
+         * @param points the number of points about to be added
+         * @return the offset in the buffer of the first added point
+         */
+        private int reserve(int points) {
+            int required = (this.pointCount + points) * STRIDE;
+            if (required > this.data.length) {
+                this.data = Arrays.copyOf(this.data, Math.max(required, this.data.length * 2));
+            }
+
+            int offset = this.pointCount * STRIDE;
+            this.pointCount += points;
+            return offset;
         }
 
         /**
@@ -50,7 +96,10 @@ public class Frame {
          * @return the current FrameBuilder instance
          */
         public FrameBuilder addPoint(Vector3d point) {
-            this.points.add(new double[] { point.getX(), point.getY(), point.getZ(), 0.0, 0.0, 0.0 });
+            int offset = this.reserve(1);
+            this.data[offset] = (float) point.getX();
+            this.data[offset + 1] = (float) point.getY();
+            this.data[offset + 2] = (float) point.getZ();
             return this;
         }
 
@@ -61,52 +110,129 @@ public class Frame {
          * @return the current FrameBuilder instance
          */
         public FrameBuilder addPoint(Vector3d point, Vector3d velocity) {
-            this.points.add(new double[] { point.getX(), point.getY(), point.getZ(), velocity.getX(), velocity.getY(), velocity.getZ() });
+            int offset = this.reserve(1);
+            this.data[offset] = (float) point.getX();
+            this.data[offset + 1] = (float) point.getY();
+            this.data[offset + 2] = (float) point.getZ();
+            this.data[offset + 3] = (float) velocity.getX();
+            this.data[offset + 4] = (float) velocity.getY();
+            this.data[offset + 5] = (float) velocity.getZ();
             return this;
         }
 
         /**
-         * Adds a primitive's points to the frame.
-         * @param primitive the primitive to add
+         * Adds a point with velocity to the frame, without creating vectors.
+         * @param x the x coordinate of the point
+         * @param y the y coordinate of the point
+         * @param z the z coordinate of the point
+         * @param vx the velocity of the point along x
+         * @param vy the velocity of the point along y
+         * @param vz the velocity of the point along z
          * @return the current FrameBuilder instance
          */
-        public FrameBuilder addPrimitive(Primitive primitive) {
-            for (Vector3d point : primitive.getPoints()) {
-                this.addPoint(point);
+        public FrameBuilder addPoint(double x, double y, double z, double vx, double vy, double vz) {
+            int offset = this.reserve(1);
+            this.data[offset] = (float) x;
+            this.data[offset + 1] = (float) y;
+            this.data[offset + 2] = (float) z;
+            this.data[offset + 3] = (float) vx;
+            this.data[offset + 4] = (float) vy;
+            this.data[offset + 5] = (float) vz;
+            return this;
+        }
+
+        /**
+         * Adds points from a packed buffer to the frame, without velocity.
+         * This lets points transformed in bulk, for example with {@link com.connexal.magicmathdisplay.math.FloatTransforms}, be added without creating vectors.
+         * @param positions the buffer holding the points, each starting with its x, y and z coordinates
+         * @param offset the index in the buffer of the x coordinate of the first point
+         * @param count the number of points to add
+         * @param stride the number of values between the start of two consecutive points, at least 3
+         * @return the current FrameBuilder instance
+         */
+        public FrameBuilder addPoints(float[] positions, int offset, int count, int stride) {
+            int start = this.reserve(count);
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(positions, offset + (i * stride), this.data, start + (i * STRIDE), 3);
             }
+            return this;
+        }
 
+        /**
+         * Adds a primitive's points to the frame, without velocity.
+         * @param primitive the primitive to add
+         * @return the current FrameBuilder instance
+         */
+        public FrameBuilder addPrimitive(Primitive primitive) {
+            int offset = this.reserve(primitive.getPointCount());
+            primitive.exportPoints(this.data, offset, STRIDE);
             return this;
         }
 
+        /**
+         * Adds a primitive's points to the frame, with the velocity leading each point to its position in the next state.
+         * @param currentState the primitive as it is in this frame
+         * @param nextState the primitive as it is in the next frame, with its points in the same order
+         * @return the current FrameBuilder instance
+         * @throws IllegalArgumentException if both states don't have the same number of points
+         */
         public FrameBuilder addPrimitive(Primitive currentState, Primitive nextState) {
-            List<Vector3d> currentPoints = (List<Vector3d>) currentState.getPoints();
-            List<Vector3d> nextPoints = (List<Vector3d>) nextState.getPoints();
-
-            int numPoints = currentPoints.size();
-            if (numPoints != nextPoints.size()) {
+            int numPoints = currentState.getPointCount();
+            if (numPoints != nextState.getPointCount()) {
                 throw new IllegalArgumentException("Current state and next state must have the same number of points.");
             }
 
-            for (int i = 0; i < numPoints; i++) {
-                Vector3d currentPoint = currentPoints.get(i);
-                Vector3d nextPoint = nextPoints.get(i);
-                Vector3d velocity = Vector3d.difference(nextPoint, currentPoint);
-                this.addPoint(currentPoint, velocity);
+            // Export the next positions in the velocity slots, then turn them into differences
+            int offset = this.reserve(numPoints);
+            currentState.exportPoints(this.data, offset, STRIDE);
+            nextState.exportPoints(this.data, offset + 3, STRIDE);
+            int end = offset + (numPoints * STRIDE);
+            for (int i = offset; i < end; i += STRIDE) {
+                this.data[i + 3] -= this.data[i];
+                this.data[i + 4] -= this.data[i + 1];
+                this.data[i + 5] -= this.data[i + 2];
             }
 
             return this;
         }
 
         /**
-         * Builds the Frame instance.
+         * Adds a single edge to the frame, as a point whose velocity leads to the other end of the edge.
+         * Like {@link #addEdges}, this marks the frame as containing edges.
+         * @param startX the x coordinate of the start of the edge
+         * @param startY the y coordinate of the start of the edge
+         * @param startZ the z coordinate of the start of the edge
+         * @param endX the x coordinate of the end of the edge
+         * @param endY the y coordinate of the end of the edge
+         * @param endZ the z coordinate of the end of the edge
+         * @return the current FrameBuilder instance
+         */
+        public FrameBuilder addEdge(double startX, double startY, double startZ, double endX, double endY, double endZ) {
+            this.addPoint(startX, startY, startZ, endX - startX, endY - startY, endZ - startZ);
+            this.edges = true;
+            return this;
+        }
+
+        /**
+         * Adds a wireframe's edges to the frame, each as a single point whose velocity leads to the other end of the edge.
+         * Frames with edges can't be given inferred velocities, so they are meant for sequences built without velocity.
+         * @param wireframe the wireframe to add
+         * @return the current FrameBuilder instance
+         */
+        public FrameBuilder addEdges(Wireframe wireframe) {
+            int offset = this.reserve(wireframe.getEdgeCount());
+            wireframe.exportEdges(this.data, offset, STRIDE);
+            this.edges = true;
+            return this;
+        }
+
+        /**
+         * Builds the Frame instance. The builder hands its buffer over to the frame and must not be used afterwards.
          * @return a new Frame containing the added points
          */
         public Frame build() {
-            double[][] pointsArray = new double[points.size()][6];
-            for (int i = 0; i < points.size(); i++) {
-                pointsArray[i] = points.get(i);
-            }
-            return new Frame(pointsArray);
+            int length = this.pointCount * STRIDE;
+            return new Frame(length == this.data.length ? this.data : Arrays.copyOf(this.data, length), this.edges);
         }
     }
 }
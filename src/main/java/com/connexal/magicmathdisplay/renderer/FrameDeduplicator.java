@@ -0,0 +1,203 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the frames of a sequence that are equal within a tolerance so that they can be stored only once.
+ * Frames are compared as sets of points, as the order in which points are rendered does not matter.
+ * This lets rotations of symmetric shapes, where points swap places, be recognised as the same frame.
+ * Keyframe reduction matches the points of frames by index, so a frame stored in another order keeps the permutation
+ * leading to its points, which {@link Sequence#getFrame(int)} applies.
+ */
+class FrameDeduplicator {
+    private final double tolerance;
+    private final List<float[]> uniqueFrames = new ArrayList<>();
+    /**
+     * The rows of each unique frame, quantised and sorted. Only computed when a comparison needs them.
+     */
+    private final List<long[][]> sortedKeys = new ArrayList<>();
+    /**
+     * The permutation of the last stored frame, or null if it is stored in its own order.
+     */
+    private int[] lastPermutation = null;
+    private final Map<Long, List<Integer>> buckets = new HashMap<>();
+
+    private FrameDeduplicator(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Builds a sequence in which frames that are equal within the tolerance are stored only once.
+     * @param frames the frames of the animation
+     * @param tolerance the maximum difference between two components for them to be considered equal
+     * @param edges whether the frames contain wireframe edges
+     * @return the deduplicated sequence
+     */
+    static Sequence deduplicate(float[][] frames, double tolerance, boolean edges) {
+        FrameDeduplicator deduplicator = new FrameDeduplicator(tolerance);
+
+        int[] frameRefs = new int[frames.length];
+        int[][] permutations = new int[frames.length][];
+        for (int i = 0; i < frames.length; i++) {
+            frameRefs[i] = deduplicator.store(frames[i]);
+            permutations[i] = deduplicator.lastPermutation;
+        }
+
+        return new Sequence(deduplicator.uniqueFrames.toArray(new float[0][]), frameRefs, permutations, FrameDeduplicator.shortestPeriod(frameRefs), edges);
+    }
+
+    /**
+     * Stores a frame unless an equal frame was already stored, setting the permutation leading from its points to the stored ones.
+     * @param frame the frame to store
+     * @return the index of the stored frame
+     */
+    private int store(float[] frame) {
+        long hash = this.hashFrame(frame);
+        List<Integer> candidates = this.buckets.computeIfAbsent(hash, k -> new ArrayList<>());
+
+        // Hashes can collide, so each candidate has to be verified
+        long[][] keys = null;
+        for (int candidate : candidates) {
+            float[] other = this.uniqueFrames.get(candidate);
+            if (other.length != frame.length) {
+                continue;
+            }
+
+            if (keys == null) {
+                keys = this.sortedKeys(frame);
+            }
+            if (this.sortedKeys.get(candidate) == null) {
+                this.sortedKeys.set(candidate, this.sortedKeys(other));
+            }
+            if (this.equalRows(keys, this.sortedKeys.get(candidate))) {
+                this.lastPermutation = FrameDeduplicator.permutation(keys, this.sortedKeys.get(candidate));
+                return candidate;
+            }
+        }
+
+        this.uniqueFrames.add(frame);
+        this.sortedKeys.add(keys);
+        this.lastPermutation = null;
+        candidates.add(this.uniqueFrames.size() - 1);
+        return this.uniqueFrames.size() - 1;
+    }
+
+    /**
+     * Hashes a frame independently of the order of its points.
+     * @param frame the frame to hash
+     * @return the hash of the frame
+     */
+    private long hashFrame(float[] frame) {
+        long hash = frame.length / Frame.STRIDE;
+        for (int p = 0; p < frame.length; p += Frame.STRIDE) {
+            long rowHash = 1;
+            for (int j = 0; j < Frame.STRIDE; j++) {
+                rowHash = (31 * rowHash) + this.quantise(frame[p + j]);
+            }
+            hash += FrameDeduplicator.mix(rowHash); // Addition keeps the hash independent of the point order
+        }
+        return hash;
+    }
+
+    /**
+     * Quantises and sorts the rows of a frame so that two frames can be compared point by point.
+     * The last element of each row is the index of the point in the frame.
+     * @param frame the frame to sort
+     * @return the quantised rows in lexicographic order
+     */
+    private long[][] sortedKeys(float[] frame) {
+        long[][] keys = new long[frame.length / Frame.STRIDE][];
+        for (int i = 0; i < keys.length; i++) {
+            long[] key = new long[Frame.STRIDE + 1];
+            for (int j = 0; j < Frame.STRIDE; j++) {
+                key[j] = this.quantise(frame[(i * Frame.STRIDE) + j]);
+            }
+            key[Frame.STRIDE] = i;
+            keys[i] = key;
+        }
+
+        Arrays.sort(keys, Arrays::compare);
+        return keys;
+    }
+
+    /**
+     * Compares the quantised rows of two frames.
+     * Rows that straddle a quantisation boundary may not be matched, which only ever causes a duplicate to be missed.
+     * @param a the sorted keys of the first frame
+     * @param b the sorted keys of the second frame
+     * @return true if both frames contain the same points
+     */
+    private boolean equalRows(long[][] a, long[][] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (Arrays.compare(a[i], 0, a[i].length - 1, b[i], 0, b[i].length - 1) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pairs the points of a frame with those of an equal stored frame, through their sorted rows.
+     * @param keys the sorted keys of the frame
+     * @param storedKeys the sorted keys of the stored frame
+     * @return the index in the stored frame of each point of the frame, or null if the points are in the same order
+     */
+    private static int[] permutation(long[][] keys, long[][] storedKeys) {
+        int[] permutation = new int[keys.length];
+        boolean identity = true;
+        for (int i = 0; i < keys.length; i++) {
+            int point = (int) keys[i][Frame.STRIDE];
+            int storedPoint = (int) storedKeys[i][Frame.STRIDE];
+            permutation[point] = storedPoint;
+            identity &= point == storedPoint;
+        }
+        return identity ? null : permutation;
+    }
+
+    private long quantise(double value) {
+        return Math.round(value / this.tolerance);
+    }
+
+    /**
+     * Finalisation step of MurmurHash3, spreads the bits of the row hash before they are summed.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Finds the shortest period of the animation, using the prefix function of the frame references.
+     * @param frameRefs the stored frame index of each frame
+     * @return the shortest number of frames after which the animation repeats itself, or the number of frames if it never does
+     */
+    static int shortestPeriod(int[] frameRefs) {
+        int length = frameRefs.length;
+        if (length == 0) {
+            return 0;
+        }
+
+        int[] prefix = new int[length];
+        for (int i = 1; i < length; i++) {
+            int k = prefix[i - 1];
+            while (k > 0 && frameRefs[i] != frameRefs[k]) {
+                k = prefix[k - 1];
+            }
+            if (frameRefs[i] == frameRefs[k]) {
+                k++;
+            }
+            prefix[i] = k;
+        }
+
+        int period = length - prefix[length - 1];
+        return length % period == 0 ? period : length; // Only a whole number of periods loops seamlessly
+    }
+}
@@ -0,0 +1,174 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import com.destroystokyo.paper.ParticleBuilder;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns the frames of playbacks into emission batches. This does not touch the world or the players,
+ * only snapshots of them, so it can run on worker threads.
+ */
+class FramePreparer {
+    /**
+     * Snapshot of a player that may receive particles, taken on the main thread.
+     * @param player the player
+     * @param x the x coordinate of the player
+     * @param y the y coordinate of the player
+     * @param z the z coordinate of the player
+     */
+    record Viewer(Player player, double x, double y, double z) {
+    }
+
+    /**
+     * The share of the points of a frame a player receives, when their budget does not cover all of them.
+     * @param player the player
+     * @param reserved the number of points reserved for the player
+     * @param available the number of points the player could see
+     */
+    private record Reservation(Player player, int reserved, int available) {
+        /**
+         * Checks whether a point is sent to the player, picking the reserved points evenly among those available.
+         * @param ordinal the position of the point among those available, from 0
+         * @return true if the point is sent to the player
+         */
+        boolean includes(int ordinal) {
+            if (this.isComplete()) {
+                return true;
+            }
+            return (((long) (ordinal + 1) * this.reserved) / this.available) > (((long) ordinal * this.reserved) / this.available);
+        }
+
+        /**
+         * Checks whether the player receives every point they could see.
+         * @return true if nothing is thinned out
+         */
+        boolean isComplete() {
+            return this.reserved >= this.available;
+        }
+    }
+
+    /**
+     * Prepares the particles requested for a frame of a playback.
+     * If the frame is not a keyframe, it is reconstructed and its trails only cover what remains of the span of its keyframe.
+     * Points emitted late start further along their trail so that they stay in sync with the others.
+     * Each player only receives the tiles of the frame within their range, thinned out evenly over the whole frame when their share runs short.
+     * @param request the points to emit
+     * @param viewers the players in the world of the playback
+     * @param shares the number of points each viewer can receive, from {@link ParticleBudget#share}
+     * @return the prepared batch, which is empty if nobody can see the frame
+     */
+    static EmissionBatch prepare(EmissionRequest request, List<Viewer> viewers, int[] shares) {
+        Playback playback = request.getPlayback();
+        Location origin = playback.getLocation();
+        World world = origin.getWorld();
+        float[] points = request.getSequence().getStoredFrame(request.getFrameIndex()); // In the order of the tiles
+
+        int span = request.getSpan();
+        int durationTicks = request.getDurationTicks() - request.getDelayTicks();
+        double startFraction = (double) request.getDelayTicks() / playback.getFrameDurationTicks();
+
+        // Count the requested points of each tile, then the points each player can see
+        FrameTiles tiles = request.getSequence().getTiles(request.getFrameIndex());
+        int[] tileCounts = new int[tiles.getTileCount()];
+        for (int n = 0; n < request.getCount(); n++) {
+            tileCounts[tiles.getTile(request.getPointIndex(n))]++;
+        }
+
+        int[] visibleCounts = new int[viewers.size()];
+        List<List<Integer>> tileViewers = new ArrayList<>(tileCounts.length);
+        double renderDistanceSquared = (double) Renderer.RENDER_DISTANCE * Renderer.RENDER_DISTANCE;
+        for (int tile = 0; tile < tileCounts.length; tile++) {
+            List<Integer> inRange = new ArrayList<>();
+            if (tileCounts[tile] > 0) {
+                for (int v = 0; v < viewers.size(); v++) {
+                    Viewer viewer = viewers.get(v);
+                    if (tiles.distanceSquared(tile, viewer.x() - origin.getX(), viewer.y() - origin.getY(), viewer.z() - origin.getZ()) <= renderDistanceSquared) {
+                        inRange.add(v);
+                        visibleCounts[v] += tileCounts[tile];
+                    }
+                }
+            }
+            tileViewers.add(inRange);
+        }
+
+        // Each player gets as many of the points they can see as their share allows, evenly spread over every tile,
+        // so that a player short on budget sees all of the frame thinned out rather than only some of its tiles
+        Reservation[] reservations = new Reservation[viewers.size()];
+        Set<Player> receivers = new HashSet<>();
+        long particlesSent = 0;
+        for (int v = 0; v < viewers.size(); v++) {
+            int reserved = Math.min(visibleCounts[v], shares[v]);
+            if (reserved > 0) {
+                reservations[v] = new Reservation(viewers.get(v).player(), reserved, visibleCounts[v]);
+                receivers.add(viewers.get(v).player());
+                particlesSent += reserved;
+            }
+        }
+        if (receivers.isEmpty()) {
+            return new EmissionBatch(request, Collections.emptyList(), 0, 0);
+        }
+
+        // The tiles every player in range receives in full share one list of receivers
+        List<List<Player>> tileReceivers = new ArrayList<>(tileCounts.length);
+        for (List<Integer> inRange : tileViewers) {
+            List<Player> players = new ArrayList<>();
+            for (int v : inRange) {
+                if (reservations[v] == null) {
+                    continue;
+                }
+                if (!reservations[v].isComplete()) {
+                    players = null;
+                    break;
+                }
+                players.add(viewers.get(v).player());
+            }
+            tileReceivers.add(players);
+        }
+
+        List<ParticleBuilder> particles = new ArrayList<>(request.getCount());
+        int[] ordinals = new int[viewers.size()];
+        for (int n = 0; n < request.getCount(); n++) {
+            int pointIndex = request.getPointIndex(n);
+            int tile = tiles.getTile(pointIndex);
+            List<Player> players = tileReceivers.get(tile);
+            if (players == null) {
+                players = new ArrayList<>();
+                for (int v : tileViewers.get(tile)) {
+                    if (reservations[v] != null && reservations[v].includes(ordinals[v]++)) {
+                        players.add(viewers.get(v).player());
+                    }
+                }
+            }
+            if (players.isEmpty()) {
+                continue;
+            }
+
+            int p = pointIndex * Frame.STRIDE;
+            double x = origin.getX() + points[p];
+            double y = origin.getY() + points[p + 1];
+            double z = origin.getZ() + points[p + 2];
+            double vx = points[p + 3];
+            double vy = points[p + 4];
+            double vz = points[p + 5];
+            Location pointLocation = new Location(world, x + (vx * startFraction), y + (vy * startFraction), z + (vz * startFraction));
+            Location endLocation = new Location(world, x + (vx * span), y + (vy * span), z + (vz * span));
+
+            particles.add(Particle.TRAIL.builder()
+                    .location(pointLocation)
+                    .count(1)
+                    .receivers(players)
+                    .offset(0, 0, 0)
+                    .data(new Particle.Trail(endLocation, Renderer.DEFAULT_COLOUR, durationTicks)));
+        }
+
+        return new EmissionBatch(request, particles, receivers.size(), particlesSent);
+    }
+}
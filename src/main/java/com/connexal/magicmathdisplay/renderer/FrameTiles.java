@@ -0,0 +1,118 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits the points of a frame into the cells of a regular grid, so that each player can be sent only
+ * the cells within their range instead of the whole frame.
+ */
+class FrameTiles {
+    /**
+     * The size in blocks of the side of a cell.
+     */
+    static final int TILE_SIZE = 16;
+
+    /**
+     * For each point of the frame, the index of its tile.
+     */
+    private final int[] pointTiles;
+    /**
+     * For each tile, the box containing its points and the end of their trails, as min x, y, z then max x, y, z.
+     */
+    private final double[] tileBounds;
+
+    private FrameTiles(int[] pointTiles, double[] tileBounds) {
+        this.pointTiles = pointTiles;
+        this.tileBounds = tileBounds;
+    }
+
+    /**
+     * Splits a frame into tiles.
+     * @param frame the packed points of the frame
+     * @param span the number of frames the velocity of each point is followed for, to include the trails in the bounds
+     * @return the tiles of the frame
+     */
+    static FrameTiles of(float[] frame, int span) {
+        int[] pointTiles = new int[frame.length / Frame.STRIDE];
+        Map<Long, Integer> cells = new HashMap<>();
+        double[] bounds = new double[6 * 8];
+
+        for (int i = 0; i < pointTiles.length; i++) {
+            int p = i * Frame.STRIDE;
+            long cell = FrameTiles.cellKey(
+                    Math.floorDiv((int) Math.floor(frame[p]), TILE_SIZE),
+                    Math.floorDiv((int) Math.floor(frame[p + 1]), TILE_SIZE),
+                    Math.floorDiv((int) Math.floor(frame[p + 2]), TILE_SIZE));
+
+            Integer tile = cells.get(cell);
+            if (tile == null) {
+                tile = cells.size();
+                cells.put(cell, tile);
+                if (bounds.length < 6 * (tile + 1)) {
+                    double[] grown = new double[bounds.length * 2];
+                    System.arraycopy(bounds, 0, grown, 0, bounds.length);
+                    bounds = grown;
+                }
+                for (int axis = 0; axis < 3; axis++) {
+                    bounds[(6 * tile) + axis] = Double.MAX_VALUE;
+                    bounds[(6 * tile) + axis + 3] = -Double.MAX_VALUE;
+                }
+            }
+            pointTiles[i] = tile;
+
+            for (int axis = 0; axis < 3; axis++) {
+                double end = frame[p + axis] + ((double) frame[p + axis + 3] * span);
+                int min = (6 * tile) + axis;
+                bounds[min] = Math.min(bounds[min], Math.min(frame[p + axis], end));
+                bounds[min + 3] = Math.max(bounds[min + 3], Math.max(frame[p + axis], end));
+            }
+        }
+
+        double[] tileBounds = new double[6 * cells.size()];
+        System.arraycopy(bounds, 0, tileBounds, 0, tileBounds.length);
+        return new FrameTiles(pointTiles, tileBounds);
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return ((x & 0x1FFFFFL) << 42) | ((y & 0x1FFFFFL) << 21) | (z & 0x1FFFFFL);
+    }
+
+    int getTileCount() {
+        return this.tileBounds.length / 6;
+    }
+
+    /**
+     * Gets the tile a point belongs to.
+     * @param pointIndex the index of the point in the frame
+     * @return the index of the tile
+     */
+    int getTile(int pointIndex) {
+        return this.pointTiles[pointIndex];
+    }
+
+    /**
+     * Computes the squared distance between a position and the bounds of a tile.
+     * @param tile the index of the tile
+     * @param x the x coordinate of the position, relative to where the frame is played
+     * @param y the y coordinate of the position, relative to where the frame is played
+     * @param z the z coordinate of the position, relative to where the frame is played
+     * @return the squared distance, 0 if the position is inside the tile
+     */
+    double distanceSquared(int tile, double x, double y, double z) {
+        int base = 6 * tile;
+        double dx = Math.max(0, Math.max(this.tileBounds[base] - x, x - this.tileBounds[base + 3]));
+        double dy = Math.max(0, Math.max(this.tileBounds[base + 1] - y, y - this.tileBounds[base + 4]));
+        double dz = Math.max(0, Math.max(this.tileBounds[base + 2] - z, z - this.tileBounds[base + 5]));
+        return (dx * dx) + (dy * dy) + (dz * dz);
+    }
+
+    /**
+     * Estimates the memory retained by the tiles.
+     * @param arrayHeaderBytes the size of the header of an array
+     * @return the number of bytes
+     */
+    long getRetainedBytes(int arrayHeaderBytes) {
+        return (2L * arrayHeaderBytes) + ((long) Integer.BYTES * this.pointTiles.length) + ((long) Double.BYTES * this.tileBounds.length);
+    }
+}
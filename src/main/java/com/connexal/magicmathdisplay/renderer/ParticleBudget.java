@@ -0,0 +1,129 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of particles sent during a tick, in total and to each player.
+ * A new instance is used for each tick. Reservations can be made from several threads at once, so that the lanes
+ * of a region-threaded server share the limit of each player. Within a lane, the limit is split by {@link #share}
+ * before the frames are prepared, so what each playback gets does not depend on which worker finishes first.
+ */
+class ParticleBudget {
+    private final int perPlayerLimit;
+    private final Map<UUID, AtomicInteger> received = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the budget of a tick.
+     * @param perPlayerLimit the maximum number of particles each player can receive, 0 for no limit
+     */
+    ParticleBudget(int perPlayerLimit) {
+        this.perPlayerLimit = perPlayerLimit;
+    }
+
+    /**
+     * Reserves as many particles as a player can still receive during this tick, up to a number.
+     * @param player the player receiving the particles
+     * @param count the number of particles wanted
+     * @return the number of particles reserved, from 0 to count
+     */
+    int reserve(Player player, int count) {
+        if (this.perPlayerLimit <= 0) {
+            return count;
+        }
+
+        AtomicInteger counter = this.received.computeIfAbsent(player.getUniqueId(), uuid -> new AtomicInteger(0));
+        while (true) {
+            int current = counter.get();
+            int reserved = Math.max(0, Math.min(count, this.perPlayerLimit - current));
+            if (reserved == 0 || counter.compareAndSet(current, current + reserved)) {
+                return reserved;
+            }
+        }
+    }
+
+    /**
+     * Reserves what each player can still receive during this tick, then shares it between the requests they can see
+     * in proportion to their weights, the same way {@link #allocate} shares the budget of a lane.
+     * @param players the players that may receive particles
+     * @param demands for each player, the number of particles of each request they can see, 0 for those out of range
+     * @param weights the priority of each request, at least 1
+     * @return for each player, the number of particles of each request they can receive
+     */
+    int[][] share(List<Player> players, int[][] demands, int[] weights) {
+        int[][] shares = new int[players.size()][];
+        for (int i = 0; i < shares.length; i++) {
+            int total = 0;
+            for (int demand : demands[i]) {
+                total += demand;
+            }
+
+            int reserved = total == 0 ? 0 : this.reserve(players.get(i), total);
+            shares[i] = reserved == 0 ? new int[demands[i].length] : ParticleBudget.allocate(demands[i], weights, reserved);
+        }
+        return shares;
+    }
+
+    /**
+     * Shares a budget between several demands in proportion to their weights.
+     * No demand receives more than it asked for, what it does not need is shared between the others.
+     * @param demands the number of particles each playback wants to send
+     * @param weights the priority of each playback, at least 1
+     * @param budget the number of particles that can be sent, 0 for no limit
+     * @return the number of particles each playback can send
+     */
+    static int[] allocate(int[] demands, int[] weights, int budget) {
+        int[] allocation = new int[demands.length];
+
+        long totalDemand = 0;
+        for (int demand : demands) {
+            totalDemand += demand;
+        }
+        if (budget <= 0 || totalDemand <= budget) {
+            System.arraycopy(demands, 0, allocation, 0, demands.length);
+            return allocation;
+        }
+
+        int remaining = budget;
+        while (remaining > 0) {
+            long totalWeight = 0;
+            for (int i = 0; i < demands.length; i++) {
+                if (allocation[i] < demands[i]) {
+                    totalWeight += weights[i];
+                }
+            }
+            if (totalWeight == 0) {
+                break; // Everyone is satisfied
+            }
+
+            // Give each unsatisfied demand its share of what is left
+            int given = 0;
+            for (int i = 0; i < demands.length; i++) {
+                if (allocation[i] < demands[i]) {
+                    int share = (int) (((long) remaining * weights[i]) / totalWeight);
+                    int give = Math.min(share, demands[i] - allocation[i]);
+                    allocation[i] += give;
+                    given += give;
+                }
+            }
+
+            if (given == 0) {
+                // The shares were rounded down to nothing, hand out what is left one by one
+                for (int i = 0; i < demands.length && given < remaining; i++) {
+                    if (allocation[i] < demands[i]) {
+                        allocation[i]++;
+                        given++;
+                    }
+                }
+            }
+            remaining -= given;
+        }
+
+        return allocation;
+    }
+}
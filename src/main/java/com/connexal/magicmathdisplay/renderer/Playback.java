@@ -0,0 +1,357 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import com.connexal.magicmathdisplay.math.KdTree;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.metrics.RateMeter;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents a single instance of a sequence being played at a location.
+ * Any number of playbacks can share the same sequence, which must not be modified once built.
+ * A playback can be given a new sequence while it runs, which it switches to on its next tick.
+ */
+public class Playback {
+    private static final long NANOS_PER_TICK = 50_000_000L;
+    private static final AtomicInteger ID_COUNTER = new AtomicInteger(0);
+
+    private final int id = ID_COUNTER.incrementAndGet();
+    private final String name;
+    private volatile Sequence sequence;
+    /**
+     * The sequence to switch to on the next tick, or null if the sequence is not being replaced.
+     */
+    private volatile Sequence nextSequence = null;
+    private final Location location;
+    private final int frameDurationTicks;
+    private final int phaseOffset;
+    private final UUID owner;
+    private final PlaybackMode mode;
+
+    /**
+     * The number of ticks this playback has been running for.
+     */
+    private long ticksElapsed = 0;
+    /**
+     * The time at which the first frame was displayed, or -1 if it has not been yet.
+     */
+    private long startNanos = -1;
+    /**
+     * The number of frames since the start of the playback to the last frame that was emitted, or -1 if none were.
+     */
+    private long lastEmittedFrame = -1;
+    /**
+     * The weight of this playback when the particle budget is shared.
+     */
+    private int priority = 1;
+    private final RateMeter particlesEmitted = new RateMeter();
+    /**
+     * Whether nobody can see the playback, in which case it keeps time but emits nothing.
+     */
+    private volatile boolean dormant = false;
+    /**
+     * Whether a player came close while the playback was dormant. Set from any thread, handled by the thread rendering the playback.
+     */
+    private volatile boolean wakeRequested = false;
+    private volatile boolean stopped = false;
+    /**
+     * The index of the last frame that was emitted.
+     */
+    private volatile int displayedFrame = 0;
+    /**
+     * The index over the points of the displayed frame, built on the first query and rebuilt when the frame changes.
+     */
+    private KdTree index = null;
+    private Sequence indexedSequence = null;
+    private int indexedFrame = -1;
+
+    Playback(String name, Sequence sequence, Location location, int frameDurationTicks, int phaseOffset, UUID owner, PlaybackMode mode) {
+        this.name = name;
+        this.sequence = sequence;
+        this.location = location.clone();
+        this.frameDurationTicks = frameDurationTicks;
+        this.phaseOffset = Math.floorMod(phaseOffset, sequence.getTotalFrames());
+        this.owner = owner;
+        this.mode = mode;
+    }
+
+    /**
+     * Advances the playback by one tick.
+     * In wall clock mode, frames whose time has already passed are skipped.
+     * @param nanoTime the current value of {@link System#nanoTime()}
+     * @return the index of the frame to render during this tick, or -1 if nothing needs to be emitted
+     */
+    int tick(long nanoTime) {
+        this.switchSequence();
+
+        long frame;
+        if (this.mode == PlaybackMode.TICK) {
+            long tick = this.ticksElapsed++;
+            if (tick % this.frameDurationTicks != 0) {
+                return -1;
+            }
+            frame = tick / this.frameDurationTicks;
+        } else {
+            if (this.startNanos < 0) {
+                this.startNanos = nanoTime;
+            }
+            frame = (nanoTime - this.startNanos) / (this.frameDurationTicks * NANOS_PER_TICK);
+        }
+
+        int index = (int) ((this.phaseOffset + frame) % this.sequence.getTotalFrames());
+        long keyframe = frame - (index - this.sequence.getKeyframeIndex(index));
+        if (this.lastEmittedFrame >= keyframe) {
+            return -1; // Still covered by the trails of the last emitted frame
+        }
+
+        this.lastEmittedFrame = frame;
+        this.displayedFrame = index;
+        return index;
+    }
+
+    /**
+     * Advances the playback by one tick without emitting anything, so that it resumes at the right frame once woken up.
+     * @param nanoTime the current value of {@link System#nanoTime()}
+     */
+    void idle(long nanoTime) {
+        this.switchSequence();
+        if (this.mode == PlaybackMode.TICK) {
+            this.ticksElapsed++;
+        } else if (this.startNanos < 0) {
+            this.startNanos = nanoTime;
+        }
+    }
+
+    /**
+     * Switches to the sequence given by {@link #setSequence(Sequence)}, if any, so that its next frame is emitted even if the trails of the previous sequence still cover it.
+     */
+    private void switchSequence() {
+        Sequence next = this.nextSequence;
+        if (next == null) {
+            return;
+        }
+        this.nextSequence = null;
+        this.sequence = next;
+        this.lastEmittedFrame = Long.MIN_VALUE;
+    }
+
+    /**
+     * Checks whether a position is close enough to the playback for its particles to be seen from there.
+     * @param location the position to check
+     * @return true if the position is within the render distance of the bounds of the sequence
+     */
+    boolean isInRange(Location location) {
+        return this.isInRange(location.getWorld(), location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * Checks whether a position is close enough to the playback for its particles to be seen from there.
+     * @param world the world of the position
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     * @param z the z coordinate of the position
+     * @return true if the position is within the render distance of the bounds of the sequence
+     */
+    boolean isInRange(World world, double x, double y, double z) {
+        if (!Objects.equals(world, this.location.getWorld())) {
+            return false;
+        }
+
+        double[] bounds = this.sequence.getBounds();
+        double dx = Math.max(0, Math.max((this.location.getX() + bounds[0]) - x, x - (this.location.getX() + bounds[3])));
+        double dy = Math.max(0, Math.max((this.location.getY() + bounds[1]) - y, y - (this.location.getY() + bounds[4])));
+        double dz = Math.max(0, Math.max((this.location.getZ() + bounds[2]) - z, z - (this.location.getZ() + bounds[5])));
+        return (dx * dx) + (dy * dy) + (dz * dz) <= (double) Renderer.RENDER_DISTANCE * Renderer.RENDER_DISTANCE;
+    }
+
+    /**
+     * Checks whether the chunk the playback is anchored in is loaded.
+     * @return true if the chunk is loaded
+     */
+    boolean isChunkLoaded() {
+        return this.location.getWorld().isChunkLoaded(this.location.getBlockX() >> 4, this.location.getBlockZ() >> 4);
+    }
+
+    /**
+     * Finds the first point of the displayed frame a ray passes close to, such as the point a player is looking at.
+     * @param origin the start of the ray, in world coordinates
+     * @param direction the direction of the ray
+     * @param maxDistance the length of the ray
+     * @param tolerance the largest distance between the ray and a point it hits
+     * @return the position of the point in world coordinates, or null if no point is hit
+     */
+    public synchronized Vector3d raycast(Vector3d origin, Vector3d direction, double maxDistance, double tolerance) {
+        float[] points = this.getIndexedPoints();
+        int point = this.index.raycast(origin.getX() - this.location.getX(), origin.getY() - this.location.getY(), origin.getZ() - this.location.getZ(),
+                direction.getX(), direction.getY(), direction.getZ(), maxDistance, tolerance);
+        return this.toWorld(points, point);
+    }
+
+    /**
+     * Finds the point of the displayed frame closest to a position.
+     * @param position the position, in world coordinates
+     * @param maxDistance the largest distance a point can be at
+     * @return the position of the point in world coordinates, or null if no point is close enough
+     */
+    public synchronized Vector3d nearest(Vector3d position, double maxDistance) {
+        float[] points = this.getIndexedPoints();
+        int point = this.index.nearest(position.getX() - this.location.getX(), position.getY() - this.location.getY(), position.getZ() - this.location.getZ(), maxDistance);
+        return this.toWorld(points, point);
+    }
+
+    /**
+     * Gets the points of the displayed frame, making sure the index was built over them.
+     * Queries are rare, so the index is only rebuilt when asked after the frame changed, reusing its arrays.
+     */
+    private float[] getIndexedPoints() {
+        Sequence sequence = this.sequence;
+        int frame = this.displayedFrame % sequence.getTotalFrames(); // The displayed frame may still be one of the previous sequence
+        float[] points = sequence.getStoredFrame(frame);
+        if (this.index == null) {
+            this.index = new KdTree();
+        }
+        if (this.indexedSequence != sequence || this.indexedFrame != frame) {
+            this.index.build(points, 0, points.length / Frame.STRIDE, Frame.STRIDE);
+            this.indexedSequence = sequence;
+            this.indexedFrame = frame;
+        }
+        return points;
+    }
+
+    private Vector3d toWorld(float[] points, int point) {
+        if (point < 0) {
+            return null;
+        }
+        int p = point * Frame.STRIDE;
+        return new Vector3d(points[p] + this.location.getX(), points[p + 1] + this.location.getY(), points[p + 2] + this.location.getZ());
+    }
+
+    /**
+     * Stops the playback. It will be removed from the renderer during the next tick.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Gets the identifier of the playback, unique while the plugin is enabled.
+     * @return the identifier
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Gets the name of what is being played, used to identify the playback in metrics and recordings.
+     * @return the name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Checks whether the playback is suspended because nobody can see it.
+     * A dormant playback keeps time, so it resumes at the frame it would have reached.
+     * @return true if the playback is dormant
+     */
+    public boolean isDormant() {
+        return this.dormant;
+    }
+
+    void setDormant(boolean dormant) {
+        this.dormant = dormant;
+    }
+
+    /**
+     * Asks the thread rendering the playback to check whether it can wake up, without waiting for the next periodic check.
+     */
+    void requestWake() {
+        this.wakeRequested = true;
+    }
+
+    /**
+     * Checks whether a wake up was requested since the last call.
+     * @return true if a wake up was requested
+     */
+    boolean takeWakeRequest() {
+        if (!this.wakeRequested) {
+            return false;
+        }
+        this.wakeRequested = false;
+        return true;
+    }
+
+    public Sequence getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Replaces the sequence being played, without restarting the playback.
+     * The playback switches to it on its next tick and keeps time, so the new sequence shows from the next frame on.
+     * @param sequence the new sequence, which is shared and must not be modified
+     * @throws IllegalArgumentException if the sequence is empty
+     */
+    public void setSequence(Sequence sequence) {
+        if (sequence.isEmpty()) {
+            throw new IllegalArgumentException("Cannot play an empty sequence.");
+        }
+        this.nextSequence = sequence;
+    }
+
+    public Location getLocation() {
+        return this.location.clone();
+    }
+
+    public int getFrameDurationTicks() {
+        return this.frameDurationTicks;
+    }
+
+    public int getPhaseOffset() {
+        return this.phaseOffset;
+    }
+
+    /**
+     * Gets the player that started the playback.
+     * @return the UUID of the owner, or null if it was not started by a player
+     */
+    public UUID getOwner() {
+        return this.owner;
+    }
+
+    public PlaybackMode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Gets the meter of the particles emitted by this playback.
+     * @return the meter
+     */
+    public RateMeter getParticlesEmitted() {
+        return this.particlesEmitted;
+    }
+
+    public int getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Sets the weight of this playback when the particle budget of a tick is shared between playbacks.
+     * A playback with a priority of 2 gets twice the share of a playback with a priority of 1.
+     * @param priority the priority, at least 1
+     * @throws IllegalArgumentException if the priority is less than 1
+     */
+    public void setPriority(int priority) {
+        if (priority < 1) {
+            throw new IllegalArgumentException("The priority must be at least 1.");
+        }
+        this.priority = priority;
+    }
+}
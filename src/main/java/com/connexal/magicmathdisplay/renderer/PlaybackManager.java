@@ -0,0 +1,571 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import com.connexal.magicmathdisplay.MagicMathDisplay;
+import com.connexal.magicmathdisplay.Settings;
+import com.connexal.magicmathdisplay.metrics.MetricsRegistry;
+import com.connexal.magicmathdisplay.metrics.jfr.FrameEmissionEvent;
+import com.connexal.magicmathdisplay.metrics.jfr.FramePreparationEvent;
+import com.connexal.magicmathdisplay.metrics.jfr.PlaybackEvent;
+import com.connexal.magicmathdisplay.scheduler.TaskHandle;
+import com.connexal.magicmathdisplay.scheduler.TaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+/**
+ * Keeps track of all the running playbacks and renders them, once per tick.
+ * The particles of each tick are prepared by worker threads during the previous tick,
+ * so that the server thread only has to send them.
+ * On a regular server all the playbacks are rendered together by one task on the main thread.
+ * On a region-threaded server each playback is rendered by the region owning its location,
+ * so that playbacks in different regions render in parallel.
+ */
+public class PlaybackManager {
+    private static final int WORKER_COUNT = Math.clamp(Runtime.getRuntime().availableProcessors() - 1, 1, 4);
+    /**
+     * The smallest fraction of the points of a frame that is still sent when the server lags, as a stride.
+     */
+    private static final int MAX_DENSITY_STRIDE = 8;
+    private static final long NANOS_PER_TICK = 50_000_000L;
+
+    private final Settings settings;
+    private final MetricsRegistry metrics;
+    private final TaskScheduler scheduler;
+    /**
+     * Every running playback, whatever lane renders it. Read by event listeners and metrics from any thread.
+     */
+    private final List<Playback> playbacks = new CopyOnWriteArrayList<>();
+    private final List<RenderLane> lanes = new CopyOnWriteArrayList<>();
+    /**
+     * The lane rendering every playback when the server is not region-threaded, or null if nothing is playing.
+     */
+    private RenderLane globalLane = null;
+    /**
+     * The per player budget shared by the lanes ticking at the same time on a region-threaded server.
+     */
+    private final AtomicReference<TickBudget> sharedBudget = new AtomicReference<>(new TickBudget(-1, null));
+    private final ExecutorService workers;
+    /**
+     * The positions of the players, which lanes read instead of the players owned by other regions.
+     */
+    private final ViewerTracker viewers;
+    /**
+     * The average tick time of the server, sampled on the global thread as lanes must not read it from their region.
+     */
+    private volatile double averageTickTime = 0;
+    private final TaskHandle tickTimeSampler;
+
+    /**
+     * @param settings the settings of the plugin
+     * @param metrics the registry the playback metrics are registered in
+     * @param scheduler the scheduler running the render lanes
+     * @param server the server, whose players are tracked and whose tick time is sampled
+     */
+    public PlaybackManager(Settings settings, MetricsRegistry metrics, TaskScheduler scheduler, Server server) {
+        this.settings = settings;
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+        this.viewers = new ViewerTracker(scheduler);
+        for (Player player : server.getOnlinePlayers()) {
+            this.viewers.track(player);
+        }
+        this.tickTimeSampler = scheduler.runGlobalTimer(() -> this.averageTickTime = server.getAverageTickTime(), 0L, 20L);
+        this.metrics.registerGauge("playbacks.active", this.playbacks::size);
+        this.metrics.registerGauge("playbacks.dormant", this::getDormantCount);
+
+        AtomicInteger threadCounter = new AtomicInteger(0);
+        this.workers = Executors.newFixedThreadPool(WORKER_COUNT, runnable -> {
+            Thread thread = new Thread(runnable, "MagicMathDisplay-Render-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts playing a sequence in a loop at the given location.
+     * @param name the name of what is being played, used in metrics and recordings
+     * @param location the location to render the sequence at
+     * @param frameDurationTicks the duration to display each frame in ticks
+     * @param sequence the sequence of frames to render, which is shared and must not be modified
+     * @param phaseOffset the index of the frame to start at
+     * @param owner the player starting the playback, or null
+     * @return the new playback
+     * @throws IllegalArgumentException if the sequence is empty or the frame duration is not positive
+     */
+    public Playback start(String name, Location location, int frameDurationTicks, Sequence sequence, int phaseOffset, UUID owner) {
+        if (sequence.isEmpty()) {
+            throw new IllegalArgumentException("Cannot play an empty sequence.");
+        }
+        if (frameDurationTicks <= 0) {
+            throw new IllegalArgumentException("The frame duration must be at least 1 tick.");
+        }
+
+        Playback playback = new Playback(name, sequence, location, frameDurationTicks, phaseOffset, owner, this.settings.getPlaybackMode());
+        this.playbacks.add(playback);
+        this.metrics.registerGauge("playback." + playback.getId() + ".particles-per-second", playback.getParticlesEmitted()::getRate);
+        PlaybackManager.recordPlaybackEvent(playback, true);
+
+        if (this.scheduler.isRegionThreaded()) {
+            RenderLane lane = new RenderLane();
+            lane.playbacks.add(playback);
+            this.lanes.add(lane);
+            lane.task = this.scheduler.runRegionTimer(location, lane::tick, 0L, 1L);
+        } else {
+            if (this.globalLane == null) {
+                this.globalLane = new RenderLane();
+                this.lanes.add(this.globalLane);
+                this.globalLane.task = this.scheduler.runGlobalTimer(this.globalLane::tick, 0L, 1L);
+            }
+            this.globalLane.playbacks.add(playback);
+        }
+        return playback;
+    }
+
+    /**
+     * Stops every running playback.
+     */
+    public void stopAll() {
+        for (Playback playback : this.playbacks) {
+            playback.stop();
+            this.unregister(playback);
+        }
+
+        for (RenderLane lane : this.lanes) {
+            lane.task.cancel();
+        }
+        this.lanes.clear();
+        this.globalLane = null;
+    }
+
+    /**
+     * Stops every running playback and the worker threads. The manager cannot be used afterwards.
+     */
+    public void shutdown() {
+        this.stopAll();
+        this.tickTimeSampler.cancel();
+        this.viewers.shutdown();
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * Gets the playbacks that are currently running.
+     * @return a copy of the list of running playbacks
+     */
+    public List<Playback> getPlaybacks() {
+        return new ArrayList<>(this.playbacks);
+    }
+
+    /**
+     * Gets the number of playbacks suspended because nobody can see them.
+     * @return the number of dormant playbacks
+     */
+    public int getDormantCount() {
+        int count = 0;
+        for (Playback playback : this.playbacks) {
+            if (playback.isDormant()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Starts following the position of a player, to know which playbacks they can see.
+     * @param player the player who joined
+     */
+    void trackViewer(Player player) {
+        this.viewers.track(player);
+    }
+
+    /**
+     * Stops following the position of a player.
+     * @param player the player who left
+     */
+    void untrackViewer(Player player) {
+        this.viewers.untrack(player);
+    }
+
+    /**
+     * Wakes up the dormant playbacks that can be seen from a position, so that they don't wait for the next check.
+     * The check runs on the thread rendering each playback, this only flags the playbacks in range.
+     * @param location the position of a player
+     */
+    void wakeNear(Location location) {
+        for (Playback playback : this.playbacks) {
+            if (playback.isDormant() && playback.isInRange(location)) {
+                playback.requestWake();
+            }
+        }
+    }
+
+    /**
+     * Wakes up the dormant playbacks anchored in a chunk that was just loaded, if a player can see them.
+     * @param world the world of the chunk
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     */
+    void wakeInChunk(World world, int chunkX, int chunkZ) {
+        for (Playback playback : this.playbacks) {
+            Location location = playback.getLocation();
+            if (playback.isDormant() && world.equals(location.getWorld())
+                    && (location.getBlockX() >> 4) == chunkX && (location.getBlockZ() >> 4) == chunkZ) {
+                playback.requestWake();
+            }
+        }
+    }
+
+    /**
+     * Gets the share of the global particle budget of a tick a lane can use, in proportion to the priority of its playbacks.
+     * @param lane the lane
+     * @return the budget of the lane, 0 for no limit
+     */
+    private int laneBudget(RenderLane lane) {
+        int budget = this.settings.getParticlesPerTick();
+        if (budget <= 0 || this.lanes.size() <= 1) {
+            return budget;
+        }
+
+        long totalWeight = 0;
+        for (Playback playback : this.playbacks) {
+            if (!playback.isStopped() && !playback.isDormant()) {
+                totalWeight += playback.getPriority();
+            }
+        }
+        long laneWeight = 0;
+        for (Playback playback : lane.playbacks) {
+            if (!playback.isStopped() && !playback.isDormant()) {
+                laneWeight += playback.getPriority();
+            }
+        }
+        if (totalWeight == 0) {
+            return budget;
+        }
+        return (int) Math.max(1, (budget * laneWeight) / totalWeight);
+    }
+
+    /**
+     * Gets the per player budget of the current tick.
+     * On a region-threaded server the lanes of the same tick share it, so a player near several regions is not sent more.
+     * @param nanoTime the current value of {@link System#nanoTime()}
+     * @return the budget
+     */
+    private ParticleBudget tickBudget(long nanoTime) {
+        if (!this.scheduler.isRegionThreaded()) {
+            return new ParticleBudget(this.settings.getParticlesPerPlayerPerTick());
+        }
+
+        long tick = nanoTime / NANOS_PER_TICK;
+        return this.sharedBudget.updateAndGet(current -> current.tick() == tick
+                ? current
+                : new TickBudget(tick, new ParticleBudget(this.settings.getParticlesPerPlayerPerTick()))).budget();
+    }
+
+    /**
+     * The per player budget of a tick, identified by the number of ticks worth of wall clock time since an arbitrary origin.
+     * @param tick the tick the budget belongs to
+     * @param budget the budget
+     */
+    private record TickBudget(long tick, ParticleBudget budget) {
+    }
+
+    /**
+     * A group of playbacks rendered together by one scheduled task. Only accessed from the thread running that task,
+     * apart from the list of playbacks of the global lane which the main thread also adds to.
+     */
+    private class RenderLane {
+        private final List<Playback> playbacks = new ArrayList<>();
+        /**
+         * The batches being prepared for the next tick.
+         */
+        private final List<Future<EmissionBatch>> pending = new ArrayList<>();
+        /**
+         * The points that did not fit in the budget of the previous tick and still have to be emitted.
+         */
+        private final List<EmissionRequest> backlog = new ArrayList<>();
+        private volatile TaskHandle task = null;
+        private int ticksSinceIdleCheck = 0;
+
+        /**
+         * Sends the particles prepared for this tick and starts preparing those of the next one.
+         */
+        private void tick() {
+            for (Future<EmissionBatch> batch : this.pending) {
+                EmissionBatch emissionBatch = PlaybackManager.this.await(batch);
+                if (emissionBatch != null) {
+                    PlaybackManager.this.dispatch(emissionBatch);
+                }
+            }
+            this.pending.clear();
+
+            this.playbacks.removeIf(playback -> {
+                if (playback.isStopped()) {
+                    PlaybackManager.this.unregister(playback);
+                    return true;
+                }
+                return false;
+            });
+            if (this.playbacks.isEmpty()) {
+                this.task.cancel();
+                PlaybackManager.this.lanes.remove(this);
+                if (PlaybackManager.this.globalLane == this) {
+                    PlaybackManager.this.globalLane = null;
+                }
+                return;
+            }
+
+            int idleCheckInterval = PlaybackManager.this.settings.getIdleCheckInterval();
+            if (idleCheckInterval > 0 && ++this.ticksSinceIdleCheck >= idleCheckInterval) {
+                this.ticksSinceIdleCheck = 0;
+                for (Playback playback : this.playbacks) {
+                    playback.takeWakeRequest();
+                    playback.setDormant(!PlaybackManager.this.isWatched(playback));
+                }
+            } else {
+                for (Playback playback : this.playbacks) {
+                    if (playback.takeWakeRequest() && playback.isDormant() && PlaybackManager.this.isWatched(playback)) {
+                        playback.setDormant(false);
+                    }
+                }
+            }
+
+            int stride = PlaybackManager.this.densityStride();
+            long nanoTime = System.nanoTime();
+
+            // Points left over from the previous tick come first, unless their playback moved on to another frame
+            List<EmissionRequest> requests = new ArrayList<>();
+            this.backlog.removeIf(request -> request.getPlayback().isStopped() || request.getPlayback().isDormant());
+            for (Playback playback : this.playbacks) {
+                if (playback.isDormant()) {
+                    playback.idle(nanoTime);
+                    continue;
+                }
+
+                int frameIndex = playback.tick(nanoTime);
+                if (frameIndex >= 0) {
+                    this.backlog.removeIf(request -> request.getPlayback() == playback);
+                    requests.add(EmissionRequest.of(playback, frameIndex, stride));
+                }
+            }
+            requests.addAll(0, this.backlog);
+            this.backlog.clear();
+            if (requests.isEmpty()) {
+                return;
+            }
+
+            // Share the budget of the tick between the playbacks
+            int[] demands = new int[requests.size()];
+            int[] weights = new int[requests.size()];
+            for (int i = 0; i < requests.size(); i++) {
+                demands[i] = requests.get(i).getCount();
+                weights[i] = requests.get(i).getPlayback().getPriority();
+            }
+            int[] allowances = ParticleBudget.allocate(demands, weights, PlaybackManager.this.laneBudget(this));
+
+            // The workers only get the snapshots of the players, they must not access the world
+            Map<World, List<FramePreparer.Viewer>> viewers = new HashMap<>();
+            List<EmissionRequest> limitedRequests = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                EmissionRequest request = requests.get(i);
+                if (PlaybackManager.this.settings.getBudgetOverflow() == BudgetOverflow.SPREAD) {
+                    EmissionRequest remainder = request.remainder(allowances[i]);
+                    if (remainder != null) {
+                        this.backlog.add(remainder);
+                    }
+                }
+                limitedRequests.add(allowances[i] == 0 ? null : request.limit(allowances[i], PlaybackManager.this.settings.getBudgetOverflow()));
+                viewers.computeIfAbsent(request.getPlayback().getLocation().getWorld(), PlaybackManager.this.viewers::getViewers);
+            }
+            Map<Player, int[]> shares = PlaybackManager.this.sharePlayerBudgets(limitedRequests, weights, viewers, PlaybackManager.this.tickBudget(nanoTime));
+
+            for (int i = 0; i < limitedRequests.size(); i++) {
+                EmissionRequest limited = limitedRequests.get(i);
+                if (limited == null) {
+                    continue;
+                }
+
+                List<FramePreparer.Viewer> worldViewers = viewers.get(limited.getPlayback().getLocation().getWorld());
+                int[] requestShares = new int[worldViewers.size()];
+                for (int v = 0; v < worldViewers.size(); v++) {
+                    requestShares[v] = shares.get(worldViewers.get(v).player())[i];
+                }
+                this.pending.add(PlaybackManager.this.workers.submit(() -> {
+                    FramePreparationEvent event = new FramePreparationEvent();
+                    event.begin();
+                    long start = System.nanoTime();
+                    EmissionBatch batch = FramePreparer.prepare(limited, worldViewers, requestShares);
+                    PlaybackManager.this.metrics.getFramePreparation().record(System.nanoTime() - start);
+
+                    if (event.shouldCommit()) {
+                        event.demo = limited.getPlayback().getName();
+                        event.playbackId = limited.getPlayback().getId();
+                        event.frameIndex = limited.getFrameIndex();
+                        event.pointCount = limited.getSequence().getPointCount(limited.getFrameIndex());
+                        event.particleCount = batch.size();
+                        event.receiverCount = batch.getReceiverCount();
+                        event.commit();
+                    }
+                    return batch;
+                }));
+            }
+        }
+    }
+
+    /**
+     * Splits the per player budget of the tick between the requests of a lane, in proportion to the priority of their playbacks.
+     * A player's demand for a request is all of its points if the playback is within their range.
+     * @param requests the requests of the lane, null for those that emit nothing this tick
+     * @param weights the priority of each request
+     * @param viewers the players of each world the requests are in
+     * @param budget the per player budget of the tick
+     * @return for each player, the number of points of each request they can receive
+     */
+    private Map<Player, int[]> sharePlayerBudgets(List<EmissionRequest> requests, int[] weights, Map<World, List<FramePreparer.Viewer>> viewers, ParticleBudget budget) {
+        List<Player> players = new ArrayList<>();
+        List<int[]> demands = new ArrayList<>();
+        for (Map.Entry<World, List<FramePreparer.Viewer>> entry : viewers.entrySet()) {
+            for (FramePreparer.Viewer viewer : entry.getValue()) {
+                int[] playerDemands = new int[requests.size()];
+                for (int i = 0; i < requests.size(); i++) {
+                    EmissionRequest request = requests.get(i);
+                    if (request != null && request.getPlayback().isInRange(entry.getKey(), viewer.x(), viewer.y(), viewer.z())) {
+                        playerDemands[i] = request.getCount();
+                    }
+                }
+                players.add(viewer.player());
+                demands.add(playerDemands);
+            }
+        }
+
+        int[][] shares = budget.share(players, demands.toArray(new int[0][]), weights);
+        Map<Player, int[]> sharesByPlayer = new HashMap<>();
+        for (int i = 0; i < players.size(); i++) {
+            sharesByPlayer.put(players.get(i), shares[i]);
+        }
+        return sharesByPlayer;
+    }
+
+    /**
+     * Computes how many points are skipped for each point sent, depending on how loaded the server is.
+     * @return 1 if the server is healthy, more the further above the threshold the average tick time is
+     */
+    private int densityStride() {
+        double threshold = this.settings.getMsptThreshold();
+        if (threshold <= 0) {
+            return 1;
+        }
+
+        double mspt = this.averageTickTime;
+        if (mspt <= threshold) {
+            return 1;
+        }
+        return (int) Math.min(MAX_DENSITY_STRIDE, Math.ceil(mspt / threshold));
+    }
+
+    /**
+     * Sends a prepared batch and records what it cost.
+     * @param batch the batch to send
+     */
+    private void dispatch(EmissionBatch batch) {
+        if (batch.size() == 0 || batch.getPlayback().isStopped()) {
+            return;
+        }
+
+        FrameEmissionEvent event = new FrameEmissionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        batch.dispatch();
+        this.metrics.getFrameDispatch().record(System.nanoTime() - start);
+
+        if (event.shouldCommit()) {
+            EmissionRequest request = batch.getRequest();
+            event.demo = request.getPlayback().getName();
+            event.playbackId = request.getPlayback().getId();
+            event.frameIndex = request.getFrameIndex();
+            event.pointCount = request.getSequence().getPointCount(request.getFrameIndex());
+            event.particleCount = batch.size();
+            event.receiverCount = batch.getReceiverCount();
+            event.commit();
+        }
+
+        this.metrics.getParticlesEmitted().mark(batch.size());
+        this.metrics.getParticlesSent().mark(batch.getParticlesSent());
+        batch.getPlayback().getParticlesEmitted().mark(batch.size());
+    }
+
+    /**
+     * Forgets a stopped playback. Does nothing if it was already forgotten.
+     * @param playback the stopped playback
+     */
+    private void unregister(Playback playback) {
+        if (this.playbacks.remove(playback)) {
+            this.metrics.unregisterGauge("playback." + playback.getId() + ".particles-per-second");
+            PlaybackManager.recordPlaybackEvent(playback, false);
+        }
+    }
+
+
+    /**
+     * Checks whether anybody can see a playback. This only looks at the bounds of its sequence, not at its points.
+     * Must run on the thread rendering the playback, which owns its chunk.
+     * @param playback the playback to check
+     * @return true if its chunk is loaded and a player is within the render distance
+     */
+    private boolean isWatched(Playback playback) {
+        if (!playback.isChunkLoaded()) {
+            return false;
+        }
+
+        World world = playback.getLocation().getWorld();
+        for (FramePreparer.Viewer viewer : this.viewers.getViewers(world)) {
+            if (playback.isInRange(world, viewer.x(), viewer.y(), viewer.z())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void recordPlaybackEvent(Playback playback, boolean started) {
+        PlaybackEvent event = new PlaybackEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+
+        event.demo = playback.getName();
+        event.playbackId = playback.getId();
+        event.started = started;
+        event.owner = playback.getOwner() == null ? null : playback.getOwner().toString();
+        event.pointCount = playback.getSequence().getPointCount(0);
+        event.commit();
+    }
+
+    /**
+     * Waits for a batch to be prepared. This rarely blocks, as the workers had a whole tick to prepare it.
+     * @param batch the batch being prepared
+     * @return the prepared batch, or null if it could not be prepared
+     */
+    private EmissionBatch await(Future<EmissionBatch> batch) {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            MagicMathDisplay.getInstance().getLogger().log(Level.WARNING, "Unable to prepare frame", e.getCause());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.connexal.magicmathdisplay.renderer;
+
+/**
+ * How a playback chooses the frame to display.
+ */
+public enum PlaybackMode {
+    /**
+     * Advances exactly one frame each time the frame duration elapses in server ticks.
+     * Animations slow down when the server lags.
+     */
+    TICK,
+    /**
+     * Derives the frame from the real time elapsed since the playback started.
+     * Frames are skipped when ticks are late so that the animation keeps its speed.
+     */
+    WALL_CLOCK
+}
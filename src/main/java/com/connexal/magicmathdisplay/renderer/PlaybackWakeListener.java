@@ -0,0 +1,52 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+
+/**
+ * Wakes up dormant playbacks as soon as a player comes close to them or their chunk is loaded,
+ * instead of waiting for the next periodic check. Also keeps track of who is online, so that playbacks know who can see them.
+ */
+public class PlaybackWakeListener implements Listener {
+    private final PlaybackManager playbackManager;
+
+    public PlaybackWakeListener(PlaybackManager playbackManager) {
+        this.playbackManager = playbackManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (event.hasChangedBlock()) {
+            this.playbackManager.wakeNear(event.getTo());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        this.playbackManager.wakeNear(event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        this.playbackManager.trackViewer(event.getPlayer());
+        this.playbackManager.wakeNear(event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        this.playbackManager.untrackViewer(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        this.playbackManager.wakeInChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+}
@@ -4,31 +4,33 @@ import com.connexal.magicmathdisplay.MagicMathDisplay;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Particle;
-import org.bukkit.scheduler.BukkitTask;
+import com.connexal.magicmathdisplay.scheduler.TaskHandle;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Renderer {
-    private static final int RENDER_DISTANCE = 64;
-    private static final Colour DEFAULT_COLOUR = Colour.WHITE;
+    static final int RENDER_DISTANCE = 64;
+    static final Color DEFAULT_COLOUR = Color.fromRGB(Colour.WHITE.toRGBInt());
 
     /**
      * Renders a single frame in the specified world for the given duration.
      * @param location the location to render the frame at
      * @param durationTicks the duration to display the frame in ticks
-     * @param points the points to render in the frame
+     * @param points the packed points to render in the frame
+     * @param frameSpan the number of frames the velocity of each point has to be followed for
      */
-    private static void renderFrame(Location location, int durationTicks, double[][] points) {
-        for (double[] point : points) {
-            Location pointLocation = location.clone().add(point[0], point[1], point[2]);
-            Location endLocation = pointLocation.clone().add(point[3], point[4], point[5]);
+    private static void renderFrame(Location location, int durationTicks, float[] points, int frameSpan) {
+        for (int p = 0; p < points.length; p += Frame.STRIDE) {
+            Location pointLocation = location.clone().add(points[p], points[p + 1], points[p + 2]);
+            Location endLocation = pointLocation.clone().add((double) points[p + 3] * frameSpan, (double) points[p + 4] * frameSpan, (double) points[p + 5] * frameSpan);
 
             Particle.TRAIL.builder()
                     .location(pointLocation)
                     .count(1)
                     .receivers(Renderer.RENDER_DISTANCE, true)
                     .offset(0, 0, 0)
-                    .data(new Particle.Trail(endLocation, Color.fromRGB(DEFAULT_COLOUR.toRGBInt()), durationTicks))
+                    .data(new Particle.Trail(endLocation, DEFAULT_COLOUR, durationTicks))
                     .spawn();
         }
     }
@@ -40,7 +42,24 @@ public class Renderer {
      * @param frame the frame to render
      */
     public static void renderFrame(Location location, int durationTicks, Frame frame) {
-        Renderer.renderFrame(location, durationTicks, frame.getPoints());
+        Renderer.renderFrame(location, durationTicks, frame.getData(), 1);
+    }
+
+    /**
+     * Renders the frame of a sequence at the given index, if it is a keyframe.
+     * Keyframes are displayed for their whole span so that the dropped frames following them don't need to be rendered.
+     * @param location the location to render the frame at
+     * @param frameDurationTicks the duration to display each frame in ticks
+     * @param sequence the sequence the frame belongs to
+     * @param index the index of the frame in the sequence
+     */
+    static void renderSequenceFrame(Location location, int frameDurationTicks, Sequence sequence, int index) {
+        if (!sequence.isKeyframe(index)) {
+            return; // Already covered by the trails of its keyframe
+        }
+
+        int span = sequence.getKeyframeSpan(index);
+        Renderer.renderFrame(location, frameDurationTicks * span, sequence.getStoredFrame(index), span);
     }
 
     /**
@@ -55,16 +74,16 @@ public class Renderer {
         }
 
         final AtomicInteger frameCounter = new AtomicInteger(0);
+        final AtomicReference<TaskHandle> task = new AtomicReference<>();
 
-        MagicMathDisplay.getInstance().getServer().getScheduler().runTaskTimer(MagicMathDisplay.getInstance(), task -> {
+        task.set(MagicMathDisplay.getInstance().getScheduler().runRegionTimer(location, () -> {
             if (frameCounter.get() >= sequence.getTotalFrames()) {
-                task.cancel();
+                task.get().cancel();
                 return;
             }
 
-            double[][] frame = sequence.getFrame(frameCounter.getAndIncrement());
-            Renderer.renderFrame(location, frameDurationTicks, frame);
-        }, 0L, frameDurationTicks);
+            Renderer.renderSequenceFrame(location, frameDurationTicks, sequence, frameCounter.getAndIncrement());
+        }, 0L, frameDurationTicks));
     }
 
     /**
@@ -73,22 +92,21 @@ public class Renderer {
      * @param location the location to render the sequence at
      * @param frameDurationTicks the duration to display each frame in ticks
      * @param sequence the sequence of frames to render
-     * @return the BukkitTask representing the scheduled task or null if the sequence is empty
+     * @return the scheduled task or null if the sequence is empty
      */
-    public static BukkitTask loopSequence(Location location, int frameDurationTicks, Sequence sequence) {
+    public static TaskHandle loopSequence(Location location, int frameDurationTicks, Sequence sequence) {
         if (sequence.isEmpty()) {
             return null;
         }
 
         final AtomicInteger frameCounter = new AtomicInteger(0);
 
-        return MagicMathDisplay.getInstance().getServer().getScheduler().runTaskTimer(MagicMathDisplay.getInstance(), () -> {
+        return MagicMathDisplay.getInstance().getScheduler().runRegionTimer(location, () -> {
             if (frameCounter.get() >= sequence.getTotalFrames()) {
                 frameCounter.set(0);
             }
 
-            double[][] frame = sequence.getFrame(frameCounter.getAndIncrement());
-            Renderer.renderFrame(location, frameDurationTicks, frame);
+            Renderer.renderSequenceFrame(location, frameDurationTicks, sequence, frameCounter.getAndIncrement());
         }, 0L, frameDurationTicks);
     }
 
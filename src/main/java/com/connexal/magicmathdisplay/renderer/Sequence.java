@@ -5,27 +5,301 @@ import java.util.List;
 
 /**
  * Represents a sequence of frames in an animation.
+ * Frames that were dropped by the {@link SequenceOptimiser} are not stored, they are reconstructed from the
+ * keyframe preceding them by following its velocity. Frames that are equal are only stored once, even if their points
+ * are in another order: such frames keep the permutation leading from their points to those of the stored frame.
  */
 public class Sequence {
-    private final double[][][] framesArray;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    /**
+     * The frames that are actually stored in memory, each packed as described by {@link Frame}.
+     */
+    private final float[][] framesArray;
+    /**
+     * For each frame of the animation, the index of its stored frame or -1 if it has to be reconstructed.
+     */
+    private final int[] frameRefs;
+    /**
+     * For each keyframe sharing a stored frame that holds its points in another order, the index in the stored frame of each of its points.
+     * Null for the keyframes whose points are stored in their own order, and for reconstructed frames.
+     */
+    private final int[][] permutations;
+    /**
+     * For each keyframe, the number of frames it covers (itself included). Zero for reconstructed frames.
+     */
+    private final int[] keyframeSpans;
+    /**
+     * The shortest number of frames after which the animation repeats itself.
+     */
+    private final int period;
+    /**
+     * Whether the velocity of the points leads to the other end of an edge rather than to the next frame.
+     */
+    private final boolean edges;
+    /**
+     * The box containing every point of the animation and the end of its trail, as min x, y, z then max x, y, z.
+     */
+    private final double[] bounds;
+    /**
+     * For each stored frame, its points split into spatial tiles.
+     */
+    private final FrameTiles[] tiles;
+    /**
+     * Estimation of the memory retained by this sequence.
+     */
+    private final long retainedBytes;
+
+    private Sequence(float[][] framesArray, boolean edges) {
+        this(framesArray, identityRefs(framesArray.length), new int[framesArray.length][], framesArray.length, edges);
+    }
+
+    /**
+     * @param framesArray the stored frames
+     * @param frameRefs the index of the stored frame of each frame, or -1 if it has to be reconstructed
+     * @param permutations the permutation of each keyframe whose points are stored in another order, null elements otherwise
+     * @param period the shortest number of frames after which the animation repeats itself
+     * @param edges whether the frames contain wireframe edges
+     */
+    Sequence(float[][] framesArray, int[] frameRefs, int[][] permutations, int period, boolean edges) {
+        if (frameRefs.length > 0 && frameRefs[0] < 0) {
+            throw new IllegalArgumentException("The first frame of a sequence must be a keyframe.");
+        }
 
-    private Sequence(double[][][] framesArray) {
         this.framesArray = framesArray;
+        this.frameRefs = frameRefs;
+        this.permutations = permutations;
+        this.period = period;
+        this.edges = edges;
+        this.keyframeSpans = new int[frameRefs.length];
+
+        int lastKeyframe = 0;
+        for (int i = 0; i < frameRefs.length; i++) {
+            if (frameRefs[i] >= 0) {
+                lastKeyframe = i;
+            }
+            this.keyframeSpans[lastKeyframe]++;
+        }
+
+        // A stored frame may be shared by several keyframes, its trails go as far as the longest span
+        int[] maxSpans = new int[framesArray.length];
+        for (int i = 0; i < frameRefs.length; i++) {
+            if (frameRefs[i] >= 0) {
+                maxSpans[frameRefs[i]] = Math.max(maxSpans[frameRefs[i]], this.keyframeSpans[i]);
+            }
+        }
+        this.bounds = this.computeBounds(maxSpans);
+        this.tiles = new FrameTiles[framesArray.length];
+        for (int i = 0; i < framesArray.length; i++) {
+            this.tiles[i] = FrameTiles.of(framesArray[i], maxSpans[i]);
+        }
+
+        long bytes = ARRAY_HEADER_BYTES + ((long) REFERENCE_BYTES * framesArray.length);
+        for (float[] frame : framesArray) {
+            bytes += ARRAY_HEADER_BYTES + ((long) Float.BYTES * frame.length);
+        }
+        bytes += 2 * (ARRAY_HEADER_BYTES + ((long) Integer.BYTES * frameRefs.length)); // Frame references and keyframe spans
+        bytes += ARRAY_HEADER_BYTES + ((long) REFERENCE_BYTES * permutations.length);
+        for (int[] permutation : permutations) {
+            if (permutation != null) {
+                bytes += ARRAY_HEADER_BYTES + ((long) Integer.BYTES * permutation.length);
+            }
+        }
+        for (FrameTiles frameTiles : this.tiles) {
+            bytes += REFERENCE_BYTES + frameTiles.getRetainedBytes(ARRAY_HEADER_BYTES);
+        }
+        this.retainedBytes = bytes;
+    }
+
+    private double[] computeBounds(int[] maxSpans) {
+        double[] bounds = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < this.framesArray.length; i++) {
+            float[] frame = this.framesArray[i];
+            for (int p = 0; p < frame.length; p += Frame.STRIDE) {
+                for (int axis = 0; axis < 3; axis++) {
+                    double end = frame[p + axis] + ((double) frame[p + axis + 3] * maxSpans[i]);
+                    bounds[axis] = Math.min(bounds[axis], Math.min(frame[p + axis], end));
+                    bounds[axis + 3] = Math.max(bounds[axis + 3], Math.max(frame[p + axis], end));
+                }
+            }
+        }
+
+        if (bounds[0] > bounds[3]) {
+            return new double[6]; // No points at all
+        }
+        return bounds;
+    }
+
+    private static int[] identityRefs(int length) {
+        int[] refs = new int[length];
+        for (int i = 0; i < length; i++) {
+            refs[i] = i;
+        }
+        return refs;
+    }
+
+    /**
+     * Returns the frame at the specified index, with its points in the order they were added.
+     * If the frame was dropped, it is reconstructed from its keyframe, and if it shares a stored frame holding its points
+     * in another order, they are put back in order. Both allocate a new array.
+     * @param index the index of the frame to retrieve
+     * @return the points of the frame, packed as described by {@link Frame}
+     */
+    public float[] getFrame(int index) {
+        float[] frame = this.getStoredFrame(index);
+        int[] permutation = this.getPermutation(index);
+        if (permutation == null) {
+            return frame;
+        }
+
+        float[] ordered = new float[frame.length];
+        for (int i = 0; i < permutation.length; i++) {
+            System.arraycopy(frame, permutation[i] * Frame.STRIDE, ordered, i * Frame.STRIDE, Frame.STRIDE);
+        }
+        return ordered;
     }
 
     /**
-     * Returns the frame at the specified index.
+     * Returns the frame at the specified index with its points in the order of its stored frame, which is the order of its tiles.
+     * This is enough when the order of the points does not matter, such as to render them, and only allocates for dropped frames.
      * @param index the index of the frame to retrieve
-     * @return the frame as a 2D array of doubles
+     * @return the points of the frame, packed as described by {@link Frame}
+     */
+    float[] getStoredFrame(int index) {
+        int ref = this.frameRefs[index];
+        if (ref >= 0) {
+            return this.framesArray[ref];
+        }
+
+        int keyframeIndex = this.getKeyframeIndex(index);
+        float[] keyframe = this.framesArray[this.frameRefs[keyframeIndex]];
+        int step = index - keyframeIndex;
+
+        float[] frame = keyframe.clone();
+        for (int p = 0; p < frame.length; p += Frame.STRIDE) {
+            // Accumulate in double, the velocity is multiplied by up to the whole keyframe span
+            frame[p] = (float) (keyframe[p] + ((double) keyframe[p + 3] * step));
+            frame[p + 1] = (float) (keyframe[p + 1] + ((double) keyframe[p + 4] * step));
+            frame[p + 2] = (float) (keyframe[p + 2] + ((double) keyframe[p + 5] * step));
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the permutation leading from the points of a frame to those of its stored frame.
+     * A dropped frame follows the order of its keyframe.
+     * @param index the index of the frame
+     * @return the index in the stored frame of each point of the frame, or null if they are in the same order
      */
-    public double[][] getFrame(int index) {
-        return this.framesArray[index];
+    int[] getPermutation(int index) {
+        return this.permutations[this.getKeyframeIndex(index)];
+    }
+
+    /**
+     * Checks whether the frame at the specified index is stored or has to be reconstructed.
+     * @param index the index of the frame
+     * @return true if the frame is a keyframe
+     */
+    public boolean isKeyframe(int index) {
+        return this.frameRefs[index] >= 0;
+    }
+
+    /**
+     * Returns the index of the keyframe the specified frame is reconstructed from.
+     * @param index the index of the frame
+     * @return the index of the keyframe, which is the frame itself if it is a keyframe
+     */
+    public int getKeyframeIndex(int index) {
+        while (this.frameRefs[index] < 0) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of frames covered by the specified keyframe, itself included.
+     * @param index the index of the keyframe
+     * @return the span of the keyframe, or 0 if the frame is not a keyframe
+     */
+    public int getKeyframeSpan(int index) {
+        return this.keyframeSpans[index];
+    }
+
+    /**
+     * Returns the number of points in the frame at the specified index, without reconstructing it.
+     * @param index the index of the frame
+     * @return the number of points
+     */
+    public int getPointCount(int index) {
+        return this.framesArray[this.frameRefs[this.getKeyframeIndex(index)]].length / Frame.STRIDE;
     }
 
     public int getTotalFrames() {
+        return this.frameRefs.length;
+    }
+
+    /**
+     * Returns the number of frames actually stored in memory.
+     * @return the number of stored frames
+     */
+    public int getStoredFrames() {
         return this.framesArray.length;
     }
 
+    /**
+     * Returns the ratio between the number of frames in the animation and the number of stored frames.
+     * @return the compression ratio, 1 if no frames were dropped
+     */
+    public double getCompressionRatio() {
+        if (this.framesArray.length == 0) {
+            return 1;
+        }
+        return (double) this.getTotalFrames() / this.getStoredFrames();
+    }
+
+    /**
+     * Returns the shortest number of frames after which the animation repeats itself.
+     * @return the period of the animation, which is the total number of frames if it never repeats itself
+     */
+    public int getPeriod() {
+        return this.period;
+    }
+
+    /**
+     * Checks whether the frames contain wireframe edges, in which case the velocity of the points is not their motion.
+     * @return true if the frames contain edges
+     */
+    public boolean hasEdges() {
+        return this.edges;
+    }
+
+    /**
+     * Returns the box containing every point of the animation, relative to where it is played.
+     * @return min x, y, z then max x, y, z, which must not be modified
+     */
+    double[] getBounds() {
+        return this.bounds;
+    }
+
+    /**
+     * Returns the spatial tiles of the frame at the specified index, without reconstructing it.
+     * A dropped frame shares the tiles of its keyframe, whose bounds include the trails covering it.
+     * @param index the index of the frame
+     * @return the tiles, indexed like the points of {@link #getStoredFrame(int)}
+     */
+    FrameTiles getTiles(int index) {
+        return this.tiles[this.frameRefs[this.getKeyframeIndex(index)]];
+    }
+
+    /**
+     * Returns an estimation of the memory retained by this sequence, assuming compressed references.
+     * @return the number of bytes
+     */
+    public long getRetainedBytes() {
+        return this.retainedBytes;
+    }
+
     public boolean isEmpty() {
         return this.getTotalFrames() == 0;
     }
@@ -42,23 +316,56 @@ public class Sequence {
      * Builder class for constructing Sequence instances.
      */
     public static class SequenceBuilder {
-        private final List<double[][]> frames;
+        /**
+         * Default maximum difference between two components for frames to be considered duplicates.
+         * This is only meant to absorb floating point errors.
+         */
+        private static final double DEFAULT_DUPLICATE_TOLERANCE = 1e-6;
+
+        private final List<float[]> frames;
+        private double duplicateTolerance = DEFAULT_DUPLICATE_TOLERANCE;
+        private boolean edges = false;
 
         private SequenceBuilder() {
             this.frames = new ArrayList<>();
         }
 
+        /**
+         * Sets the tolerance used to detect duplicate frames, which are only stored once.
+         * @param tolerance the maximum difference between two components for them to be considered equal, 0 to disable detection
+         * @return the current SequenceBuilder instance
+         * @throws IllegalArgumentException if the tolerance is negative
+         */
+        public SequenceBuilder duplicateTolerance(double tolerance) {
+            if (tolerance < 0) {
+                throw new IllegalArgumentException("The duplicate tolerance cannot be negative.");
+            }
+            this.duplicateTolerance = tolerance;
+            return this;
+        }
+
         /**
          * Adds a frame to the sequence.
          * @param frame the frame to add
          * @return the current SequenceBuilder instance
          */
         public SequenceBuilder addFrame(Frame frame) {
-            this.frames.add(frame.getPoints());
+            this.frames.add(frame.getData());
+            this.edges |= frame.hasEdges();
             return this;
         }
 
+        /**
+         * Builds the Sequence instance, with the velocity of each point leading to its position in the next frame.
+         * @param looping whether the last frame leads back to the first one
+         * @return the constructed Sequence containing all added frames
+         * @throws IllegalStateException if the frames don't all have the same number of points, or contain edges
+         */
         public Sequence buildVelocity(boolean looping) {
+            if (this.edges) {
+                throw new IllegalStateException("Velocity can't be inferred for frames containing edges.");
+            }
+
             int numFrames = this.frames.size();
             if (numFrames < 2) {
                 return this.build(); // Not enough frames to infer velocity
@@ -72,31 +379,31 @@ public class Sequence {
             }
 
             // Calculate velocities by taking differences between consecutive frames
-            double[][][] framesArray = new double[numFrames][][];
+            float[][] framesArray = new float[numFrames][];
             for (int i = 0; i < numFrames; i++) {
-                double[][] currentFrame = this.frames.get(i);
-                double[][] nextFrame = this.frames.get((i + 1 + numFrames) % numFrames);
+                float[] currentFrame = this.frames.get(i);
+                float[] nextFrame = this.frames.get((i + 1 + numFrames) % numFrames);
                 if (!looping && i == 0) {
                     // First frame, no previous frame to compare to
                     nextFrame = currentFrame;
                 }
 
-                double[][] velocityFrame = new double[currentFrame.length][6];
-                for (int j = 0; j < currentFrame.length; j++) {
+                float[] velocityFrame = new float[currentFrame.length];
+                for (int p = 0; p < currentFrame.length; p += Frame.STRIDE) {
                     // Position
-                    velocityFrame[j][0] = currentFrame[j][0];
-                    velocityFrame[j][1] = currentFrame[j][1];
-                    velocityFrame[j][2] = currentFrame[j][2];
+                    velocityFrame[p] = currentFrame[p];
+                    velocityFrame[p + 1] = currentFrame[p + 1];
+                    velocityFrame[p + 2] = currentFrame[p + 2];
                     // Velocity
-                    velocityFrame[j][3] = nextFrame[j][0] - currentFrame[j][0];
-                    velocityFrame[j][4] = nextFrame[j][1] - currentFrame[j][1];
-                    velocityFrame[j][5] = nextFrame[j][2] - currentFrame[j][2];
+                    velocityFrame[p + 3] = nextFrame[p] - currentFrame[p];
+                    velocityFrame[p + 4] = nextFrame[p + 1] - currentFrame[p + 1];
+                    velocityFrame[p + 5] = nextFrame[p + 2] - currentFrame[p + 2];
                 }
 
                 framesArray[i] = velocityFrame;
             }
 
-            return new Sequence(framesArray);
+            return this.createSequence(framesArray);
         }
 
         /**
@@ -104,11 +411,18 @@ public class Sequence {
          * @return the constructed Sequence containing all added frames
          */
         public Sequence build() {
-            double[][][] framesArray = new double[frames.size()][][];
+            float[][] framesArray = new float[frames.size()][];
             for (int i = 0; i < frames.size(); i++) {
                 framesArray[i] = frames.get(i);
             }
-            return new Sequence(framesArray);
+            return this.createSequence(framesArray);
+        }
+
+        private Sequence createSequence(float[][] framesArray) {
+            if (this.duplicateTolerance == 0) {
+                return new Sequence(framesArray, this.edges);
+            }
+            return FrameDeduplicator.deduplicate(framesArray, this.duplicateTolerance, this.edges);
         }
     }
 }
@@ -0,0 +1,139 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class for reducing the memory and render cost of sequences.
+ */
+public class SequenceOptimiser {
+    /**
+     * The maximum number of frames a single keyframe can cover.
+     * This bounds both the cost of the search and the length of the trails sent to the players.
+     */
+    private static final int MAX_KEYFRAME_SPAN = 32;
+
+    /**
+     * Drops every frame that can be reproduced by linearly interpolating between the surviving frames
+     * without any point deviating from its real position by more than the given error.
+     * The surviving keyframes have their velocity adjusted so that following it over their span leads to the next keyframe,
+     * which lets the renderer draw a whole span with a single, longer, trail.
+     * @param sequence the sequence to reduce
+     * @param maxError the maximum distance in blocks between a reconstructed point and its real position
+     * @return a new sequence with the redundant frames dropped, or the same sequence if that would not store fewer frames or if its frames contain edges
+     * @throws IllegalArgumentException if maxError is negative
+     */
+    public static Sequence reduceKeyframes(Sequence sequence, double maxError) {
+        if (maxError < 0) {
+            throw new IllegalArgumentException("The maximum error cannot be negative.");
+        }
+
+        int numFrames = sequence.getTotalFrames();
+        if (numFrames < 3 || maxError == 0) {
+            return sequence; // Nothing can be dropped
+        }
+        if (sequence.hasEdges()) {
+            return sequence; // The velocity draws the edges, it can't be replaced by the motion of the points
+        }
+
+        // Frames are taken with their points in order, as the interpolation matches points by index
+        float[][] frames = new float[numFrames][];
+        for (int i = 0; i < numFrames; i++) {
+            frames[i] = sequence.getFrame(i);
+            if (frames[i].length != frames[0].length) {
+                return sequence; // Points can't be matched between frames
+            }
+        }
+
+        double maxErrorSquared = maxError * maxError;
+        List<float[]> keyframes = new ArrayList<>();
+        Map<float[], Integer> keptFrames = new IdentityHashMap<>(); // Keeps duplicate frames shared
+        int[] frameRefs = new int[numFrames];
+        int[][] permutations = new int[numFrames][];
+
+        boolean dropped = false;
+        int start = 0;
+        while (start < numFrames) {
+            // Extend the span for as long as the interpolation stays within the allowed error
+            int end = start + 1;
+            while (end + 1 < numFrames && end + 1 - start <= MAX_KEYFRAME_SPAN && isLinear(frames, start, end + 1, maxErrorSquared)) {
+                end++;
+            }
+
+            int span = end - start;
+            if (end >= numFrames || span == 1) {
+                // Nothing dropped, keep the original velocities, and the stored frame with its permutation so that it stays shared
+                frameRefs[start] = keptFrames.computeIfAbsent(sequence.getStoredFrame(start), frame -> {
+                    keyframes.add(frame);
+                    return keyframes.size() - 1;
+                });
+                permutations[start] = sequence.getPermutation(start);
+            } else {
+                keyframes.add(SequenceOptimiser.spanKeyframe(frames[start], frames[end], span));
+                frameRefs[start] = keyframes.size() - 1;
+                dropped = true;
+            }
+
+            for (int i = start + 1; i < end && i < numFrames; i++) {
+                frameRefs[i] = -1;
+            }
+            start = end;
+        }
+
+        if (!dropped || keyframes.size() > sequence.getStoredFrames()) {
+            return sequence; // Shared duplicate frames can make the reduced sequence larger
+        }
+        return new Sequence(keyframes.toArray(new float[0][]), frameRefs, permutations, sequence.getPeriod(), false);
+    }
+
+    /**
+     * Checks whether all the frames strictly between start and end are within the error of the interpolation between both.
+     * @param frames the frames of the sequence
+     * @param start the index of the first frame
+     * @param end the index of the last frame
+     * @param maxErrorSquared the square of the maximum allowed error
+     * @return true if the frames in between can be dropped
+     */
+    private static boolean isLinear(float[][] frames, int start, int end, double maxErrorSquared) {
+        float[] startFrame = frames[start];
+        float[] endFrame = frames[end];
+
+        for (int i = start + 1; i < end; i++) {
+            double t = (double) (i - start) / (end - start);
+            float[] frame = frames[i];
+
+            for (int p = 0; p < frame.length; p += Frame.STRIDE) {
+                double dx = startFrame[p] + (((double) endFrame[p] - startFrame[p]) * t) - frame[p];
+                double dy = startFrame[p + 1] + (((double) endFrame[p + 1] - startFrame[p + 1]) * t) - frame[p + 1];
+                double dz = startFrame[p + 2] + (((double) endFrame[p + 2] - startFrame[p + 2]) * t) - frame[p + 2];
+                if ((dx * dx) + (dy * dy) + (dz * dz) > maxErrorSquared) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a keyframe whose per-frame velocity leads from the start frame to the end frame in the given number of frames.
+     * @param startFrame the frame the keyframe is based on
+     * @param endFrame the next keyframe
+     * @param span the number of frames between both
+     * @return the new keyframe
+     */
+    private static float[] spanKeyframe(float[] startFrame, float[] endFrame, int span) {
+        float[] keyframe = new float[startFrame.length];
+        for (int p = 0; p < startFrame.length; p += Frame.STRIDE) {
+            keyframe[p] = startFrame[p];
+            keyframe[p + 1] = startFrame[p + 1];
+            keyframe[p + 2] = startFrame[p + 2];
+            keyframe[p + 3] = (float) (((double) endFrame[p] - startFrame[p]) / span);
+            keyframe[p + 4] = (float) (((double) endFrame[p + 1] - startFrame[p + 1]) / span);
+            keyframe[p + 5] = (float) (((double) endFrame[p + 2] - startFrame[p + 2]) / span);
+        }
+        return keyframe;
+    }
+}
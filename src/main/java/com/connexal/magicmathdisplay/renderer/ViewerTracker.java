@@ -0,0 +1,103 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import com.connexal.magicmathdisplay.scheduler.TaskHandle;
+import com.connexal.magicmathdisplay.scheduler.TaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a snapshot of the position of every online player, refreshed each tick by a task running on the thread owning the player.
+ * Render lanes read these snapshots instead of the players, as on a region-threaded server a lane must not access
+ * the players owned by other regions. Snapshots can be read from any thread.
+ */
+class ViewerTracker {
+    private final TaskScheduler scheduler;
+    private final Map<UUID, TrackedPlayer> players = new ConcurrentHashMap<>();
+
+    ViewerTracker(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts refreshing the snapshot of a player. Its position is known from the next tick.
+     * @param player the player to track
+     */
+    void track(Player player) {
+        TrackedPlayer tracked = new TrackedPlayer(player);
+        TrackedPlayer previous = this.players.put(player.getUniqueId(), tracked);
+        if (previous != null) {
+            previous.task.cancel();
+        }
+        tracked.task = this.scheduler.runEntityTimer(player, tracked::refresh, 1L, 1L);
+    }
+
+    /**
+     * Stops refreshing the snapshot of a player and forgets it.
+     * @param player the player to forget
+     */
+    void untrack(Player player) {
+        TrackedPlayer tracked = this.players.remove(player.getUniqueId());
+        if (tracked != null) {
+            tracked.task.cancel();
+        }
+    }
+
+    /**
+     * Stops refreshing every snapshot.
+     */
+    void shutdown() {
+        for (TrackedPlayer tracked : this.players.values()) {
+            tracked.task.cancel();
+        }
+        this.players.clear();
+    }
+
+    /**
+     * Gets the last known position of the players of a world.
+     * @param world the world
+     * @return a new list of the players of the world
+     */
+    List<FramePreparer.Viewer> getViewers(World world) {
+        List<FramePreparer.Viewer> viewers = new ArrayList<>();
+        for (TrackedPlayer tracked : this.players.values()) {
+            Snapshot snapshot = tracked.snapshot;
+            if (snapshot != null && snapshot.world().equals(world)) {
+                viewers.add(snapshot.viewer());
+            }
+        }
+        return viewers;
+    }
+
+    /**
+     * The position of a player at the time of the snapshot.
+     * @param world the world the player was in
+     * @param viewer the player and their position
+     */
+    private record Snapshot(World world, FramePreparer.Viewer viewer) {
+    }
+
+    private static class TrackedPlayer {
+        private final Player player;
+        private volatile TaskHandle task = () -> {};
+        private volatile Snapshot snapshot = null;
+
+        private TrackedPlayer(Player player) {
+            this.player = player;
+        }
+
+        /**
+         * Takes a new snapshot of the player, on the thread owning them.
+         */
+        private void refresh() {
+            Location location = this.player.getLocation();
+            this.snapshot = new Snapshot(location.getWorld(), new FramePreparer.Viewer(this.player, location.getX(), location.getY(), location.getZ()));
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.ScalarField;
+import com.connexal.magicmathdisplay.math.Vector3d;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Utility class for creating fractal primitives.
+ * <p>
+ * Fractals can grow without limit, so every builder takes a hard cap on the number of points and allocates its output once,
+ * at its final size. Generation runs in parallel on fixed chunks of that output, and random choices are seeded per chunk,
+ * so the same arguments always give the same points whatever the number of threads.
+ */
+public class FractalBuilder {
+    /**
+     * The largest number of points or edges a fractal can be built with.
+     */
+    public static final int MAX_POINTS = 1_000_000;
+    /**
+     * The number of points generated by a single chaos game task.
+     */
+    private static final int CHUNK_SIZE = 4096;
+    /**
+     * The number of iterations each chunk runs before keeping points, so that they are on the attractor.
+     */
+    private static final int BURN_IN = 32;
+
+    /**
+     * Creates a Sierpinski tetrahedron with the chaos game.
+     * @param centre the centre of the tetrahedron
+     * @param radius the distance from the centre to the corners
+     * @param pointCount the number of points
+     * @param seed the seed of the random choices
+     * @throws IllegalArgumentException if pointCount is not between 1 and {@link #MAX_POINTS}
+     */
+    public static Rotatable sierpinskiTetrahedron(Vector3d centre, double radius, int pointCount, long seed) {
+        // Every map halves the distance to one of the corners
+        double[][] maps = new double[4][];
+        double[][] corners = {{1, 1, 1}, {1, -1, -1}, {-1, 1, -1}, {-1, -1, 1}};
+        for (int i = 0; i < corners.length; i++) {
+            double scale = radius / Math.sqrt(3);
+            maps[i] = new double[] {
+                    0.5, 0, 0, 0.5 * scale * corners[i][0],
+                    0, 0.5, 0, 0.5 * scale * corners[i][1],
+                    0, 0, 0.5, 0.5 * scale * corners[i][2]
+            };
+        }
+
+        Vector3d[] points = FractalBuilder.play(maps, new double[] {1, 1, 1, 1}, pointCount, seed, 1, centre);
+        return new Rotatable(centre.copy(), Vector3d.up(), points);
+    }
+
+    /**
+     * Creates a Barnsley fern with the chaos game.
+     * @param centre the centre of the fern
+     * @param height the height of the fern
+     * @param pointCount the number of points
+     * @param seed the seed of the random choices
+     * @param normal the normal vector of the fern's plane (should be a unit vector)
+     * @throws IllegalArgumentException if pointCount is not between 1 and {@link #MAX_POINTS}
+     */
+    public static Rotatable barnsleyFern(Vector3d centre, double height, int pointCount, long seed, Vector3d normal) {
+        // The classic maps of the fern, 10 units high, in the XY plane
+        double[][] maps = {
+                {0, 0, 0, 0, 0, 0.16, 0, 0, 0, 0, 0, 0},
+                {0.85, 0.04, 0, 0, -0.04, 0.85, 0, 1.6, 0, 0, 0, 0},
+                {0.2, -0.26, 0, 0, 0.23, 0.22, 0, 1.6, 0, 0, 0, 0},
+                {-0.15, 0.28, 0, 0, 0.26, 0.24, 0, 0.44, 0, 0, 0, 0}
+        };
+        double[] weights = {0.01, 0.85, 0.07, 0.07};
+
+        Vector3d[] points = FractalBuilder.play(maps, weights, pointCount, seed, height / 10, new Vector3d(0, -height / 2, 0));
+        Rotatable obj = new Rotatable(Vector3d.zero(), Vector3d.south(), points);
+        obj.setCentre(centre); // Move to the correct centre
+        obj.setNormal(normal); // Rotate to the correct normal
+        return obj;
+    }
+
+    /**
+     * Creates the attractor of an iterated function system with the chaos game: starting from the origin, a random map is
+     * applied to the current point over and over, and every point reached is kept.
+     * @param maps the affine maps, each as a 3x4 matrix of 12 values in row order, the last column being the translation
+     * @param weights the relative probabilities of picking each map
+     * @param pointCount the number of points
+     * @param seed the seed of the random choices
+     * @throws IllegalArgumentException if the maps or weights are not valid, or pointCount is not between 1 and {@link #MAX_POINTS}
+     */
+    public static Rotatable chaosGame(double[][] maps, double[] weights, int pointCount, long seed) {
+        Vector3d[] points = FractalBuilder.play(maps, weights, pointCount, seed, 1, Vector3d.zero());
+        return new Rotatable(Vector3d.zero(), Vector3d.up(), points);
+    }
+
+    /**
+     * Creates a tree by growing a bracketed L-system in three dimensions.
+     * Each generation replaces every branch tip by three branches, and every segment by two.
+     * @param base the foot of the trunk
+     * @param segmentLength the length of a single segment
+     * @param generations the number of times the rules are applied
+     * @param maxEdges the largest number of edges kept, the rest of the tree being left out
+     * @throws IllegalArgumentException if generations is negative or maxEdges is not between 1 and {@link #MAX_POINTS}
+     */
+    public static Wireframe tree(Vector3d base, double segmentLength, int generations, int maxEdges) {
+        return FractalBuilder.lSystem(base, "FA", Map.of('A', "[&FA]////[&FA]////[&FA]", 'F', "FF"), Math.PI / 6, segmentLength, generations, maxEdges);
+    }
+
+    /**
+     * Creates the wireframe drawn by a turtle following a bracketed L-system, starting at a point and heading up.
+     * <p>
+     * The turtle understands {@code F} (draw a segment), {@code f} (move without drawing), {@code +} and {@code -} (turn),
+     * {@code &} and {@code ^} (pitch), {@code \} and {@code /} (roll), {@code |} (turn around), and {@code [} and {@code ]}
+     * (save and restore its position and orientation). Other symbols are only used by the rules.
+     * <p>
+     * The expanded string is never built: symbols are expanded recursively as the turtle reads them, and large subtrees are handed
+     * to other threads along with the state the turtle would be in when reaching them, computed without expanding what comes before.
+     * @param base the starting point of the turtle
+     * @param axiom the initial string
+     * @param rules the string each symbol is replaced with at every generation, symbols without a rule being kept
+     * @param angle the angle in radians of every turn, pitch and roll
+     * @param segmentLength the distance moved by {@code F} and {@code f}
+     * @param generations the number of times the rules are applied
+     * @param maxEdges the largest number of edges kept, the rest of the drawing being left out
+     * @throws IllegalArgumentException if a string has unbalanced brackets or symbols outside ASCII, generations is negative,
+     *                                  or maxEdges is not between 1 and {@link #MAX_POINTS}
+     */
+    public static Wireframe lSystem(Vector3d base, String axiom, Map<Character, String> rules, double angle, double segmentLength, int generations, int maxEdges) {
+        FractalBuilder.checkCount(maxEdges);
+        LSystem system = new LSystem(axiom, rules, angle, segmentLength, generations);
+        int edgeCount = (int) Math.min(system.getEdgeCount(), maxEdges);
+        if (edgeCount == 0) {
+            throw new IllegalArgumentException("The L-system does not draw anything.");
+        }
+
+        Vector3d[] vertices = new Vector3d[2 * edgeCount];
+        system.draw(base, vertices);
+        int[] edges = new int[vertices.length];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = i;
+        }
+        return new Wireframe(base.copy(), Vector3d.up(), vertices, edges);
+    }
+
+    /**
+     * Creates the points of the surface of a Mandelbulb, the three dimensional counterpart of the Mandelbrot set.
+     * The surface is sampled like an implicit surface, using the distance estimate of the set as the field.
+     * @param centre the centre of the Mandelbulb
+     * @param radius the radius of the box the Mandelbulb is sampled in, its surface being a little closer to the centre
+     * @param power the power of the iteration, 8 for the usual shape
+     * @param iterations the maximum number of iterations per sample
+     * @param resolution the number of cells along each side of the sampled box, from 1 to 256
+     * @param maxPoints the largest number of points kept, spread evenly over the surface
+     * @throws IllegalArgumentException if resolution or maxPoints are out of range, or iterations is less than 1
+     */
+    public static Rotatable mandelbulb(Vector3d centre, double radius, double power, int iterations, int resolution, int maxPoints) {
+        FractalBuilder.checkCount(maxPoints);
+        if (resolution > 256) {
+            throw new IllegalArgumentException("The resolution of a Mandelbulb can't be more than 256.");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("A Mandelbulb needs at least 1 iteration.");
+        }
+
+        // The set fits in a ball of radius 1.2, the surface is offset by half a cell so that it is crossed by the grid
+        double scale = 1.2 / radius;
+        double offset = 0.5 * (2.4 / resolution);
+        ScalarField field = (x, y, z) -> FractalBuilder.mandelbulbDistance(
+                (x - centre.getX()) * scale, (y - centre.getY()) * scale, (z - centre.getZ()) * scale, power, iterations) - offset;
+
+        Vector3d extent = new Vector3d(radius, radius, radius);
+        float[] coordinates = ImplicitSurfaceBuilder.extractPoints(field, Vector3d.difference(centre, extent), Vector3d.add(centre, extent), resolution);
+
+        // Keep evenly spaced points, which are spread over the surface as they come in grid order, only creating vectors for those
+        int count = coordinates.length / 3;
+        Vector3d[] kept = new Vector3d[Math.min(count, maxPoints)];
+        for (int i = 0; i < kept.length; i++) {
+            int index = 3 * (int) (((long) i * count) / kept.length);
+            kept[i] = new Vector3d(coordinates[index], coordinates[index + 1], coordinates[index + 2]);
+        }
+        return new Rotatable(centre.copy(), Vector3d.up(), kept);
+    }
+
+    /**
+     * Estimates the distance from a point to the Mandelbulb, negative inside it.
+     */
+    private static double mandelbulbDistance(double x, double y, double z, double power, int iterations) {
+        double zx = x, zy = y, zz = z;
+        double derivative = 1;
+        double r = 0;
+        for (int i = 0; i < iterations; i++) {
+            r = Math.sqrt((zx * zx) + (zy * zy) + (zz * zz));
+            if (r > 2) {
+                return 0.5 * Math.log(r) * r / derivative;
+            }
+            if (r == 0) {
+                return -1; // The origin never escapes
+            }
+
+            // Raise to the power in spherical coordinates, then add the starting point
+            double theta = Math.acos(zz / r) * power;
+            double phi = Math.atan2(zy, zx) * power;
+            double rPower = Math.pow(r, power - 1);
+            derivative = (rPower * power * derivative) + 1;
+            rPower *= r;
+
+            double sinTheta = Math.sin(theta);
+            zx = (rPower * sinTheta * Math.cos(phi)) + x;
+            zy = (rPower * sinTheta * Math.sin(phi)) + y;
+            zz = (rPower * Math.cos(theta)) + z;
+        }
+
+        // Only the last iteration can have escaped, otherwise the point is taken to be inside the set
+        r = Math.sqrt((zx * zx) + (zy * zy) + (zz * zz));
+        if (r > 2) {
+            return 0.5 * Math.log(r) * r / derivative;
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the chaos game in parallel chunks, writing each point directly in its final place.
+     * @param scale the factor points are scaled by before being offset
+     * @param offset the vector added to every point
+     */
+    private static Vector3d[] play(double[][] maps, double[] weights, int pointCount, long seed, double scale, Vector3d offset) {
+        FractalBuilder.checkCount(pointCount);
+        if (maps.length == 0 || maps.length != weights.length) {
+            throw new IllegalArgumentException("There must be as many weights as maps, and at least one of each.");
+        }
+
+        // Flatten the maps and turn the weights into cumulative probabilities, so that picking a map is a short scan
+        double[] flatMaps = new double[12 * maps.length];
+        double[] thresholds = new double[maps.length];
+        double total = 0;
+        for (int i = 0; i < maps.length; i++) {
+            if (maps[i].length != 12) {
+                throw new IllegalArgumentException("Each map must have 12 values.");
+            }
+            if (!(weights[i] >= 0) || Double.isInfinite(weights[i])) {
+                throw new IllegalArgumentException("Weights must be positive and finite.");
+            }
+            System.arraycopy(maps[i], 0, flatMaps, 12 * i, 12);
+            total += weights[i];
+            thresholds[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one weight must be more than 0.");
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] /= total;
+        }
+
+        Vector3d[] points = new Vector3d[pointCount];
+        int chunks = (pointCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        ForkJoinPool.commonPool().invoke(new ChaosGameTask(flatMaps, thresholds, points, seed, scale, offset, 0, chunks));
+        return points;
+    }
+
+    private static void checkCount(int count) {
+        if (count < 1 || count > MAX_POINTS) {
+            throw new IllegalArgumentException("The number of points must be between 1 and " + MAX_POINTS + ".");
+        }
+    }
+
+    /**
+     * Mixes the bits of a value, so that close seeds give unrelated random sequences.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Plays the chaos game on a range of chunks, splitting the range until it is a single chunk.
+     */
+    @SuppressWarnings("serial")
+    private static class ChaosGameTask extends RecursiveAction {
+        private final double[] maps;
+        private final double[] thresholds;
+        private final Vector3d[] points;
+        private final long seed;
+        private final double scale;
+        private final Vector3d offset;
+        private final int start;
+        private final int end;
+
+        ChaosGameTask(double[] maps, double[] thresholds, Vector3d[] points, long seed, double scale, Vector3d offset, int start, int end) {
+            this.maps = maps;
+            this.thresholds = thresholds;
+            this.points = points;
+            this.seed = seed;
+            this.scale = scale;
+            this.offset = offset;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start > 1) {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new ChaosGameTask(this.maps, this.thresholds, this.points, this.seed, this.scale, this.offset, this.start, middle),
+                        new ChaosGameTask(this.maps, this.thresholds, this.points, this.seed, this.scale, this.offset, middle, this.end));
+                return;
+            }
+
+            // Each chunk has its own random sequence, so the result doesn't depend on which thread runs it
+            SplittableRandom random = new SplittableRandom(FractalBuilder.mix(this.seed + FractalBuilder.mix(this.start)));
+            int first = this.start * CHUNK_SIZE;
+            int last = Math.min(first + CHUNK_SIZE, this.points.length);
+
+            double x = 0, y = 0, z = 0;
+            for (int i = first - BURN_IN; i < last; i++) {
+                double choice = random.nextDouble();
+                int map = 0;
+                while (map < this.thresholds.length - 1 && choice >= this.thresholds[map]) {
+                    map++;
+                }
+
+                int m = 12 * map;
+                double nx = (this.maps[m] * x) + (this.maps[m + 1] * y) + (this.maps[m + 2] * z) + this.maps[m + 3];
+                double ny = (this.maps[m + 4] * x) + (this.maps[m + 5] * y) + (this.maps[m + 6] * z) + this.maps[m + 7];
+                double nz = (this.maps[m + 8] * x) + (this.maps[m + 9] * y) + (this.maps[m + 10] * z) + this.maps[m + 11];
+                x = nx;
+                y = ny;
+                z = nz;
+
+                if (i >= first) {
+                    this.points[i] = new Vector3d(
+                            (x * this.scale) + this.offset.getX(),
+                            (y * this.scale) + this.offset.getY(),
+                            (z * this.scale) + this.offset.getZ());
+                }
+            }
+        }
+    }
+}
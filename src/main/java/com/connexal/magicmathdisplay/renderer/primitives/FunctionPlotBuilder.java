@@ -0,0 +1,122 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.math.expression.Expression;
+
+import java.util.Arrays;
+
+/**
+ * Utility class for creating rotatable primitives by sampling user expressions.
+ * Samples where an expression is not defined (NaN or infinite) are skipped.
+ */
+public class FunctionPlotBuilder {
+    /**
+     * Creates a parametric curve, whose coordinates are functions of {@code t}.
+     * @param x the expression of the x coordinate
+     * @param y the expression of the y coordinate, which is vertical in the world
+     * @param z the expression of the z coordinate
+     * @param tMin the first value of t
+     * @param tMax the last value of t
+     * @param sampleCount the number of points sampled along the curve
+     * @throws IllegalArgumentException if sampleCount is less than 2
+     * @throws com.connexal.magicmathdisplay.math.expression.ExpressionParseException if an expression is not valid
+     */
+    public static Rotatable parametric(String x, String y, String z, double tMin, double tMax, int sampleCount) {
+        if (sampleCount < 2) {
+            throw new IllegalArgumentException("A curve must have at least 2 samples.");
+        }
+
+        double[] xs = new double[sampleCount];
+        double[] ys = new double[sampleCount];
+        double[] zs = new double[sampleCount];
+        Expression.compile(x, "t").sample(tMin, tMax, xs);
+        Expression.compile(y, "t").sample(tMin, tMax, ys);
+        Expression.compile(z, "t").sample(tMin, tMax, zs);
+
+        Vector3d[] points = new Vector3d[sampleCount];
+        int count = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (Double.isFinite(xs[i]) && Double.isFinite(ys[i]) && Double.isFinite(zs[i])) {
+                points[count++] = new Vector3d(xs[i], ys[i], zs[i]);
+            }
+        }
+
+        return FunctionPlotBuilder.build(points, count, Vector3d.up());
+    }
+
+    /**
+     * Creates the surface of a function of two variables {@code x} and {@code y}, sampled on a regular grid.
+     * The value of the function is used as the height, so the variables span the horizontal x and z axes of the world.
+     * @param function the expression of the height
+     * @param min the smallest value of both variables
+     * @param max the largest value of both variables
+     * @param resolution the number of samples along each side of the grid
+     * @throws IllegalArgumentException if resolution is less than 2
+     * @throws com.connexal.magicmathdisplay.math.expression.ExpressionParseException if the expression is not valid
+     */
+    public static Rotatable surface(String function, double min, double max, int resolution) {
+        if (resolution < 2) {
+            throw new IllegalArgumentException("A surface must have at least 2 samples per side.");
+        }
+
+        Expression expression = Expression.compile(function, "x", "y");
+        double step = (max - min) / (resolution - 1);
+        double[] values = new double[2];
+
+        Vector3d[] points = new Vector3d[resolution * resolution];
+        int count = 0;
+        for (int i = 0; i < resolution; i++) {
+            values[0] = min + (step * i);
+            for (int j = 0; j < resolution; j++) {
+                values[1] = min + (step * j);
+                double height = expression.evaluate(values);
+                if (Double.isFinite(height)) {
+                    points[count++] = new Vector3d(values[0], height, values[1]);
+                }
+            }
+        }
+
+        return FunctionPlotBuilder.build(points, count, Vector3d.up());
+    }
+
+    /**
+     * Creates a polar curve, whose distance to the centre is a function of the angle {@code theta}.
+     * @param radius the expression of the distance to the centre
+     * @param thetaMin the first angle in radians
+     * @param thetaMax the last angle in radians
+     * @param sampleCount the number of points sampled along the curve
+     * @param normal the normal vector of the curve's plane (should be a unit vector)
+     * @throws IllegalArgumentException if sampleCount is less than 2
+     * @throws com.connexal.magicmathdisplay.math.expression.ExpressionParseException if the expression is not valid
+     */
+    public static Rotatable polar(String radius, double thetaMin, double thetaMax, int sampleCount, Vector3d normal) {
+        if (sampleCount < 2) {
+            throw new IllegalArgumentException("A curve must have at least 2 samples.");
+        }
+
+        double[] radii = new double[sampleCount];
+        Expression.compile(radius, "theta").sample(thetaMin, thetaMax, radii);
+
+        // Calculate the points in the XY plane
+        double step = (thetaMax - thetaMin) / (sampleCount - 1);
+        Vector3d[] points = new Vector3d[sampleCount];
+        int count = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            if (Double.isFinite(radii[i])) {
+                double theta = thetaMin + (step * i);
+                points[count++] = new Vector3d(radii[i] * Math.cos(theta), radii[i] * Math.sin(theta), 0);
+            }
+        }
+
+        Rotatable obj = FunctionPlotBuilder.build(points, count, Vector3d.south());
+        obj.setNormal(normal); // Rotate to the correct normal
+        return obj;
+    }
+
+    private static Rotatable build(Vector3d[] points, int count, Vector3d normal) {
+        if (count == 0) {
+            throw new IllegalArgumentException("The expression is not defined anywhere in the sampled range.");
+        }
+        return new Rotatable(Vector3d.zero(), normal, count == points.length ? points : Arrays.copyOf(points, count));
+    }
+}
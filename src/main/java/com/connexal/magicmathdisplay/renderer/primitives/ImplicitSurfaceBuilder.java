@@ -0,0 +1,334 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.ScalarField;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.math.expression.Expression;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Utility class for creating primitives showing implicit surfaces, the points where a field is 0.
+ * <p>
+ * The field is sampled on a regular grid, then the surface is extracted with marching cubes: its vertices are where the field
+ * changes sign along the edges of the grid, and the edges of its triangles on the faces of the cells are found with marching squares.
+ * Triangles themselves are not needed, as frames only hold points and segments.
+ * Both steps run in parallel on slabs of the grid, and cells the surface doesn't cross are skipped after reading their corners.
+ */
+public class ImplicitSurfaceBuilder {
+    /**
+     * The number of grid planes processed by a single task.
+     */
+    private static final int SLAB_SIZE = 4;
+
+    /**
+     * Creates the points of an implicit surface given as an expression of {@code x}, {@code y} and {@code z}.
+     * @param function the expression of the field, the surface being where it is 0
+     * @param min the lowest corner of the sampled box
+     * @param max the highest corner of the sampled box
+     * @param resolution the number of cells along each side of the box
+     * @throws IllegalArgumentException if resolution is less than 1 or the surface is not in the box
+     * @throws com.connexal.magicmathdisplay.math.expression.ExpressionParseException if the expression is not valid
+     */
+    public static Rotatable points(String function, Vector3d min, Vector3d max, int resolution) {
+        return ImplicitSurfaceBuilder.points(ImplicitSurfaceBuilder.compile(function), min, max, resolution);
+    }
+
+    /**
+     * Creates the points of an implicit surface, where the field crosses the edges of the sampling grid.
+     * @param field the field, the surface being where it is 0
+     * @param min the lowest corner of the sampled box
+     * @param max the highest corner of the sampled box
+     * @param resolution the number of cells along each side of the box
+     * @throws IllegalArgumentException if resolution is less than 1 or the surface is not in the box
+     */
+    public static Rotatable points(ScalarField field, Vector3d min, Vector3d max, int resolution) {
+        float[] coordinates = ImplicitSurfaceBuilder.extractPoints(field, min, max, resolution);
+        Vector3d[] points = new Vector3d[coordinates.length / 3];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Vector3d(coordinates[3 * i], coordinates[(3 * i) + 1], coordinates[(3 * i) + 2]);
+        }
+        return new Rotatable(Vector3d.zero(), Vector3d.up(), points);
+    }
+
+    /**
+     * Creates the wireframe of an implicit surface given as an expression of {@code x}, {@code y} and {@code z}.
+     * @param function the expression of the field, the surface being where it is 0
+     * @param min the lowest corner of the sampled box
+     * @param max the highest corner of the sampled box
+     * @param resolution the number of cells along each side of the box
+     * @throws IllegalArgumentException if resolution is less than 1 or the surface is not in the box
+     * @throws com.connexal.magicmathdisplay.math.expression.ExpressionParseException if the expression is not valid
+     */
+    public static Wireframe wireframe(String function, Vector3d min, Vector3d max, int resolution) {
+        return ImplicitSurfaceBuilder.wireframe(ImplicitSurfaceBuilder.compile(function), min, max, resolution);
+    }
+
+    /**
+     * Creates the wireframe of an implicit surface, made of the lines where it crosses the faces of the sampling grid.
+     * @param field the field, the surface being where it is 0
+     * @param min the lowest corner of the sampled box
+     * @param max the highest corner of the sampled box
+     * @param resolution the number of cells along each side of the box
+     * @throws IllegalArgumentException if resolution is less than 1 or the surface is not in the box
+     */
+    public static Wireframe wireframe(ScalarField field, Vector3d min, Vector3d max, int resolution) {
+        Grid grid = Grid.sample(field, min, max, resolution);
+        float[] segments = ForkJoinPool.commonPool().invoke(new ExtractionTask(grid, 0, resolution + 1, true));
+        if (segments.length == 0) {
+            throw new IllegalArgumentException("The surface does not cross the sampled box.");
+        }
+
+        // Each segment has its own two vertices
+        Vector3d[] vertices = new Vector3d[segments.length / 3];
+        int[] edges = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = new Vector3d(segments[3 * i], segments[(3 * i) + 1], segments[(3 * i) + 2]);
+            edges[i] = i;
+        }
+        return new Wireframe(Vector3d.zero(), Vector3d.up(), vertices, edges);
+    }
+
+    /**
+     * Extracts the points of an implicit surface, without turning them into vectors.
+     * @return the coordinates of the points one after the other, in grid order
+     * @throws IllegalArgumentException if resolution is less than 1 or the surface is not in the box
+     */
+    static float[] extractPoints(ScalarField field, Vector3d min, Vector3d max, int resolution) {
+        Grid grid = Grid.sample(field, min, max, resolution);
+        float[] coordinates = ForkJoinPool.commonPool().invoke(new ExtractionTask(grid, 0, resolution + 1, false));
+        if (coordinates.length == 0) {
+            throw new IllegalArgumentException("The surface does not cross the sampled box.");
+        }
+        return coordinates;
+    }
+
+    private static ScalarField compile(String function) {
+        Expression expression = Expression.compile(function, "x", "y", "z");
+        return (x, y, z) -> expression.evaluate(x, y, z); // The fixed arity overload, which doesn't allocate for every sample
+    }
+
+    /**
+     * The values of a field at the corners of the cells of a grid.
+     */
+    private static class Grid {
+        private final int size; // Number of grid points along each side
+        private final double[] origin;
+        private final double[] step;
+        private final float[] values;
+        private final int[] strides; // Distance in the values between neighbours along each axis
+
+        private Grid(int size, double[] origin, double[] step) {
+            this.size = size;
+            this.origin = origin;
+            this.step = step;
+            this.values = new float[size * size * size];
+            this.strides = new int[] {size * size, size, 1};
+        }
+
+        static Grid sample(ScalarField field, Vector3d min, Vector3d max, int resolution) {
+            if (resolution < 1) {
+                throw new IllegalArgumentException("The resolution must be at least 1.");
+            }
+
+            double[] origin = {min.getX(), min.getY(), min.getZ()};
+            double[] step = {(max.getX() - min.getX()) / resolution, (max.getY() - min.getY()) / resolution, (max.getZ() - min.getZ()) / resolution};
+            Grid grid = new Grid(resolution + 1, origin, step);
+            ForkJoinPool.commonPool().invoke(new SamplingTask(grid, field, 0, grid.size));
+            return grid;
+        }
+
+        int index(int i, int j, int k) {
+            return (((i * this.size) + j) * this.size) + k;
+        }
+
+        double coordinate(int axis, double gridPosition) {
+            return this.origin[axis] + (this.step[axis] * gridPosition);
+        }
+    }
+
+    /**
+     * Evaluates the field on a range of grid planes, splitting the range until it is a single slab.
+     */
+    @SuppressWarnings("serial")
+    private static class SamplingTask extends RecursiveAction {
+        private final Grid grid;
+        private final ScalarField field;
+        private final int start;
+        private final int end;
+
+        SamplingTask(Grid grid, ScalarField field, int start, int end) {
+            this.grid = grid;
+            this.field = field;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start > SLAB_SIZE) {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new SamplingTask(this.grid, this.field, this.start, middle), new SamplingTask(this.grid, this.field, middle, this.end));
+                return;
+            }
+
+            for (int i = this.start; i < this.end; i++) {
+                double x = this.grid.coordinate(0, i);
+                for (int j = 0; j < this.grid.size; j++) {
+                    double y = this.grid.coordinate(1, j);
+                    int index = this.grid.index(i, j, 0);
+                    for (int k = 0; k < this.grid.size; k++) {
+                        this.grid.values[index + k] = (float) this.field.evaluate(x, y, this.grid.coordinate(2, k));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the surface from a range of grid planes, returning the coordinates in grid order so that the result is deterministic.
+     * Each grid edge and face is handled by the plane of its lowest corner, so nothing is extracted twice.
+     */
+    @SuppressWarnings("serial")
+    private static class ExtractionTask extends RecursiveTask<float[]> {
+        private final Grid grid;
+        private final int start;
+        private final int end;
+        private final boolean segments;
+
+        private float[] output = new float[0];
+        private int length = 0;
+
+        ExtractionTask(Grid grid, int start, int end, boolean segments) {
+            this.grid = grid;
+            this.start = start;
+            this.end = end;
+            this.segments = segments;
+        }
+
+        @Override
+        protected float[] compute() {
+            if (this.end - this.start > SLAB_SIZE) {
+                int middle = (this.start + this.end) >>> 1;
+                ExtractionTask low = new ExtractionTask(this.grid, this.start, middle, this.segments);
+                ExtractionTask high = new ExtractionTask(this.grid, middle, this.end, this.segments);
+                high.fork();
+                float[] lowResult = low.compute();
+                float[] highResult = high.join();
+
+                float[] result = Arrays.copyOf(lowResult, lowResult.length + highResult.length);
+                System.arraycopy(highResult, 0, result, lowResult.length, highResult.length);
+                return result;
+            }
+
+            int last = this.grid.size - 1;
+            for (int i = this.start; i < this.end; i++) {
+                for (int j = 0; j <= last; j++) {
+                    for (int k = 0; k <= last; k++) {
+                        if (this.segments) {
+                            // Faces perpendicular to x, y then z
+                            if (j < last && k < last) this.face(i, j, k, 1, 2);
+                            if (i < last && k < last) this.face(i, j, k, 2, 0);
+                            if (i < last && j < last) this.face(i, j, k, 0, 1);
+                        } else {
+                            // Edges along x, y then z
+                            if (i < last) this.edge(i, j, k, 0);
+                            if (j < last) this.edge(i, j, k, 1);
+                            if (k < last) this.edge(i, j, k, 2);
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(this.output, this.length);
+        }
+
+        /**
+         * Adds the point where the field crosses the grid edge starting at a grid point, if it does.
+         */
+        private void edge(int i, int j, int k, int axis) {
+            int index = this.grid.index(i, j, k);
+            float a = this.grid.values[index];
+            float b = this.grid.values[index + this.grid.strides[axis]];
+            if ((a < 0) != (b < 0) && !Float.isNaN(a) && !Float.isNaN(b)) {
+                this.crossing(i, j, k, axis);
+            }
+        }
+
+        /**
+         * Adds the lines where the field crosses the square face starting at a grid point, using marching squares.
+         * @param u the first axis along the face
+         * @param v the second axis along the face
+         */
+        private void face(int i, int j, int k, int u, int v) {
+            // Corners in cyclic order around the face
+            int index = this.grid.index(i, j, k);
+            float c0 = this.grid.values[index];
+            float c1 = this.grid.values[index + this.grid.strides[u]];
+            float c2 = this.grid.values[index + this.grid.strides[u] + this.grid.strides[v]];
+            float c3 = this.grid.values[index + this.grid.strides[v]];
+            if (Float.isNaN(c0 + c1 + c2 + c3)) {
+                return;
+            }
+
+            int inside = (c0 < 0 ? 1 : 0) | (c1 < 0 ? 2 : 0) | (c2 < 0 ? 4 : 0) | (c3 < 0 ? 8 : 0);
+            if (inside == 0 || inside == 0b1111) {
+                return; // The surface does not cross the face
+            }
+
+            // Edge e goes from corner e to corner e + 1
+            int crossings = 0;
+            int[] crossed = new int[4];
+            for (int e = 0; e < 4; e++) {
+                if (((inside >> e) & 1) != ((inside >> ((e + 1) % 4)) & 1)) {
+                    crossed[crossings++] = e;
+                }
+            }
+
+            if (crossings == 2) {
+                this.faceCrossing(i, j, k, u, v, crossed[0]);
+                this.faceCrossing(i, j, k, u, v, crossed[1]);
+            } else {
+                // Saddle, the value at the centre of the face decides which corners are connected
+                boolean centreInside = (c0 + c1 + c2 + c3) < 0;
+                int[] order = centreInside == (c0 < 0)
+                        ? new int[] {0, 1, 2, 3} // Corners 0 and 2 are connected, the lines go around corners 1 and 3
+                        : new int[] {3, 0, 1, 2};
+                for (int e : order) {
+                    this.faceCrossing(i, j, k, u, v, e);
+                }
+            }
+        }
+
+        /**
+         * Adds the crossing on an edge of a face. Edges 0 and 2 are along u, from corners 0 and 3, edges 1 and 3 are along v, from corners 1 and 0.
+         */
+        private void faceCrossing(int i, int j, int k, int u, int v, int edge) {
+            int[] start = {i, j, k};
+            if (edge == 1) {
+                start[u]++;
+            } else if (edge == 2) {
+                start[v]++;
+            }
+            this.crossing(start[0], start[1], start[2], edge % 2 == 0 ? u : v);
+        }
+
+        /**
+         * Adds the point where the field is 0 on the grid edge starting at a grid point, interpolating linearly.
+         */
+        private void crossing(int i, int j, int k, int axis) {
+            int index = this.grid.index(i, j, k);
+            float a = this.grid.values[index];
+            float b = this.grid.values[index + this.grid.strides[axis]];
+            double t = a / ((double) a - b);
+
+            if (this.length + 3 > this.output.length) {
+                this.output = Arrays.copyOf(this.output, Math.max(48, this.output.length * 2));
+            }
+            this.output[this.length++] = (float) this.grid.coordinate(0, i + (axis == 0 ? t : 0));
+            this.output[this.length++] = (float) this.grid.coordinate(1, j + (axis == 1 ? t : 0));
+            this.output[this.length++] = (float) this.grid.coordinate(2, k + (axis == 2 ? t : 0));
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A bracketed L-system drawn by a turtle in three dimensions, see {@link FractalBuilder#lSystem}.
+ * <p>
+ * For every symbol and number of remaining generations, the number of segments its expansion draws and the net move of the turtle
+ * over it are computed once. This gives where the segments of any symbol start in the output and the state of the turtle when
+ * reaching it, so subtrees can be drawn in parallel straight into their place in the output.
+ * <p>
+ * The orientation of the turtle is a 3x3 matrix whose columns are its heading, left and up vectors, in row order.
+ */
+class LSystem {
+    /**
+     * Expansions drawing fewer segments than this are drawn by a single task.
+     */
+    private static final long SEQUENTIAL_EDGES = 8192;
+    /**
+     * Counts are capped to this so that they never overflow.
+     */
+    private static final long COUNT_LIMIT = 1L << 62;
+
+    private final String axiom;
+    private final String[] rules = new String[128];
+    private final int generations;
+    /**
+     * For each number of remaining generations then each symbol, the number of segments drawn by its expansion.
+     */
+    private final long[][] counts;
+    /**
+     * For each number of remaining generations then each symbol, the net move of the turtle over its expansion,
+     * as the rotation in its own frame then the translation in its own frame.
+     */
+    private final double[][][] moves;
+
+    LSystem(String axiom, Map<Character, String> rules, double angle, double segmentLength, int generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("The number of generations can't be negative.");
+        }
+        LSystem.check(axiom);
+        for (Map.Entry<Character, String> rule : rules.entrySet()) {
+            LSystem.check(String.valueOf(rule.getKey()));
+            LSystem.check(rule.getValue());
+            if (rule.getKey() == '[' || rule.getKey() == ']') {
+                throw new IllegalArgumentException("Brackets can't be replaced.");
+            }
+            this.rules[rule.getKey()] = rule.getValue();
+        }
+
+        this.axiom = axiom;
+        this.generations = generations;
+        this.counts = new long[generations + 1][128];
+        this.moves = new double[generations + 1][128][];
+
+        // What each symbol does on its own
+        for (char symbol = 0; symbol < 128; symbol++) {
+            this.counts[0][symbol] = symbol == 'F' ? 1 : 0;
+            this.moves[0][symbol] = LSystem.command(symbol, angle, segmentLength);
+        }
+
+        // What each symbol does once expanded, from what the symbols of its rule do one generation earlier
+        for (int g = 1; g <= generations; g++) {
+            for (char symbol = 0; symbol < 128; symbol++) {
+                String rule = this.rules[symbol];
+                if (rule == null) {
+                    this.counts[g][symbol] = this.counts[0][symbol];
+                    this.moves[g][symbol] = this.moves[0][symbol];
+                } else {
+                    this.counts[g][symbol] = this.count(rule, g - 1);
+                    this.moves[g][symbol] = this.move(rule, g - 1);
+                }
+            }
+        }
+    }
+
+    private static void check(String string) {
+        int depth = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char symbol = string.charAt(i);
+            if (symbol >= 128) {
+                throw new IllegalArgumentException("Unsupported symbol in L-system: " + symbol);
+            }
+            if (symbol == '[') {
+                depth++;
+            } else if (symbol == ']' && --depth < 0) {
+                break;
+            }
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException("Unbalanced brackets in L-system: " + string);
+        }
+    }
+
+    /**
+     * Gets the move of a single turtle command, the identity for symbols that are not commands.
+     */
+    private static double[] command(char symbol, double angle, double segmentLength) {
+        double c = Math.cos(angle);
+        double s = Math.sin(angle);
+        return switch (symbol) {
+            case 'F', 'f' -> new double[] {1, 0, 0, 0, 1, 0, 0, 0, 1, segmentLength, 0, 0};
+            case '+' -> new double[] {c, -s, 0, s, c, 0, 0, 0, 1, 0, 0, 0}; // Around up
+            case '-' -> new double[] {c, s, 0, -s, c, 0, 0, 0, 1, 0, 0, 0};
+            case '&' -> new double[] {c, 0, s, 0, 1, 0, -s, 0, c, 0, 0, 0}; // Around left
+            case '^' -> new double[] {c, 0, -s, 0, 1, 0, s, 0, c, 0, 0, 0};
+            case '\\' -> new double[] {1, 0, 0, 0, c, -s, 0, s, c, 0, 0, 0}; // Around heading
+            case '/' -> new double[] {1, 0, 0, 0, c, s, 0, -s, c, 0, 0, 0};
+            case '|' -> new double[] {-1, 0, 0, 0, -1, 0, 0, 0, 1, 0, 0, 0};
+            default -> new double[] {1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0};
+        };
+    }
+
+    /**
+     * Counts the segments drawn by a string whose symbols each have a number of generations left.
+     */
+    private long count(String string, int generation) {
+        long total = 0;
+        for (int i = 0; i < string.length(); i++) {
+            total = Math.min(total + this.counts[generation][string.charAt(i)], COUNT_LIMIT);
+        }
+        return total;
+    }
+
+    /**
+     * Composes the moves over a string. Bracketed parts bring the turtle back to where it was, so they are skipped.
+     */
+    private double[] move(String string, int generation) {
+        double[] total = {1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0};
+        int depth = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char symbol = string.charAt(i);
+            if (symbol == '[') {
+                depth++;
+            } else if (symbol == ']') {
+                depth--;
+            } else if (depth == 0) {
+                LSystem.apply(total, this.moves[generation][symbol]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Applies a move to a turtle state, both being a rotation followed by a translation.
+     * The translation of the move is in the frame of the turtle, so it is rotated before being added.
+     */
+    private static void apply(double[] state, double[] move) {
+        double tx = move[9], ty = move[10], tz = move[11];
+        state[9] += (state[0] * tx) + (state[1] * ty) + (state[2] * tz);
+        state[10] += (state[3] * tx) + (state[4] * ty) + (state[5] * tz);
+        state[11] += (state[6] * tx) + (state[7] * ty) + (state[8] * tz);
+
+        for (int row = 0; row < 3; row++) {
+            double a = state[3 * row], b = state[(3 * row) + 1], c = state[(3 * row) + 2];
+            state[3 * row] = (a * move[0]) + (b * move[3]) + (c * move[6]);
+            state[(3 * row) + 1] = (a * move[1]) + (b * move[4]) + (c * move[7]);
+            state[(3 * row) + 2] = (a * move[2]) + (b * move[5]) + (c * move[8]);
+        }
+    }
+
+    /**
+     * Gets the number of segments drawn by the whole L-system.
+     * @return the number of segments, capped to 2<sup>62</sup>
+     */
+    long getEdgeCount() {
+        return this.count(this.axiom, this.generations);
+    }
+
+    /**
+     * Draws the L-system, stopping once the output is full.
+     * @param base the starting point of the turtle
+     * @param vertices the output, filled with the start then the end of each segment
+     */
+    void draw(Vector3d base, Vector3d[] vertices) {
+        // Heading up, left towards -x and up towards +z
+        double[] state = {0, -1, 0, 1, 0, 0, 0, 0, 1, base.getX(), base.getY(), base.getZ()};
+        ForkJoinPool.commonPool().invoke(new DrawTask(vertices, this.axiom, this.generations, state, 0));
+    }
+
+    /**
+     * Draws the expansion of a string whose symbols each have a number of generations left, from a given turtle state.
+     * If it draws many segments, each symbol is drawn by its own task instead.
+     */
+    @SuppressWarnings("serial")
+    private class DrawTask extends RecursiveAction {
+        private final Vector3d[] vertices;
+        private final String string;
+        private final int generation;
+        private final double[] state;
+        private final long firstEdge;
+
+        private double[] stack = new double[0];
+        private int stackSize = 0;
+        private long edge;
+
+        DrawTask(Vector3d[] vertices, String string, int generation, double[] state, long firstEdge) {
+            this.vertices = vertices;
+            this.string = string;
+            this.generation = generation;
+            this.state = state;
+            this.firstEdge = firstEdge;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.generation == 0 || LSystem.this.count(this.string, this.generation) <= SEQUENTIAL_EDGES) {
+                this.edge = this.firstEdge;
+                this.expand(this.string, this.generation);
+                return;
+            }
+
+            // Move the turtle over each symbol without drawing, handing those that draw something to their own task
+            List<DrawTask> tasks = new ArrayList<>();
+            List<double[]> saved = new ArrayList<>();
+            double[] current = this.state.clone();
+            long edge = this.firstEdge;
+            for (int i = 0; i < this.string.length() && edge < this.vertices.length / 2; i++) {
+                char symbol = this.string.charAt(i);
+                if (symbol == '[') {
+                    saved.add(current.clone());
+                } else if (symbol == ']') {
+                    current = saved.remove(saved.size() - 1);
+                } else {
+                    long count = LSystem.this.counts[this.generation][symbol];
+                    String rule = LSystem.this.rules[symbol];
+                    if (count > 0) {
+                        tasks.add(new DrawTask(this.vertices, rule != null ? rule : String.valueOf(symbol), rule != null ? this.generation - 1 : 0, current.clone(), edge));
+                    }
+                    LSystem.apply(current, LSystem.this.moves[this.generation][symbol]);
+                    edge += count;
+                }
+            }
+            invokeAll(tasks);
+        }
+
+        /**
+         * Draws the expansion of a string on this thread, moving the state of this task.
+         */
+        private void expand(String string, int generation) {
+            for (int i = 0; i < string.length() && this.edge < this.vertices.length / 2; i++) {
+                char symbol = string.charAt(i);
+                if (symbol == '[') {
+                    this.push();
+                } else if (symbol == ']') {
+                    this.pop();
+                } else if (generation > 0 && LSystem.this.rules[symbol] != null && LSystem.this.counts[generation][symbol] > 0) {
+                    this.expand(LSystem.this.rules[symbol], generation - 1);
+                } else if (symbol == 'F' && (generation == 0 || LSystem.this.rules[symbol] == null)) {
+                    this.segment(LSystem.this.moves[0][symbol]); // A segment that is drawn as it is, rather than a rule drawing nothing
+                } else {
+                    LSystem.apply(this.state, LSystem.this.moves[generation][symbol]); // Nothing drawn, only the net move matters
+                }
+            }
+        }
+
+        private void segment(double[] move) {
+            int index = (int) (2 * this.edge++);
+            this.vertices[index] = new Vector3d(this.state[9], this.state[10], this.state[11]);
+            LSystem.apply(this.state, move);
+            this.vertices[index + 1] = new Vector3d(this.state[9], this.state[10], this.state[11]);
+        }
+
+        private void push() {
+            if (this.stackSize + 12 > this.stack.length) {
+                this.stack = Arrays.copyOf(this.stack, Math.max(12 * 8, this.stack.length * 2));
+            }
+            System.arraycopy(this.state, 0, this.stack, this.stackSize, 12);
+            this.stackSize += 12;
+        }
+
+        private void pop() {
+            this.stackSize -= 12;
+            System.arraycopy(this.stack, this.stackSize, this.state, 0, 12);
+        }
+    }
+}
@@ -11,6 +11,31 @@ public interface Primitive {
      */
     Collection<Vector3d> getPoints();
 
+    /**
+     * Gets the number of points that make up the primitive, without building them.
+     * @return the number of points
+     */
+    default int getPointCount() {
+        return this.getPoints().size();
+    }
+
+    /**
+     * Writes the coordinates of the points of the primitive into a packed buffer, rounded to single precision.
+     * Each point is written as x, y then z, and the start of two consecutive points are stride values apart.
+     * Values in between are left untouched.
+     * @param buffer the buffer to write to
+     * @param offset the index in the buffer of the x coordinate of the first point
+     * @param stride the number of values between the start of two consecutive points, at least 3
+     */
+    default void exportPoints(float[] buffer, int offset, int stride) {
+        for (Vector3d point : this.getPoints()) {
+            buffer[offset] = (float) point.getX();
+            buffer[offset + 1] = (float) point.getY();
+            buffer[offset + 2] = (float) point.getZ();
+            offset += stride;
+        }
+    }
+
     /**
      * Gets the centre point of the primitive.
      * @return the centre point
@@ -65,7 +65,7 @@ public class Rotatable implements Primitive {
         else if (dotProduct == -1) {
             // Find a new rotation axis, in between both vectors
             Vector3d rotationAxis = new Vector3d(-this.normal.getY(), this.normal.getX(), 0);
-            if (rotationAxis.equals(Vector3d.zero())) {
+            if (rotationAxis.magnitude() == 0) { // Also catches negative zeros, which equals() tells apart
                 rotationAxis = new Vector3d(this.normal.getZ(), 0, -this.normal.getX());
                 if (rotationAxis.magnitude() == 0) {
                     throw new InternalError("Unexpected rotation axis");
@@ -136,6 +136,21 @@ public class Rotatable implements Primitive {
         return List.of(this.points);
     }
 
+    @Override
+    public int getPointCount() {
+        return this.points.length;
+    }
+
+    @Override
+    public void exportPoints(float[] buffer, int offset, int stride) {
+        for (Vector3d point : this.points) {
+            buffer[offset] = (float) point.getX();
+            buffer[offset + 1] = (float) point.getY();
+            buffer[offset + 2] = (float) point.getZ();
+            offset += stride;
+        }
+    }
+
     @Override
     public Vector3d getCentre() {
         return this.centre.copy();
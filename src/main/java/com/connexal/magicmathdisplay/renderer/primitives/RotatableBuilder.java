@@ -1,5 +1,6 @@
 package com.connexal.magicmathdisplay.renderer.primitives;
 
+import com.connexal.magicmathdisplay.math.GeometryKernels;
 import com.connexal.magicmathdisplay.math.Sphere;
 import com.connexal.magicmathdisplay.math.Vector3d;
 
@@ -23,21 +24,9 @@ public class RotatableBuilder {
             throw new IllegalArgumentException("The radius of the circle must be more than 0.");
         }
 
-        // Calculate the points to form the circle in the XY plane
-        // This can be done by calculating the n-th complex roots of the unit (1).
-        Vector3d[] points = new Vector3d[pointCount];
-        for (int i = 0; i < pointCount; i++) {
-            double angle = (2 * Math.PI * i) / pointCount;
-            double x = radius * Math.cos(angle);
-            double y = radius * Math.sin(angle);
-            points[i] = new Vector3d(x, y, 0);
-        }
-
-        // Build the object
-        Rotatable obj = new Rotatable(Vector3d.zero(), Vector3d.south(), points);
-        obj.setCentre(centre); // Move to the correct centre
-        obj.setNormal(normal); // Rotate to the correct normal
-        return obj;
+        // Calculate the points of the circle straight in its final place
+        Vector3d[] points = GeometryKernels.circle(centre, radius, normal, pointCount);
+        return new Rotatable(centre.copy(), Vector3d.normalized(normal), points);
     }
 
     /**
@@ -54,34 +43,9 @@ public class RotatableBuilder {
             throw new IllegalArgumentException("A rectangle must have at least 4 points.");
         }
 
-        // Calculate the points to form the rectangle in the XY plane
-        Vector3d[] points = new Vector3d[pointCount];
-        int perimeter = 2 * (width + height);
-        for (int i = 0; i < pointCount; i++) {
-            double distanceAlongPerimeter = ((double) i / pointCount) * perimeter;
-            double x, y;
-            if (distanceAlongPerimeter < width) {
-                x = -width / 2.0 + distanceAlongPerimeter;
-                y = -height / 2.0;
-            } else if (distanceAlongPerimeter < width + height) {
-                x = width / 2.0;
-                y = -height / 2.0 + (distanceAlongPerimeter - width);
-            } else if (distanceAlongPerimeter < 2 * width + height) {
-                x = width / 2.0 - (distanceAlongPerimeter - (width + height));
-                y = height / 2.0;
-            } else {
-                x = -width / 2.0;
-                y = height / 2.0 - (distanceAlongPerimeter - (2 * width + height));
-            }
-
-            points[i] = new Vector3d(x, y, 0);
-        }
-
-        // Build the object
-        Rotatable obj = new Rotatable(Vector3d.zero(), Vector3d.south(), points);
-        obj.setCentre(centre); // Move to the correct centre
-        obj.setNormal(normal); // Rotate to the correct normal
-        return obj;
+        // Calculate the points of the rectangle straight in its final place
+        Vector3d[] points = GeometryKernels.rectangle(centre, width, height, normal, pointCount);
+        return new Rotatable(centre.copy(), Vector3d.normalized(normal), points);
     }
 
     /**
@@ -95,12 +59,8 @@ public class RotatableBuilder {
         // The fibonacci sphere algorithm already does sanity checks for inputs
 
         // Calculate the points on the sphere using the Fibonacci sphere algorithm
-        Vector3d[] points = Sphere.fibonacciSphere(pointCount, radius);
-
-        // Build the object
-        Rotatable obj = new Rotatable(Vector3d.zero(), Vector3d.east(), points);
-        obj.setCentre(centre); // Move to the correct centre
-        return obj;
+        Vector3d[] points = Sphere.fibonacciSphere(pointCount, radius, centre);
+        return new Rotatable(centre.copy(), Vector3d.east(), points);
     }
 
     /**
@@ -108,27 +68,19 @@ public class RotatableBuilder {
      * @param centre the centre of the star
      * @param radius the radius of the star
      * @param branchCount the number of points to approximate the star
-     * @throws IllegalArgumentException if pointCount is less than 3
+     * @param pointsPerBranch the number of points along each branch
+     * @throws IllegalArgumentException if branchCount is less than 5 or radius is not positive
      */
     public static Rotatable star(Vector3d centre, double radius, int branchCount, int pointsPerBranch) {
-        // The fibonacci sphere algorithm already does sanity checks for inputs
-
-        // Calculate the points on the sphere using the Fibonacci sphere algorithm
-        Vector3d[] rootPoints = Sphere.fibonacciSphere(branchCount, radius);
-
-        // Build the branches out from the root points
-        Vector3d[] points = new Vector3d[branchCount * pointsPerBranch];
-        for (int i = 0; i < branchCount; i++) {
-            Vector3d root = Vector3d.normalized(rootPoints[i]).scale(radius / pointsPerBranch);
-            for (int j = 0; j < pointsPerBranch; j++) {
-                Vector3d point = Vector3d.scale(root, j + 1);
-                points[i * pointsPerBranch + j] = point;
-            }
+        if (branchCount < 5) {
+            throw new IllegalArgumentException("A star must have at least 5 branches.");
+        }
+        if (radius <= 0) {
+            throw new IllegalArgumentException("The radius of the star must be more than 0.");
         }
 
-        // Build the object
-        Rotatable obj = new Rotatable(Vector3d.zero(), Vector3d.east(), points);
-        obj.setCentre(centre); // Move to the correct centre
-        return obj;
+        // Build the branches out from the points of a Fibonacci sphere
+        Vector3d[] points = GeometryKernels.star(centre, radius, branchCount, pointsPerBranch);
+        return new Rotatable(centre.copy(), Vector3d.east(), points);
     }
 }
@@ -0,0 +1,124 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.LttbDownsampler;
+import com.connexal.magicmathdisplay.math.Vector3d;
+
+/**
+ * Utility class for creating plots of data series, downsampled to the number of points of their {@link LttbDownsampler}.
+ * Plots stand in the XY plane of the world, the positions of the samples going along x from 0 to the width, and their values
+ * going up along y from 0 to the height.
+ */
+public class SeriesPlotBuilder {
+    /**
+     * Creates a line going through the points of a series, scaled so that its values fill the height of the plot.
+     * @param series the series
+     * @param width the width of the plot
+     * @param height the height of the plot
+     * @throws IllegalArgumentException if the series has less than 2 points
+     */
+    public static Wireframe line(LttbDownsampler series, double width, double height) {
+        return SeriesPlotBuilder.line(series, width, height, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Creates a line going through the points of a series.
+     * @param series the series
+     * @param width the width of the plot
+     * @param height the height of the plot
+     * @param minValue the value at the bottom of the plot, NaN to use the lowest value of the series
+     * @param maxValue the value at the top of the plot, NaN to use the highest value of the series
+     * @throws IllegalArgumentException if the series has less than 2 points
+     */
+    public static Wireframe line(LttbDownsampler series, double width, double height, double minValue, double maxValue) {
+        double[] xs = new double[series.getBudget()];
+        double[] ys = new double[series.getBudget()];
+        int count = series.downsample(xs, ys);
+        Vector3d[] vertices = SeriesPlotBuilder.scale(xs, ys, count, width, height, minValue, maxValue);
+
+        int[] edges = new int[2 * (count - 1)];
+        for (int i = 0; i < count - 1; i++) {
+            edges[2 * i] = i;
+            edges[(2 * i) + 1] = i + 1;
+        }
+        return new Wireframe(new Vector3d(width / 2, height / 2, 0), Vector3d.south(), vertices, edges);
+    }
+
+    /**
+     * Creates a vertical bar for each point of a series, scaled so that its values fill the height of the plot.
+     * @param series the series
+     * @param width the width of the plot
+     * @param height the height of the plot
+     * @throws IllegalArgumentException if the series has less than 2 points
+     */
+    public static Wireframe bars(LttbDownsampler series, double width, double height) {
+        return SeriesPlotBuilder.bars(series, width, height, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Creates a vertical bar for each point of a series, going from the value 0, or the closest edge of the plot, to the value of the point.
+     * @param series the series
+     * @param width the width of the plot
+     * @param height the height of the plot
+     * @param minValue the value at the bottom of the plot, NaN to use the lowest value of the series
+     * @param maxValue the value at the top of the plot, NaN to use the highest value of the series
+     * @throws IllegalArgumentException if the series has less than 2 points
+     */
+    public static Wireframe bars(LttbDownsampler series, double width, double height, double minValue, double maxValue) {
+        double[] xs = new double[series.getBudget()];
+        double[] ys = new double[series.getBudget()];
+        int count = series.downsample(xs, ys);
+        Vector3d[] tops = SeriesPlotBuilder.scale(xs, ys, count, width, height, minValue, maxValue);
+
+        // The zero line, found from where the values were scaled to
+        double low = Double.isNaN(minValue) ? SeriesPlotBuilder.min(ys, count) : minValue;
+        double high = Double.isNaN(maxValue) ? SeriesPlotBuilder.max(ys, count) : maxValue;
+        double base = high > low ? Math.max(0, Math.min(height, -low / (high - low) * height)) : 0;
+
+        Vector3d[] vertices = new Vector3d[2 * count];
+        int[] edges = new int[2 * count];
+        for (int i = 0; i < count; i++) {
+            vertices[2 * i] = new Vector3d(tops[i].getX(), base, 0);
+            vertices[(2 * i) + 1] = tops[i];
+            edges[2 * i] = 2 * i;
+            edges[(2 * i) + 1] = (2 * i) + 1;
+        }
+        return new Wireframe(new Vector3d(width / 2, height / 2, 0), Vector3d.south(), vertices, edges);
+    }
+
+    /**
+     * Places the points of a series in the plot. A series whose values are all the same is drawn at mid height.
+     */
+    private static Vector3d[] scale(double[] xs, double[] ys, int count, double width, double height, double minValue, double maxValue) {
+        if (count < 2) {
+            throw new IllegalArgumentException("A series must have at least 2 points to be plotted.");
+        }
+
+        double low = Double.isNaN(minValue) ? SeriesPlotBuilder.min(ys, count) : minValue;
+        double high = Double.isNaN(maxValue) ? SeriesPlotBuilder.max(ys, count) : maxValue;
+        double xScale = xs[count - 1] > xs[0] ? width / (xs[count - 1] - xs[0]) : 0;
+        double yScale = high > low ? height / (high - low) : 0;
+
+        Vector3d[] points = new Vector3d[count];
+        for (int i = 0; i < count; i++) {
+            double y = yScale == 0 ? height / 2 : (ys[i] - low) * yScale;
+            points[i] = new Vector3d((xs[i] - xs[0]) * xScale, y, 0);
+        }
+        return points;
+    }
+
+    private static double min(double[] values, int count) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    private static double max(double[] values, int count) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+}
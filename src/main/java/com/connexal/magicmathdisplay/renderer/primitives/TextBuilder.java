@@ -0,0 +1,174 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.Vector3d;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Utility class for drawing text with particles, using a 5x7 pixel font.
+ * <p>
+ * Each glyph is turned into points once per density and cached, so laying out a string only copies the cached points of its
+ * characters with an offset. This keeps labels that change every frame, such as counters, as cheap as copying their points.
+ * Text is laid out in lines separated by {@code \n}, each centred on the middle of the text.
+ */
+public class TextBuilder {
+    /**
+     * The largest number of points along the side of a pixel.
+     */
+    public static final int MAX_POINTS_PER_PIXEL = 8;
+
+    /**
+     * The points of each glyph, as x then y in pixels from the bottom left corner of the glyph, keyed by density then character.
+     */
+    private static final Map<Integer, float[]> GLYPHS = new ConcurrentHashMap<>();
+
+    /**
+     * Creates text with one point per pixel.
+     * @param text the text
+     * @param centre the centre of the text
+     * @param height the height of a line of text
+     * @param normal the normal vector of the text's plane (should be a unit vector)
+     * @throws IllegalArgumentException if the text has no visible character
+     */
+    public static Rotatable text(String text, Vector3d centre, double height, Vector3d normal) {
+        return TextBuilder.text(text, centre, height, 1, normal);
+    }
+
+    /**
+     * Creates text, drawing every pixel of the font as a square of points.
+     * @param text the text
+     * @param centre the centre of the text
+     * @param height the height of a line of text
+     * @param pointsPerPixel the number of points along the side of a pixel, from 1 to {@link #MAX_POINTS_PER_PIXEL}
+     * @param normal the normal vector of the text's plane (should be a unit vector)
+     * @throws IllegalArgumentException if pointsPerPixel is out of range or the text has no visible character
+     */
+    public static Rotatable text(String text, Vector3d centre, double height, int pointsPerPixel, Vector3d normal) {
+        int pointCount = TextBuilder.countPoints(text, pointsPerPixel);
+        if (pointCount == 0) {
+            throw new IllegalArgumentException("The text has no visible character.");
+        }
+
+        float[] coordinates = new float[3 * pointCount];
+        TextBuilder.layout(text, height, pointsPerPixel, coordinates, 0, 3);
+        Vector3d[] points = new Vector3d[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            points[i] = new Vector3d(coordinates[3 * i], coordinates[(3 * i) + 1], coordinates[(3 * i) + 2]);
+        }
+
+        // Build the object
+        Rotatable obj = new Rotatable(Vector3d.zero(), Vector3d.south(), points);
+        obj.setCentre(centre); // Move to the correct centre
+        obj.setNormal(normal); // Rotate to the correct normal
+        return obj;
+    }
+
+    /**
+     * Counts the points of text, without laying it out.
+     * @param text the text
+     * @param pointsPerPixel the number of points along the side of a pixel, from 1 to {@link #MAX_POINTS_PER_PIXEL}
+     * @return the number of points
+     * @throws IllegalArgumentException if pointsPerPixel is out of range
+     */
+    public static int countPoints(String text, int pointsPerPixel) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != '\n') {
+                count += TextBuilder.glyph(text.charAt(i), pointsPerPixel).length / 2;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lays text out into a packed buffer, in the XY plane and centred on the origin. The buffer must have room for
+     * {@link #countPoints} points, which can be reused from one frame to the next.
+     * @param text the text
+     * @param height the height of a line of text
+     * @param pointsPerPixel the number of points along the side of a pixel, from 1 to {@link #MAX_POINTS_PER_PIXEL}
+     * @param buffer the buffer to write the x, y and z coordinates of the points to
+     * @param offset the index in the buffer of the x coordinate of the first point
+     * @param stride the number of values between the start of two consecutive points, at least 3
+     * @return the number of points written
+     * @throws IllegalArgumentException if pointsPerPixel is out of range
+     */
+    public static int layout(String text, double height, int pointsPerPixel, float[] buffer, int offset, int stride) {
+        double scale = height / BitmapFont.HEIGHT;
+        int lineCount = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lineCount++;
+            }
+        }
+
+        // The first line is at the top, the glyphs of the last one start at the bottom of the text
+        int written = 0;
+        int lineStart = 0;
+        double top = ((lineCount * BitmapFont.LINE_HEIGHT) - (BitmapFont.LINE_HEIGHT - BitmapFont.HEIGHT)) / 2.0;
+        for (int line = 0; line < lineCount; line++) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+
+            double penX = -(((lineEnd - lineStart) * BitmapFont.ADVANCE) - (BitmapFont.ADVANCE - BitmapFont.WIDTH)) / 2.0;
+            double penY = top - BitmapFont.HEIGHT - (line * BitmapFont.LINE_HEIGHT);
+            for (int i = lineStart; i < lineEnd; i++) {
+                float[] glyph = TextBuilder.glyph(text.charAt(i), pointsPerPixel);
+                for (int p = 0; p < glyph.length; p += 2) {
+                    buffer[offset] = (float) ((penX + glyph[p]) * scale);
+                    buffer[offset + 1] = (float) ((penY + glyph[p + 1]) * scale);
+                    buffer[offset + 2] = 0;
+                    offset += stride;
+                }
+                written += glyph.length / 2;
+                penX += BitmapFont.ADVANCE;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return written;
+    }
+
+    /**
+     * Gets the cached points of a glyph, rasterising it the first time.
+     */
+    private static float[] glyph(char character, int pointsPerPixel) {
+        if (pointsPerPixel < 1 || pointsPerPixel > MAX_POINTS_PER_PIXEL) {
+            throw new IllegalArgumentException("The number of points per pixel must be between 1 and " + MAX_POINTS_PER_PIXEL + ".");
+        }
+        char supported = BitmapFont.isSupported(character) ? character : '?';
+        return GLYPHS.computeIfAbsent((pointsPerPixel << 16) | supported, key -> TextBuilder.rasterise(supported, pointsPerPixel));
+    }
+
+    /**
+     * Turns the lit pixels of a glyph into squares of evenly spaced points.
+     */
+    private static float[] rasterise(char character, int pointsPerPixel) {
+        int lit = 0;
+        for (int column = 0; column < BitmapFont.WIDTH; column++) {
+            for (int row = 0; row < BitmapFont.HEIGHT; row++) {
+                if (BitmapFont.isLit(character, column, row)) {
+                    lit++;
+                }
+            }
+        }
+
+        float[] points = new float[2 * lit * pointsPerPixel * pointsPerPixel];
+        int index = 0;
+        for (int column = 0; column < BitmapFont.WIDTH; column++) {
+            for (int row = 0; row < BitmapFont.HEIGHT; row++) {
+                if (!BitmapFont.isLit(character, column, row)) {
+                    continue;
+                }
+                for (int i = 0; i < pointsPerPixel; i++) {
+                    for (int j = 0; j < pointsPerPixel; j++) {
+                        points[index++] = column + ((i + 0.5f) / pointsPerPixel);
+                        points[index++] = (BitmapFont.HEIGHT - 1 - row) + ((j + 0.5f) / pointsPerPixel);
+                    }
+                }
+            }
+        }
+        return points;
+    }
+}
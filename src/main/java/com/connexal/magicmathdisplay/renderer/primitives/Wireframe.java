@@ -0,0 +1,73 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.Vector3d;
+
+/**
+ * A rotatable primitive made of straight edges between its points.
+ * Each edge is rendered as a single trail particle going from one vertex to the other, instead of many particles along it.
+ */
+public class Wireframe extends Rotatable {
+    /**
+     * The vertices of the wireframe, shared with the rotatable so that they follow its transformations.
+     */
+    private final Vector3d[] vertices;
+    /**
+     * The edges of the wireframe, as pairs of indices into the vertices.
+     */
+    private final int[] edges;
+
+    Wireframe(Vector3d centre, Vector3d normal, Vector3d[] vertices, int[] edges) {
+        super(centre, normal, vertices);
+        if (edges.length % 2 != 0) {
+            throw new IllegalArgumentException("Edges must be given as pairs of vertex indices.");
+        }
+        for (int vertex : edges) {
+            if (vertex < 0 || vertex >= vertices.length) {
+                throw new IllegalArgumentException("Edge vertex out of range: " + vertex);
+            }
+        }
+
+        this.vertices = vertices;
+        this.edges = edges;
+    }
+
+    /**
+     * Gets the number of edges of the wireframe.
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return this.edges.length / 2;
+    }
+
+    /**
+     * Writes the edges of the wireframe into a packed buffer, rounded to single precision.
+     * Each edge is written as the x, y and z coordinates of its start, then the vector from its start to its end.
+     * The start of two consecutive edges are stride values apart, and values in between are left untouched.
+     * @param buffer the buffer to write to
+     * @param offset the index in the buffer of the x coordinate of the start of the first edge
+     * @param stride the number of values between the start of two consecutive edges, at least 6
+     */
+    public void exportEdges(float[] buffer, int offset, int stride) {
+        for (int i = 0; i < this.edges.length; i += 2) {
+            Vector3d start = this.vertices[this.edges[i]];
+            Vector3d end = this.vertices[this.edges[i + 1]];
+            buffer[offset] = (float) start.getX();
+            buffer[offset + 1] = (float) start.getY();
+            buffer[offset + 2] = (float) start.getZ();
+            buffer[offset + 3] = (float) (end.getX() - start.getX());
+            buffer[offset + 4] = (float) (end.getY() - start.getY());
+            buffer[offset + 5] = (float) (end.getZ() - start.getZ());
+            offset += stride;
+        }
+    }
+
+    @Override
+    public Wireframe copy() {
+        // Edges are never modified, so they can be shared
+        Vector3d[] verticesCopy = new Vector3d[this.vertices.length];
+        for (int i = 0; i < verticesCopy.length; i++) {
+            verticesCopy[i] = this.vertices[i].copy();
+        }
+        return new Wireframe(this.getCentre(), this.getNormal(), verticesCopy, this.edges);
+    }
+}
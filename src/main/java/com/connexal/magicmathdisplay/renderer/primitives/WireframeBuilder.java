@@ -0,0 +1,238 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.Sphere;
+import com.connexal.magicmathdisplay.math.Vector3d;
+
+import java.util.Arrays;
+
+/**
+ * Utility class for creating wireframe primitives, the edge based counterparts of {@link RotatableBuilder}.
+ */
+public class WireframeBuilder {
+    /**
+     * Creates a single straight line.
+     * @param start the start of the line
+     * @param end the end of the line
+     * @throws IllegalArgumentException if both ends are the same point
+     */
+    public static Wireframe line(Vector3d start, Vector3d end) {
+        Vector3d direction = Vector3d.difference(end, start);
+        if (direction.magnitude() == 0) {
+            throw new IllegalArgumentException("The ends of a line must be different points.");
+        }
+
+        // Any vector perpendicular to the line can be its normal
+        Vector3d normal = Vector3d.cross(direction, Vector3d.up());
+        if (normal.magnitude() == 0) {
+            normal = Vector3d.cross(direction, Vector3d.east());
+        }
+
+        Vector3d centre = Vector3d.interpolate(start, end, 0.5);
+        return new Wireframe(centre, normal.normalize(), new Vector3d[] {start.copy(), end.copy()}, new int[] {0, 1});
+    }
+
+    /**
+     * Creates a polyline going through the given vertices in order.
+     * @param vertices the vertices of the polyline
+     * @param closed whether the last vertex is joined back to the first one
+     * @throws IllegalArgumentException if there are less than 2 vertices
+     */
+    public static Wireframe polyline(Vector3d[] vertices, boolean closed) {
+        if (vertices.length < 2) {
+            throw new IllegalArgumentException("A polyline must have at least 2 vertices.");
+        }
+
+        Vector3d[] points = new Vector3d[vertices.length];
+        Vector3d centre = Vector3d.zero();
+        for (int i = 0; i < vertices.length; i++) {
+            points[i] = vertices[i].copy();
+            centre.add(vertices[i]);
+        }
+        centre.scale(1.0 / vertices.length);
+
+        int[] edges = WireframeBuilder.loopEdges(vertices.length);
+        if (!closed) {
+            edges = Arrays.copyOf(edges, edges.length - 2); // Drop the edge going back to the first vertex
+        }
+
+        return new Wireframe(centre, WireframeBuilder.newellNormal(points), points, edges);
+    }
+
+    /**
+     * Creates a regular polygon, which approximates a circle with far fewer particles than {@link RotatableBuilder#circle}.
+     * @param centre the centre of the polygon
+     * @param radius the distance between the centre and the vertices
+     * @param sideCount the number of sides of the polygon
+     * @param normal the normal vector of the polygon's plane (should be a unit vector)
+     * @throws IllegalArgumentException if sideCount is less than 3
+     */
+    public static Wireframe polygon(Vector3d centre, double radius, int sideCount, Vector3d normal) {
+        if (sideCount < 3) {
+            throw new IllegalArgumentException("A polygon must have at least 3 sides.");
+        }
+        if (radius <= 0) {
+            throw new IllegalArgumentException("The radius of the polygon must be more than 0.");
+        }
+
+        // Calculate the vertices in the XY plane
+        Vector3d[] vertices = new Vector3d[sideCount];
+        for (int i = 0; i < sideCount; i++) {
+            double angle = (2 * Math.PI * i) / sideCount;
+            vertices[i] = new Vector3d(radius * Math.cos(angle), radius * Math.sin(angle), 0);
+        }
+
+        return WireframeBuilder.place(vertices, WireframeBuilder.loopEdges(sideCount), centre, normal);
+    }
+
+    /**
+     * Creates the outline of a rectangle, the edge based variant of {@link RotatableBuilder#rectangle}.
+     * @param centre the centre of the rectangle
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @param normal the normal vector of the rectangle's plane (should be a unit vector)
+     * @throws IllegalArgumentException if the width or height is not positive
+     */
+    public static Wireframe rectangle(Vector3d centre, double width, double height, Vector3d normal) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The sides of the rectangle must be more than 0.");
+        }
+
+        // Calculate the corners in the XY plane
+        Vector3d[] vertices = {
+                new Vector3d(-width / 2, -height / 2, 0),
+                new Vector3d(width / 2, -height / 2, 0),
+                new Vector3d(width / 2, height / 2, 0),
+                new Vector3d(-width / 2, height / 2, 0)
+        };
+
+        return WireframeBuilder.place(vertices, WireframeBuilder.loopEdges(4), centre, normal);
+    }
+
+    /**
+     * Creates a star with a straight branch from its centre to each tip, the edge based variant of {@link RotatableBuilder#star}.
+     * @param centre the centre of the star
+     * @param radius the length of the branches
+     * @param branchCount the number of branches
+     * @throws IllegalArgumentException if branchCount is less than 5
+     */
+    public static Wireframe star(Vector3d centre, double radius, int branchCount) {
+        // The fibonacci sphere algorithm already does sanity checks for inputs
+        Vector3d[] tips = Sphere.fibonacciSphere(branchCount, radius);
+
+        // The first vertex is the centre, every branch starts from it
+        Vector3d[] vertices = new Vector3d[branchCount + 1];
+        vertices[0] = Vector3d.zero();
+        int[] edges = new int[2 * branchCount];
+        for (int i = 0; i < branchCount; i++) {
+            vertices[i + 1] = tips[i];
+            edges[2 * i] = 0;
+            edges[(2 * i) + 1] = i + 1;
+        }
+
+        Wireframe obj = new Wireframe(Vector3d.zero(), Vector3d.east(), vertices, edges);
+        obj.setCentre(centre); // Move to the correct centre
+        return obj;
+    }
+
+    /**
+     * Creates a latitude and longitude wireframe of a sphere.
+     * The poles are on the vertical axis, and each parallel and meridian is made of straight edges.
+     * @param centre the centre of the sphere
+     * @param radius the radius of the sphere
+     * @param latitudeCount the number of parallels, the poles excluded
+     * @param longitudeCount the number of meridians, which is also the number of edges of each parallel
+     * @throws IllegalArgumentException if latitudeCount is less than 1 or longitudeCount is less than 3
+     */
+    public static Wireframe sphere(Vector3d centre, double radius, int latitudeCount, int longitudeCount) {
+        if (latitudeCount < 1 || longitudeCount < 3) {
+            throw new IllegalArgumentException("A sphere wireframe must have at least 1 parallel and 3 meridians.");
+        }
+        if (radius <= 0) {
+            throw new IllegalArgumentException("The radius of the sphere must be more than 0.");
+        }
+
+        // Vertices are the north pole, then each parallel from north to south, then the south pole
+        int southPole = (latitudeCount * longitudeCount) + 1;
+        Vector3d[] vertices = new Vector3d[southPole + 1];
+        vertices[0] = new Vector3d(0, radius, 0);
+        vertices[southPole] = new Vector3d(0, -radius, 0);
+        for (int lat = 0; lat < latitudeCount; lat++) {
+            double polar = (Math.PI * (lat + 1)) / (latitudeCount + 1);
+            double y = radius * Math.cos(polar);
+            double ringRadius = radius * Math.sin(polar);
+            for (int lon = 0; lon < longitudeCount; lon++) {
+                double azimuth = (2 * Math.PI * lon) / longitudeCount;
+                vertices[1 + (lat * longitudeCount) + lon] = new Vector3d(ringRadius * Math.cos(azimuth), y, ringRadius * Math.sin(azimuth));
+            }
+        }
+
+        // Each parallel is a loop, each meridian goes from pole to pole through every parallel
+        int[] edges = new int[2 * ((latitudeCount * longitudeCount) + ((latitudeCount + 1) * longitudeCount))];
+        int e = 0;
+        for (int lat = 0; lat < latitudeCount; lat++) {
+            int ring = 1 + (lat * longitudeCount);
+            for (int lon = 0; lon < longitudeCount; lon++) {
+                edges[e++] = ring + lon;
+                edges[e++] = ring + ((lon + 1) % longitudeCount);
+            }
+        }
+        for (int lon = 0; lon < longitudeCount; lon++) {
+            int previous = 0;
+            for (int lat = 0; lat < latitudeCount; lat++) {
+                int vertex = 1 + (lat * longitudeCount) + lon;
+                edges[e++] = previous;
+                edges[e++] = vertex;
+                previous = vertex;
+            }
+            edges[e++] = previous;
+            edges[e++] = southPole;
+        }
+
+        Wireframe obj = new Wireframe(Vector3d.zero(), Vector3d.up(), vertices, edges);
+        obj.setCentre(centre); // Move to the correct centre
+        return obj;
+    }
+
+    /**
+     * Builds a wireframe from vertices in the XY plane, then moves and rotates it into place.
+     */
+    private static Wireframe place(Vector3d[] vertices, int[] edges, Vector3d centre, Vector3d normal) {
+        Wireframe obj = new Wireframe(Vector3d.zero(), Vector3d.south(), vertices, edges);
+        obj.setCentre(centre); // Move to the correct centre
+        obj.setNormal(normal); // Rotate to the correct normal
+        return obj;
+    }
+
+    /**
+     * Creates the edges joining each vertex to the next one, and the last one back to the first one.
+     */
+    private static int[] loopEdges(int vertexCount) {
+        int[] edges = new int[2 * vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            edges[2 * i] = i;
+            edges[(2 * i) + 1] = (i + 1) % vertexCount;
+        }
+        return edges;
+    }
+
+    /**
+     * Computes the normal of the plane best fitting a loop of vertices, using Newell's method.
+     * Falls back to the south vector if the vertices are collinear.
+     */
+    private static Vector3d newellNormal(Vector3d[] vertices) {
+        Vector3d normal = Vector3d.zero();
+        for (int i = 0; i < vertices.length; i++) {
+            Vector3d current = vertices[i];
+            Vector3d next = vertices[(i + 1) % vertices.length];
+            normal.add(
+                    (current.getY() - next.getY()) * (current.getZ() + next.getZ()),
+                    (current.getZ() - next.getZ()) * (current.getX() + next.getX()),
+                    (current.getX() - next.getX()) * (current.getY() + next.getY()));
+        }
+
+        if (normal.magnitude() == 0) {
+            return Vector3d.south();
+        }
+        return normal.normalize();
+    }
+}
@@ -0,0 +1,62 @@
+package com.connexal.magicmathdisplay.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Runs tasks on region-threaded servers, each task on the thread of the region owning its location.
+ * Timers must be at least one tick late, Folia does not accept an initial delay of 0.
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+    private final Plugin plugin;
+
+    public FoliaTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        this.plugin.getServer().getGlobalRegionScheduler().execute(this.plugin, task);
+    }
+
+    @Override
+    public void runEntity(Entity entity, Runnable task) {
+        entity.getScheduler().execute(this.plugin, task, null, 1L);
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        ScheduledTask scheduledTask = this.plugin.getServer().getGlobalRegionScheduler()
+                .runAtFixedRate(this.plugin, ignored -> task.run(), Math.max(1, delayTicks), periodTicks);
+        return scheduledTask::cancel;
+    }
+
+    @Override
+    public TaskHandle runRegionTimer(Location location, Runnable task, long delayTicks, long periodTicks) {
+        ScheduledTask scheduledTask = this.plugin.getServer().getRegionScheduler()
+                .runAtFixedRate(this.plugin, location, ignored -> task.run(), Math.max(1, delayTicks), periodTicks);
+        return scheduledTask::cancel;
+    }
+
+    @Override
+    public TaskHandle runEntityTimer(Entity entity, Runnable task, long delayTicks, long periodTicks) {
+        ScheduledTask scheduledTask = entity.getScheduler()
+                .runAtFixedRate(this.plugin, ignored -> task.run(), null, Math.max(1, delayTicks), periodTicks);
+        if (scheduledTask == null) {
+            return () -> {}; // The entity was already removed, there is nothing to run
+        }
+        return scheduledTask::cancel;
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        this.plugin.getServer().getAsyncScheduler().runNow(this.plugin, ignored -> task.run());
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return true;
+    }
+}
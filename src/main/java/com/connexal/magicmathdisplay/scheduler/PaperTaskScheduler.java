@@ -0,0 +1,53 @@
+package com.connexal.magicmathdisplay.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Runs every task on the main thread through the Bukkit scheduler, the location or entity of a task is ignored.
+ */
+public class PaperTaskScheduler implements TaskScheduler {
+    private final Plugin plugin;
+
+    public PaperTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        this.plugin.getServer().getScheduler().runTask(this.plugin, task);
+    }
+
+    @Override
+    public void runEntity(Entity entity, Runnable task) {
+        this.runGlobal(task);
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        BukkitTask bukkitTask = this.plugin.getServer().getScheduler().runTaskTimer(this.plugin, task, delayTicks, periodTicks);
+        return bukkitTask::cancel;
+    }
+
+    @Override
+    public TaskHandle runRegionTimer(Location location, Runnable task, long delayTicks, long periodTicks) {
+        return this.runGlobalTimer(task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public TaskHandle runEntityTimer(Entity entity, Runnable task, long delayTicks, long periodTicks) {
+        return this.runGlobalTimer(task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        this.plugin.getServer().getScheduler().runTaskAsynchronously(this.plugin, task);
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return false;
+    }
+}
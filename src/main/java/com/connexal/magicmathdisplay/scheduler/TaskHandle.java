@@ -0,0 +1,11 @@
+package com.connexal.magicmathdisplay.scheduler;
+
+/**
+ * A task scheduled by a {@link TaskScheduler}.
+ */
+public interface TaskHandle {
+    /**
+     * Cancels the task. It will not run again, but a run that already started is not interrupted.
+     */
+    void cancel();
+}
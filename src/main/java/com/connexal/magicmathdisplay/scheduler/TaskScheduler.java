@@ -0,0 +1,81 @@
+package com.connexal.magicmathdisplay.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Schedules the tasks of the plugin, hiding whether the server ticks everything on one thread
+ * or ticks each region of the world on its own thread.
+ */
+public interface TaskScheduler {
+    /**
+     * Runs a task once on the thread owning the global state of the server, during the next tick.
+     * @param task the task to run
+     */
+    void runGlobal(Runnable task);
+
+    /**
+     * Runs a task once on the thread owning an entity, during the next tick.
+     * The task is dropped if the entity is removed from the world before it runs.
+     * @param entity the entity the task works on
+     * @param task the task to run
+     */
+    void runEntity(Entity entity, Runnable task);
+
+    /**
+     * Runs a task repeatedly on the thread owning the global state of the server.
+     * @param task the task to run
+     * @param delayTicks the number of ticks before the first run
+     * @param periodTicks the number of ticks between two runs
+     * @return the scheduled task
+     */
+    TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Runs a task repeatedly on the thread owning a location, where it can safely access the world around it.
+     * @param location the location the task works on
+     * @param task the task to run
+     * @param delayTicks the number of ticks before the first run
+     * @param periodTicks the number of ticks between two runs
+     * @return the scheduled task
+     */
+    TaskHandle runRegionTimer(Location location, Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Runs a task repeatedly on the thread owning an entity, following it from region to region.
+     * The task stops on its own once the entity is removed from the world.
+     * @param entity the entity the task works on
+     * @param task the task to run
+     * @param delayTicks the number of ticks before the first run
+     * @param periodTicks the number of ticks between two runs
+     * @return the scheduled task
+     */
+    TaskHandle runEntityTimer(Entity entity, Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Runs a task once, off the threads ticking the server.
+     * @param task the task to run
+     */
+    void runAsync(Runnable task);
+
+    /**
+     * Checks whether tasks scheduled at different locations can run at the same time.
+     * @return true if each region of the world is ticked on its own thread
+     */
+    boolean isRegionThreaded();
+
+    /**
+     * Creates the scheduler matching the server the plugin runs on.
+     * @param plugin the plugin owning the tasks
+     * @return a scheduler using region threads on Folia, the global scheduler otherwise
+     */
+    static TaskScheduler create(Plugin plugin) {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return new FoliaTaskScheduler(plugin);
+        } catch (ClassNotFoundException e) {
+            return new PaperTaskScheduler(plugin);
+        }
+    }
+}
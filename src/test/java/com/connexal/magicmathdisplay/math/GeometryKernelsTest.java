@@ -0,0 +1,69 @@
+package com.connexal.magicmathdisplay.math;
+
+import com.connexal.magicmathdisplay.renderer.Frame;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeometryKernelsTest {
+    private static final Vector3d CENTRE = new Vector3d(1, 2, 3);
+    private static final Vector3d NORMAL = new Vector3d(0.3, -0.5, 0.8);
+    private static final int OFFSET = 5;
+
+    @FunctionalInterface
+    private interface PackedKernel {
+        void generate(float[] buffer, int offset, int stride);
+    }
+
+    /**
+     * Writes a shape into a strided buffer, adds it to a frame, and checks the frame holds the same points as the vectors.
+     */
+    private static void assertFrameMatches(Vector3d[] expected, PackedKernel kernel) {
+        float[] buffer = new float[OFFSET + (expected.length * Frame.STRIDE)];
+        kernel.generate(buffer, OFFSET, Frame.STRIDE);
+        float[] data = Frame.builder(expected.length).addPoints(buffer, OFFSET, expected.length, Frame.STRIDE).build().getData();
+
+        assertEquals(expected.length * Frame.STRIDE, data.length);
+        for (int i = 0; i < expected.length; i++) {
+            float[] point = {data[i * Frame.STRIDE], data[(i * Frame.STRIDE) + 1], data[(i * Frame.STRIDE) + 2]};
+            float[] vector = {(float) expected[i].getX(), (float) expected[i].getY(), (float) expected[i].getZ()};
+            assertArrayEquals(vector, point, 0);
+        }
+    }
+
+    @Test
+    void packedCircleMatchesVectors() {
+        GeometryKernelsTest.assertFrameMatches(GeometryKernels.circle(CENTRE, 4, NORMAL, 100),
+                (buffer, offset, stride) -> GeometryKernels.circle(CENTRE, 4, NORMAL, 100, buffer, offset, stride));
+    }
+
+    @Test
+    void packedRectangleMatchesVectors() {
+        GeometryKernelsTest.assertFrameMatches(GeometryKernels.rectangle(CENTRE, 5, 2, NORMAL, 70),
+                (buffer, offset, stride) -> GeometryKernels.rectangle(CENTRE, 5, 2, NORMAL, 70, buffer, offset, stride));
+    }
+
+    @Test
+    void packedSphereMatchesVectors() {
+        // Larger than the memoised shapes, so that both paths generate the unit sphere
+        GeometryKernelsTest.assertFrameMatches(GeometryKernels.fibonacciSphere(CENTRE, 3, 5000),
+                (buffer, offset, stride) -> GeometryKernels.fibonacciSphere(CENTRE, 3, 5000, buffer, offset, stride));
+    }
+
+    @Test
+    void packedStarMatchesVectors() {
+        GeometryKernelsTest.assertFrameMatches(GeometryKernels.star(CENTRE, 10, 12, 7),
+                (buffer, offset, stride) -> GeometryKernels.star(CENTRE, 10, 12, 7, buffer, offset, stride));
+    }
+
+    @Test
+    void circleStartsOnTheAxisAndKeepsItsRadius() {
+        Vector3d[] points = GeometryKernels.circle(Vector3d.zero(), 2, Vector3d.south(), 1000);
+        assertEquals(2, points[0].getX(), 1e-12);
+        assertEquals(0, points[0].getY(), 1e-12);
+        for (Vector3d point : points) {
+            assertEquals(2, point.magnitude(), 1e-12);
+            assertEquals(0, point.getZ(), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.connexal.magicmathdisplay.math;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbDownsamplerTest {
+    private static final int BUDGET = 200;
+
+    private static double value(long sample) {
+        return Math.sin(sample / 1000.0) + (0.1 * Math.sin(sample * 1.7));
+    }
+
+    @Test
+    void growingSeriesKeepsItsFirstAndLatestSample() {
+        LttbDownsampler series = new LttbDownsampler(BUDGET);
+        double[] xs = new double[BUDGET];
+        double[] ys = new double[BUDGET];
+        for (long sample = 0; sample < 1_000_000; sample++) {
+            series.add(LttbDownsamplerTest.value(sample));
+
+            if (sample == 10 || sample == 12_345 || sample == 999_999) {
+                int count = series.downsample(xs, ys);
+                assertEquals(0, xs[0], 0);
+                assertEquals(LttbDownsamplerTest.value(0), ys[0], 0);
+                assertEquals(sample, xs[count - 1], 0);
+                assertEquals(LttbDownsamplerTest.value(sample), ys[count - 1], 0);
+            }
+        }
+    }
+
+    @Test
+    void windowKeepsItsFirstAndLatestSample() {
+        int window = 12_000;
+        LttbDownsampler series = new LttbDownsampler(BUDGET, window);
+        double[] xs = new double[BUDGET];
+        double[] ys = new double[BUDGET];
+        for (long sample = 0; sample < 100_000; sample++) {
+            series.add(LttbDownsamplerTest.value(sample));
+        }
+
+        int count = series.downsample(xs, ys);
+        assertEquals(BUDGET, count);
+        assertEquals(99_999, xs[count - 1], 0, "The latest sample should be the last point");
+        assertEquals(LttbDownsamplerTest.value(99_999), ys[count - 1], 0);
+
+        // The window can start in the middle of its oldest bucket, which is shown from its first sample
+        long bucketSize = (window + (2L * BUDGET) - 1) / (2L * BUDGET);
+        long windowStart = 100_000 - window;
+        assertEquals(windowStart - Math.floorMod(windowStart, bucketSize), xs[0], 0, "The first sample of the window should be the first point");
+    }
+
+    @Test
+    void fewSamplesAreAllReturned() {
+        LttbDownsampler series = new LttbDownsampler(BUDGET);
+        series.add(1);
+        series.add(3);
+        series.add(2);
+
+        double[] xs = new double[BUDGET];
+        double[] ys = new double[BUDGET];
+        assertEquals(3, series.downsample(xs, ys));
+        assertArrayEquals(new double[] {0, 1, 2}, new double[] {xs[0], xs[1], xs[2]}, 0);
+        assertArrayEquals(new double[] {1, 3, 2}, new double[] {ys[0], ys[1], ys[2]}, 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import com.connexal.magicmathdisplay.math.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameDeduplicatorTest {
+    private static final int POINTS = 12;
+    private static final double RADIUS = 5;
+
+    /**
+     * Builds the frames of a circle spun about its own normal by one point per frame, so that every frame holds the same points
+     * as the first one, shifted by one place.
+     */
+    private static Sequence.SequenceBuilder spunCircle(int frameCount) {
+        Sequence.SequenceBuilder builder = Sequence.builder();
+        for (int frame = 0; frame < frameCount; frame++) {
+            Frame.FrameBuilder frameBuilder = Frame.builder(POINTS);
+            for (int i = 0; i < POINTS; i++) {
+                double angle = (2 * Math.PI * ((i + frame) % POINTS)) / POINTS;
+                frameBuilder.addPoint(new Vector3d(RADIUS * Math.cos(angle), 0, RADIUS * Math.sin(angle)));
+            }
+            builder.addFrame(frameBuilder.build());
+        }
+        return builder;
+    }
+
+    @Test
+    void spunCircleIsStoredOnce() {
+        Sequence sequence = spunCircle(2 * POINTS).buildVelocity(true);
+
+        assertEquals(2 * POINTS, sequence.getTotalFrames());
+        assertTrue(sequence.getStoredFrames() < sequence.getTotalFrames(), "A spun circle should share its stored frames");
+        assertEquals(1, sequence.getStoredFrames());
+        assertEquals(1, sequence.getPeriod());
+    }
+
+    @Test
+    void aliasedFramesKeepTheirPointOrder() {
+        Sequence reference = spunCircle(POINTS).duplicateTolerance(0).buildVelocity(true);
+        Sequence sequence = spunCircle(POINTS).buildVelocity(true);
+
+        for (int frame = 0; frame < POINTS; frame++) {
+            assertArrayEquals(reference.getFrame(frame), sequence.getFrame(frame), 0f);
+        }
+    }
+
+    @Test
+    void reducedKeyframesFollowEachPoint() {
+        Sequence reference = spunCircle(POINTS).duplicateTolerance(0).buildVelocity(true);
+        Sequence reduced = SequenceOptimiser.reduceKeyframes(spunCircle(POINTS).buildVelocity(true), 0.01);
+
+        for (int frame = 0; frame < POINTS; frame++) {
+            float[] expected = reference.getFrame(frame);
+            float[] actual = reduced.getFrame(frame);
+            for (int p = 0; p < expected.length; p += Frame.STRIDE) {
+                double dx = expected[p] - actual[p], dy = expected[p + 1] - actual[p + 1], dz = expected[p + 2] - actual[p + 2];
+                assertTrue((dx * dx) + (dy * dy) + (dz * dz) <= 0.01 * 0.01, "Point " + (p / Frame.STRIDE) + " of frame " + frame + " moved");
+            }
+        }
+    }
+
+    @Test
+    void framesWithOtherPointsAreNotShared() {
+        Sequence sequence = Sequence.builder()
+                .addFrame(Frame.builder().addPoint(new Vector3d(0, 0, 0)).addPoint(new Vector3d(1, 0, 0)).build())
+                .addFrame(Frame.builder().addPoint(new Vector3d(1, 0, 0)).addPoint(new Vector3d(0, 0, 0)).build())
+                .addFrame(Frame.builder().addPoint(new Vector3d(2, 0, 0)).addPoint(new Vector3d(0, 0, 0)).build())
+                .build();
+
+        assertEquals(2, sequence.getStoredFrames());
+        assertArrayEquals(new int[] {1, 0}, sequence.getPermutation(1));
+        assertNull(sequence.getPermutation(0));
+    }
+}
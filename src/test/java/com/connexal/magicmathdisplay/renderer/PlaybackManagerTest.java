@@ -0,0 +1,178 @@
+package com.connexal.magicmathdisplay.renderer;
+
+import com.connexal.magicmathdisplay.Settings;
+import com.connexal.magicmathdisplay.math.Vector3d;
+import com.connexal.magicmathdisplay.metrics.MetricsRegistry;
+import com.connexal.magicmathdisplay.scheduler.ManualTaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the render lanes tick by tick with a {@link ManualTaskScheduler}, on a fake server with one player.
+ */
+class PlaybackManagerTest {
+    private static final int IDLE_CHECK_INTERVAL = 5;
+    private static final int FRAME_DURATION_TICKS = 20;
+
+    private final ManualTaskScheduler scheduler = new ManualTaskScheduler();
+    private final AtomicInteger particlesSpawned = new AtomicInteger(0);
+    private final World world = fake(World.class, Map.of(
+            "isChunkLoaded", args -> true,
+            "spawnParticle", args -> {
+                this.particlesSpawned.incrementAndGet();
+                return null;
+            }));
+    private final AtomicReference<Location> playerLocation = new AtomicReference<>(new Location(this.world, 0, 64, 0));
+    private final Player player = fake(Player.class, Map.of(
+            "getUniqueId", args -> UUID.nameUUIDFromBytes(new byte[] {1}),
+            "getLocation", args -> this.playerLocation.get().clone()));
+    private PlaybackManager manager;
+
+    @BeforeEach
+    void setUp() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("playback.idle-check-interval", IDLE_CHECK_INTERVAL);
+        Server server = fake(Server.class, Map.of("getOnlinePlayers", args -> List.of(this.player)));
+        this.manager = new PlaybackManager(Settings.load(config), new MetricsRegistry(), this.scheduler, server);
+        this.scheduler.tick(); // Takes the first snapshot of the player
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.manager.shutdown();
+    }
+
+    private Playback start(int pointCount) {
+        Frame.FrameBuilder frame = Frame.builder(pointCount);
+        for (int i = 0; i < pointCount; i++) {
+            frame.addPoint(new Vector3d(i, 0, 0));
+        }
+        Sequence sequence = Sequence.builder().addFrame(frame.build()).build();
+        return this.manager.start("test", new Location(this.world, 0, 64, 0), FRAME_DURATION_TICKS, sequence, 0, null);
+    }
+
+    @Test
+    void laneStartsWithItsFirstPlaybackAndStopsWithItsLast() {
+        int timers = this.scheduler.getActiveTimers();
+
+        Playback first = this.start(3);
+        Playback second = this.start(3);
+        assertEquals(timers + 1, this.scheduler.getActiveTimers(), "Playbacks should share the global lane");
+        assertEquals(2, this.manager.getPlaybacks().size());
+
+        first.stop();
+        this.scheduler.tick();
+        assertEquals(List.of(second), this.manager.getPlaybacks());
+        assertEquals(timers + 1, this.scheduler.getActiveTimers());
+
+        second.stop();
+        this.scheduler.tick();
+        assertTrue(this.manager.getPlaybacks().isEmpty());
+        assertEquals(timers, this.scheduler.getActiveTimers(), "The lane should cancel itself once it has nothing to play");
+    }
+
+    @Test
+    void batchesAreDispatchedOnTheNextTick() {
+        this.start(3);
+
+        this.scheduler.tick();
+        assertEquals(0, this.particlesSpawned.get(), "Frames are prepared during a tick and sent during the next one");
+
+        this.scheduler.tick();
+        assertEquals(3, this.particlesSpawned.get());
+
+        this.scheduler.tick(FRAME_DURATION_TICKS - 2);
+        assertEquals(3, this.particlesSpawned.get(), "Nothing is sent until the next frame");
+        this.scheduler.tick(2);
+        assertEquals(6, this.particlesSpawned.get());
+    }
+
+    @Test
+    void stoppedPlaybacksDoNotDispatchPreparedBatches() {
+        Playback playback = this.start(3);
+        this.scheduler.tick();
+
+        playback.stop();
+        this.scheduler.tick();
+        assertEquals(0, this.particlesSpawned.get());
+    }
+
+    @Test
+    void idleCheckSuspendsUnwatchedPlaybacksAndWakeUpResumesThem() {
+        Playback playback = this.start(3);
+        this.playerLocation.set(new Location(this.world, 1000, 64, 0));
+
+        this.scheduler.tick(IDLE_CHECK_INTERVAL + 1);
+        assertTrue(playback.isDormant(), "Nobody is in range once the player moved away");
+        assertEquals(1, this.manager.getDormantCount());
+
+        this.playerLocation.set(new Location(this.world, 0, 64, 0));
+        this.scheduler.tick(); // Refreshes the snapshot of the player
+        this.manager.wakeNear(this.playerLocation.get());
+        assertTrue(playback.isDormant(), "The wake up is handled by the lane");
+        this.scheduler.tick();
+        assertFalse(playback.isDormant(), "The lane should wake the playback without waiting for the idle check");
+    }
+
+    /**
+     * Creates an implementation of an interface answering some of its methods, the others returning null, 0 or false.
+     */
+    private static <T> T fake(Class<T> type, Map<String, Answer> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return type.getSimpleName();
+            }
+
+            Answer answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.answer(args);
+            }
+
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == double.class) {
+                return 0.0;
+            } else if (returnType == float.class) {
+                return 0f;
+            } else if (returnType == long.class) {
+                return 0L;
+            } else if (returnType == int.class) {
+                return 0;
+            } else if (returnType == short.class) {
+                return (short) 0;
+            } else if (returnType == byte.class) {
+                return (byte) 0;
+            } else if (returnType == char.class) {
+                return '\0';
+            }
+            return null;
+        });
+        return type.cast(proxy);
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        Object answer(Object[] args);
+    }
+}
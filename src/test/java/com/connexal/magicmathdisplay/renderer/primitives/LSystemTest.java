@@ -0,0 +1,47 @@
+package com.connexal.magicmathdisplay.renderer.primitives;
+
+import com.connexal.magicmathdisplay.math.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LSystemTest {
+    private static float[] edges(Wireframe wireframe) {
+        float[] buffer = new float[6 * wireframe.getEdgeCount()];
+        wireframe.exportEdges(buffer, 0, 6);
+        return buffer;
+    }
+
+    @Test
+    void segmentWhoseRuleDrawsNothingOnlyTurns() {
+        Wireframe wireframe = FractalBuilder.lSystem(Vector3d.zero(), "FG", Map.of('F', "-", 'G', "F"), Math.PI / 2, 1, 1, 10);
+
+        float[] edges = edges(wireframe);
+        assertEquals(1, wireframe.getEdgeCount());
+        assertArrayEquals(new float[] {0, 0, 0}, new float[] {edges[0], edges[1], edges[2]}, 1e-6f);
+        assertEquals(1, Math.abs(edges[3]), 1e-6, "The segment should be horizontal after the turn");
+        assertEquals(0, edges[4], 1e-6);
+        assertEquals(0, edges[5], 1e-6);
+    }
+
+    @Test
+    void parallelDrawingKeepsThePathContinuous() {
+        // G expands to 2^(generations - 2) segments, drawn by F once it has no generation left, and only turns before that
+        int generations = 16;
+        Wireframe wireframe = FractalBuilder.lSystem(Vector3d.zero(), "G", Map.of('F', "+", 'G', "GHG", 'H', "F-"), Math.PI / 3, 1, generations, FractalBuilder.MAX_POINTS);
+
+        float[] edges = edges(wireframe);
+        assertEquals(1 << (generations - 2), wireframe.getEdgeCount());
+        for (int p = 0; p < edges.length; p += 6) {
+            double length = Math.sqrt((edges[p + 3] * edges[p + 3]) + (edges[p + 4] * edges[p + 4]) + (edges[p + 5] * edges[p + 5]));
+            assertEquals(1, length, 1e-4, "Edge " + (p / 6) + " has the wrong length");
+            if (p > 0) {
+                for (int axis = 0; axis < 3; axis++) {
+                    assertEquals(edges[p - 6 + axis] + edges[p - 3 + axis], edges[p + axis], 1e-3, "Edge " + (p / 6) + " doesn't start where the previous one ends");
+                }
+            }
+        }
+    }
+}
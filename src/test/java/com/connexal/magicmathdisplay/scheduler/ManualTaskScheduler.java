@@ -0,0 +1,156 @@
+package com.connexal.magicmathdisplay.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs tasks only when told to, on the calling thread, so that scheduled code can be driven tick by tick without a server.
+ * Region and entity tasks run like global ones, every task of a tick running in the order it was scheduled.
+ */
+public class ManualTaskScheduler implements TaskScheduler {
+    private final boolean regionThreaded;
+    private final List<Timer> timers = new ArrayList<>();
+    private final List<Runnable> asyncTasks = new ArrayList<>();
+    private long currentTick = 0;
+
+    /**
+     * Creates a scheduler that behaves like a server ticking everything on one thread.
+     */
+    public ManualTaskScheduler() {
+        this(false);
+    }
+
+    /**
+     * Creates a scheduler.
+     * @param regionThreaded what {@link #isRegionThreaded()} reports, to choose the code paths being exercised
+     */
+    public ManualTaskScheduler(boolean regionThreaded) {
+        this.regionThreaded = regionThreaded;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        this.runOnce(task);
+    }
+
+    @Override
+    public void runEntity(Entity entity, Runnable task) {
+        this.runOnce(task);
+    }
+
+    /**
+     * Runs a task during the next tick, as Folia does not run delayed tasks on the current one.
+     */
+    private void runOnce(Runnable task) {
+        TaskHandle[] handle = new TaskHandle[1];
+        handle[0] = this.runGlobalTimer(() -> {
+            handle[0].cancel();
+            task.run();
+        }, 1L, 1L);
+    }
+
+    @Override
+    public synchronized TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        Timer timer = new Timer(task, this.currentTick + delayTicks, Math.max(1, periodTicks));
+        this.timers.add(timer);
+        return () -> timer.cancelled = true;
+    }
+
+    @Override
+    public TaskHandle runRegionTimer(Location location, Runnable task, long delayTicks, long periodTicks) {
+        return this.runGlobalTimer(task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public TaskHandle runEntityTimer(Entity entity, Runnable task, long delayTicks, long periodTicks) {
+        return this.runGlobalTimer(task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public synchronized void runAsync(Runnable task) {
+        this.asyncTasks.add(task);
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return this.regionThreaded;
+    }
+
+    /**
+     * Runs the timers due during the current tick, then moves on to the next tick.
+     */
+    public void tick() {
+        List<Timer> due = new ArrayList<>();
+        synchronized (this) {
+            this.timers.removeIf(timer -> timer.cancelled);
+            for (Timer timer : this.timers) {
+                if (timer.nextTick <= this.currentTick) {
+                    timer.nextTick += timer.periodTicks;
+                    due.add(timer);
+                }
+            }
+            this.currentTick++;
+        }
+
+        for (Timer timer : due) {
+            if (!timer.cancelled) {
+                timer.task.run();
+            }
+        }
+    }
+
+    /**
+     * Runs the given number of ticks.
+     * @param ticks the number of ticks to run
+     */
+    public void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            this.tick();
+        }
+    }
+
+    /**
+     * Runs the asynchronous tasks submitted so far, including those they submit themselves.
+     */
+    public void runAsyncTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                if (this.asyncTasks.isEmpty()) {
+                    return;
+                }
+                task = this.asyncTasks.removeFirst();
+            }
+            task.run();
+        }
+    }
+
+    public synchronized long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    /**
+     * Gets the number of timers that have not been cancelled.
+     * @return the number of active timers
+     */
+    public synchronized int getActiveTimers() {
+        this.timers.removeIf(timer -> timer.cancelled);
+        return this.timers.size();
+    }
+
+    private static class Timer {
+        private final Runnable task;
+        private final long periodTicks;
+        private long nextTick;
+        private volatile boolean cancelled = false;
+
+        private Timer(Runnable task, long nextTick, long periodTicks) {
+            this.task = task;
+            this.nextTick = nextTick;
+            this.periodTicks = periodTicks;
+        }
+    }
+}